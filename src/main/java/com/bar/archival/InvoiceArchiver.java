@@ -0,0 +1,217 @@
+package com.bar.archival;
+
+import com.bar.repo.convert.InvoiceConverters;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Mueve las facturas emitidas antes del corte (archival.invoices.months) a su coleccion mensual.
+ * Cada lote se copia con upsert y despues se borra de invoices y de invoice_summaries, asi que
+ * si se corta a mitad de un lote, la siguiente ejecucion lo vuelve a copiar sin duplicar.
+ * Antes de borrar se anotan en InvoicePartitions.INDEX las facturas cuyo id no dice en que
+ * particion quedaron, para que findById las siga encontrando, y se marcan con ARCHIVED: el feed de
+ * pedidos ve esa marca en el change stream y no anuncia el borrado como un pedido eliminado.
+ * Las facturas archivadas quedan de solo lectura.
+ * Con varias instancias la tarea programada corre en la que toma el lease de job_locks
+ * (archival.invoices.lease); las demas no hacen nada en esa ejecucion.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvoiceArchiver {
+
+    //Campo que se pone justo antes de borrar de invoices (ver OrderFeed)
+    public static final String ARCHIVED = "archivedAt";
+
+    static final String LOCKS = "job_locks";
+
+    private static final String SUMMARIES = "invoice_summaries";
+    private static final String LOCK = "invoice-archiver";
+
+    private final ReactiveMongoTemplate template;
+    private final InvoicePartitions partitions;
+
+    @Value("${archival.invoices.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archival.invoices.batch-size:500}")
+    private int batchSize;
+
+    //Mas que lo que tarda una ejecucion: si la instancia cae con el lease tomado, otra lo toma al vencer
+    @Value("${archival.invoices.lease:1h}")
+    private Duration lease;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${archival.invoices.cron:0 0 3 * * *}")
+    public void archiveOld() {
+        if (!enabled) {
+            return;
+        }
+
+        archiveWithLease().subscribe(
+                count -> log.info("Facturas archivadas: {}", count),
+                e -> log.warn("Se detuvo el archivo de facturas; se retoma en la siguiente ejecucion", e),
+                () -> log.debug("Otra instancia tiene el lease del archivo de facturas")
+        );
+    }
+
+    //Vacio si otra instancia tiene el lease
+    Mono<Long> archiveWithLease() {
+        return acquire()
+                .filter(Boolean::booleanValue)
+                .flatMap(acquired -> archive().flatMap(count -> release().thenReturn(count)));
+    }
+
+    //Se toma si no existe o ya vencio; si otra instancia lo tiene, el upsert choca con su _id
+    Mono<Boolean> acquire() {
+        Date now = new Date();
+        Query held = new Query(Criteria.where("_id").is(LOCK).and("until").lte(now));
+        Update take = new Update().set("owner", owner).set("until", new Date(now.getTime() + lease.toMillis()));
+
+        return template.upsert(held, take, LOCKS)
+                .thenReturn(true)
+                .onErrorReturn(DuplicateKeyException.class, false);
+    }
+
+    private Mono<Void> release() {
+        return template.updateFirst(new Query(Criteria.where("_id").is(LOCK).and("owner").is(owner)),
+                        new Update().set("until", new Date()), LOCKS)
+                .then();
+    }
+
+    public Mono<Long> archive() {
+        if (!running.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+
+        Date cutoff = InvoiceConverters.toDate(partitions.cutoff());
+        //Las facturas que la migracion aun no completo no tienen issuedAt: se usa la fecha del ObjectId
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("issuedAt").lt(cutoff),
+                Criteria.where("issuedAt").exists(false).and("_id").lt(new ObjectId(cutoff))
+        )).with(Sort.by("_id")).limit(batchSize);
+
+        //Cada lote sale de invoices, asi que la misma consulta trae el siguiente
+        return partitions.refresh()
+                .thenMany(template.find(Query.of(query), Document.class, InvoicePartitions.HOT)
+                        .collectList()
+                        .flatMap(batch -> move(batch).thenReturn(batch.size()))
+                        .repeat()
+                        .takeUntil(size -> size < batchSize))
+                .reduce(0L, Long::sum)
+                //Un rebuild de los resumenes en paralelo puede volver a escribir los de facturas ya movidas
+                .flatMap(count -> template.remove(new Query(Criteria.where("issuedAt").lt(cutoff)), SUMMARIES)
+                        .thenReturn(count))
+                .doFinally(signal -> running.set(false));
+    }
+
+    private Mono<Void> move(List<Document> batch) {
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+
+        //La copia archivada siempre lleva issuedAt, que es por donde se consultan las particiones; la marca
+        //puede venir de un lote que se corto antes de borrar y no se copia
+        batch.forEach(document -> {
+            document.put("issuedAt", InvoiceConverters.toDate(InvoiceConverters.issuedAt(document)));
+            document.remove(ARCHIVED);
+        });
+
+        Map<String, List<Document>> byMonth = batch.stream().collect(Collectors.groupingBy(
+                document -> InvoicePartitions.collection(InvoiceConverters.issuedAt(document)),
+                TreeMap::new,
+                Collectors.toList()
+        ));
+        List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+
+        return Flux.fromIterable(byMonth.entrySet())
+                .concatMap(entry -> copy(entry.getKey(), entry.getValue()))
+                .then(index(byMonth))
+                .then(removeFromHot(ids))
+                .then(template.getCollection(SUMMARIES)
+                        .flatMap(collection -> Mono.from(collection.deleteMany(Filters.in("_id", ids)))))
+                .then();
+    }
+
+    //Primero la marca y despues el borrado: en el change stream el update con ARCHIVED llega antes que el delete
+    private Mono<Void> removeFromHot(List<Object> ids) {
+        Bson batch = Filters.in("_id", ids);
+        return template.getCollection(InvoicePartitions.HOT)
+                .flatMap(collection -> Mono.from(collection.updateMany(batch, Updates.set(ARCHIVED, new Date())))
+                        .then(Mono.from(collection.deleteMany(Filters.and(batch, Filters.exists(ARCHIVED))))))
+                .then();
+    }
+
+    private Mono<Void> index(Map<String, List<Document>> byMonth) {
+        List<WriteModel<Document>> entries = new ArrayList<>();
+        byMonth.forEach((partition, documents) -> {
+            for (Document document : documents) {
+                Object id = document.get("_id");
+                String hex = id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+                if (!InvoicePartitions.predicted(hex).contains(partition)) {
+                    entries.add(new ReplaceOneModel<>(Filters.eq("_id", id),
+                            new Document("_id", id).append("partition", partition), new ReplaceOptions().upsert(true)));
+                }
+            }
+        });
+
+        if (entries.isEmpty()) {
+            return Mono.empty();
+        }
+        return template.getCollection(InvoicePartitions.INDEX)
+                .flatMap(collection -> Mono.from(collection.bulkWrite(entries, new BulkWriteOptions().ordered(false))))
+                .then();
+    }
+
+    private Mono<Void> copy(String partition, List<Document> documents) {
+        List<WriteModel<Document>> upserts = documents.stream()
+                .<WriteModel<Document>>map(document -> new ReplaceOneModel<>(
+                        Filters.eq("_id", document.get("_id")), document, new ReplaceOptions().upsert(true)))
+                .toList();
+
+        //Las particiones nuevas se crean con el indice para las consultas por fecha
+        Mono<Void> prepare = partitions.isKnown(partition)
+                ? Mono.empty()
+                : template.indexOps(partition).ensureIndex(new Index("issuedAt", Sort.Direction.ASC))
+                        .doOnNext(name -> partitions.register(partition))
+                        .then();
+
+        return prepare
+                .then(template.getCollection(partition)
+                        .flatMap(collection -> Mono.from(collection.bulkWrite(upserts, new BulkWriteOptions().ordered(false)))))
+                .then();
+    }
+}
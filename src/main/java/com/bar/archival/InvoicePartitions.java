@@ -0,0 +1,183 @@
+package com.bar.archival;
+
+import com.bar.model.Invoice;
+import com.bar.query.FieldSelection;
+import com.bar.repo.convert.InvoiceConverters;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Las facturas activas estan en invoices; las de meses anteriores al corte se mueven a una
+ * coleccion por mes de emision (invoices_2024_03). Aqui se decide en que colecciones buscar,
+ * de modo que las consultas del dia a dia solo tocan invoices.
+ * Por id, la particion se deduce de la fecha del ObjectId. Las facturas archivadas cuyo id no la
+ * predice (ids que no son ObjectId, o un issuedAt de otro mes) quedan anotadas en
+ * invoice_partition_index con su particion.
+ * Las particiones conocidas se guardan en memoria; las puede crear el archivador de otra instancia,
+ * asi que si se busca un mes anterior al corte que no esta se vuelven a listar las colecciones.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvoicePartitions {
+
+    public static final String HOT = "invoices";
+    //{ _id: id de la factura, partition }
+    public static final String INDEX = "invoice_partition_index";
+
+    private static final String PREFIX = HOT + "_";
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+    //El ObjectId se genera al insertar, un instante despues de fijar issuedAt
+    private static final Duration ID_SKEW = Duration.ofMinutes(1);
+
+    private final ReactiveMongoTemplate template;
+
+    //Particiones que ya existen; solo se consultan esas (ver known)
+    private final Set<String> archived = ConcurrentHashMap.newKeySet();
+
+    @Value("${archival.invoices.months:12}")
+    private int months;
+
+    //Entre dos listados por un mes que falta: un id inventado con fecha vieja no lista en cada peticion
+    @Value("${archival.invoices.refresh-interval:1m}")
+    private Duration refreshInterval;
+
+    private volatile Instant refreshedAt = Instant.EPOCH;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        refresh().subscribe(
+                count -> log.debug("Particiones de facturas archivadas: {}", count),
+                e -> log.warn("No se pudieron listar las particiones de facturas", e)
+        );
+    }
+
+    public Mono<Integer> refresh() {
+        return template.getCollectionNames()
+                .filter(name -> name.startsWith(PREFIX) && isMonth(name.substring(PREFIX.length())))
+                .collectList()
+                .map(names -> {
+                    refreshedAt = Instant.now();
+                    archived.addAll(names);
+                    return archived.size();
+                });
+    }
+
+    //Las facturas emitidas antes de esta fecha se archivan
+    public LocalDateTime cutoff() {
+        return YearMonth.now().minusMonths(months).atDay(1).atStartOfDay();
+    }
+
+    public static String collection(YearMonth month) {
+        return PREFIX + month.format(MONTH);
+    }
+
+    public static String collection(LocalDateTime issuedAt) {
+        return collection(YearMonth.from(issuedAt));
+    }
+
+    boolean isKnown(String collection) {
+        return archived.contains(collection);
+    }
+
+    void register(String collection) {
+        archived.add(collection);
+    }
+
+    //Colecciones que pueden tener facturas emitidas en [from, to): invoices y las particiones de esos meses
+    public Mono<List<String>> collections(LocalDateTime from, LocalDateTime to) {
+        List<String> months = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(from); month.atDay(1).atStartOfDay().isBefore(to); month = month.plusMonths(1)) {
+            months.add(collection(month));
+        }
+
+        return known(months).map(partitions -> {
+            List<String> result = new ArrayList<>();
+            result.add(HOT);
+            result.addAll(partitions);
+            return result;
+        });
+    }
+
+    public Flux<Invoice> findIssued(LocalDateTime from, LocalDateTime to) {
+        Query query = new Query(Criteria.where("issuedAt").gte(from).lt(to)).with(Sort.by("id"));
+
+        return collections(from, to)
+                .flatMapIterable(collections -> collections)
+                .concatMap(collection -> template.find(Query.of(query), Invoice.class, collection));
+    }
+
+    public Mono<Invoice> findArchived(String id) {
+        return findArchived(id, FieldSelection.ALL);
+    }
+
+    public Mono<Invoice> findArchived(String id, FieldSelection fields) {
+        Query query = fields.applyTo(new Query(Criteria.where("id").is(id)));
+        //Lo que dice el indice vale aunque esta instancia no conozca la particion
+        return known(predicted(id))
+                .flatMapIterable(candidates -> candidates)
+                .concatMap(collection -> template.findOne(Query.of(query), Invoice.class, collection))
+                .next()
+                .switchIfEmpty(Mono.defer(() -> template.findOne(
+                                new Query(Criteria.where("_id").is(InvoiceConverters.toObjectId(id))), Document.class, INDEX)
+                        .map(entry -> entry.getString("partition"))
+                        .flatMap(collection -> template.findOne(Query.of(query), Invoice.class, collection))));
+    }
+
+    //Las que existen entre las dadas. Si falta un mes anterior al corte se listan de nuevo las colecciones
+    //(como mucho una vez por refresh-interval); los meses posteriores no tienen particion
+    private Mono<List<String>> known(Collection<String> collections) {
+        String cutoff = collection(cutoff());
+        boolean missing = collections.stream()
+                .anyMatch(name -> name.compareTo(cutoff) < 0 && !archived.contains(name));
+        boolean stale = Instant.now().isAfter(refreshedAt.plus(refreshInterval));
+
+        return (missing && stale ? refresh().then() : Mono.<Void>empty())
+                .then(Mono.fromSupplier(() -> collections.stream().filter(archived::contains).toList()));
+    }
+
+    //Particiones que se deducen del id: el mes del ObjectId y el anterior si cae justo en el borde
+    static Set<String> predicted(String id) {
+        Set<String> candidates = new LinkedHashSet<>();
+        if (id != null && ObjectId.isValid(id)) {
+            LocalDateTime created = LocalDateTime.ofInstant(new ObjectId(id).getDate().toInstant(), ZoneId.systemDefault());
+            candidates.add(collection(created));
+            candidates.add(collection(created.minus(ID_SKEW)));
+        }
+        return candidates;
+    }
+
+    private static boolean isMonth(String suffix) {
+        try {
+            YearMonth.parse(suffix, MONTH);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.bar.cache;
+
+import com.bar.dto.DishDTO;
+import com.bar.event.DishChangedEvent;
+import com.bar.service.IDishService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copia serializada (JSON y gzip) del listado de platos que se sirve en GET /dishes.
+ * Se reconstruye en segundo plano cuando cambia un plato; mientras tanto se sigue
+ * sirviendo la copia anterior.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DishMenuCache {
+
+    private final IDishService service;
+    @Qualifier("defaultMapper")
+    private final ModelMapper modelMapper;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicInteger pendingRebuilds = new AtomicInteger();
+
+    public Mono<Snapshot> get() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            return Mono.just(snapshot);
+        }
+
+        //Primera peticion: si otra reconstruccion termina antes, se respeta la suya
+        return build().map(built -> current.compareAndSet(null, built) ? built : current.get());
+    }
+
+    @EventListener
+    public void onDishChanged(DishChangedEvent event) {
+        refresh();
+    }
+
+    public void refresh() {
+        if (pendingRebuilds.getAndIncrement() == 0) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        build()
+                .doFinally(signal -> {
+                    //Llegaron escrituras durante la reconstruccion: se vuelve a construir una sola vez
+                    if (pendingRebuilds.getAndSet(0) > 1) {
+                        refresh();
+                    }
+                })
+                .subscribe(current::set, e -> log.warn("No se pudo reconstruir el menu de platos", e));
+    }
+
+    private Mono<Snapshot> build() {
+        return service.findAll()
+                .map(e -> modelMapper.map(e, DishDTO.class))
+                .collectList()
+                .publishOn(Schedulers.boundedElastic())
+                .map(this::serialize);
+    }
+
+    private Snapshot serialize(List<DishDTO> dishes) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dishes);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + json.length + "\"";
+
+            return new Snapshot(json, out.toByteArray(), etag);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record Snapshot(byte[] json, byte[] gzip, String etag) {
+    }
+}
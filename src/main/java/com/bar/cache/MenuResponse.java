@@ -0,0 +1,77 @@
+package com.bar.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Respuesta de GET /dishes a partir de la copia serializada del menu: 304 si el ETag coincide y,
+ * si no, el JSON o su version gzip segun Accept-Encoding. La usan DishController y DishHandler
+ * para que las dos rutas respondan lo mismo.
+ */
+public record MenuResponse(HttpStatus status, HttpHeaders headers, byte[] body) {
+
+    public static MenuResponse of(DishMenuCache.Snapshot snapshot, HttpHeaders request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(snapshot.etag());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+        if (request.getIfNoneMatch().contains(snapshot.etag())) {
+            return new MenuResponse(HttpStatus.NOT_MODIFIED, headers, null);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (acceptsGzip(request.get(HttpHeaders.ACCEPT_ENCODING))) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new MenuResponse(HttpStatus.OK, headers, snapshot.gzip());
+        }
+        return new MenuResponse(HttpStatus.OK, headers, snapshot.json());
+    }
+
+    //gzip si el cliente lo acepta (q > 0) y no prefiere identity; * cuenta para lo que no se nombra
+    static boolean acceptsGzip(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzip = null;
+        Double identity = null;
+        Double any = null;
+        for (String value : acceptEncoding) {
+            for (String element : value.split(",")) {
+                String[] params = element.split(";");
+                String coding = params[0].trim().toLowerCase(Locale.ROOT);
+                double quality = quality(params);
+                switch (coding) {
+                    case "gzip", "x-gzip" -> gzip = gzip == null ? quality : Math.max(gzip, quality);
+                    case "identity" -> identity = quality;
+                    case "*" -> any = quality;
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        double gzipQuality = gzip != null ? gzip : any != null ? any : 0;
+        //Sin identity en la cabecera no hay preferencia por el JSON sin comprimir
+        return gzipQuality > 0 && (identity == null || gzipQuality >= identity);
+    }
+
+    //Un q mal formado se toma como 0: no se responde con una codificacion que no se pidio bien
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
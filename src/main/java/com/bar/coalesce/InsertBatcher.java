@@ -0,0 +1,164 @@
+package com.bar.coalesce;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Junta las inserciones concurrentes de documentos nuevos durante una ventana corta
+ * (o hasta maxSize documentos) y las envia en un solo insertAll. Cada llamada recibe
+ * su propio documento guardado o su propio error: si el lote falla se guarda cada
+ * documento por separado. Los ids se asignan antes del insertAll, asi que ese save
+ * reemplaza por id los que el lote alcanzo a escribir en vez de insertarlos otra vez.
+ * Solo se agrupan entidades con id String u ObjectId.
+ */
+@Slf4j
+public class InsertBatcher<T> {
+
+    //Lotes que pueden estar escribiendose a la vez
+    private static final int CONCURRENT_BATCHES = 4;
+
+    private final boolean enabled;
+    private final MongoPersistentEntity<?> entity;
+    private final MongoPersistentProperty idProperty;
+    private final ReactiveMongoTemplate template;
+    private final DistributionSummary batchSizes;
+    private final Disposable subscription;
+    //FluxSink admite next() desde varios hilos: los encola en vez de fallar
+    private FluxSink<Pending<T>> queue;
+    //Llamadas sin respuesta todavia: si la escritura por lotes se detiene se les responde con error
+    private final Set<Pending<T>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean terminated;
+
+    InsertBatcher(boolean enabled, MongoPersistentEntity<?> entity, ReactiveMongoTemplate template,
+                  int maxSize, Duration window, DistributionSummary batchSizes) {
+        MongoPersistentProperty id = entity.getIdProperty();
+        this.enabled = enabled && id != null && (id.getType() == String.class || id.getType() == ObjectId.class);
+        this.entity = entity;
+        this.idProperty = id;
+        this.template = template;
+        this.batchSizes = batchSizes;
+        this.subscription = !this.enabled ? null : Flux.<Pending<T>>create(sink -> this.queue = sink)
+                //fairBackpressure: los lotes esperan si ya hay CONCURRENT_BATCHES escribiendose
+                .bufferTimeout(maxSize, window, true)
+                .flatMap(this::write, CONCURRENT_BATCHES)
+                .subscribe(null, e -> {
+                    log.error("Se detuvo la escritura por lotes de " + entity.getName(), e);
+                    terminate(e);
+                }, () -> terminate(null));
+    }
+
+    //Solo se agrupan documentos nuevos; las actualizaciones van directo a save
+    public boolean accepts(T document) {
+        return enabled && entity.isNew(document);
+    }
+
+    public Mono<T> insert(T document) {
+        return Mono.defer(() -> {
+            Pending<T> call = new Pending<>(document);
+            //Se registra antes de mirar terminated: o lo ve terminate() o lo rechaza esta llamada
+            pending.add(call);
+            if (terminated) {
+                fail(call, stopped(null));
+            } else {
+                queue.next(call);
+            }
+            return call.result.asMono();
+        });
+    }
+
+    void dispose() {
+        if (subscription != null) {
+            queue.complete();
+        }
+    }
+
+    private Mono<Void> write(List<Pending<T>> batch) {
+        batchSizes.record(batch.size());
+
+        if (batch.size() == 1) {
+            return writeOne(batch.get(0));
+        }
+
+        List<T> documents = batch.stream().map(call -> assignId(call.document)).toList();
+
+        return template.insertAll(documents)
+                .collectList()
+                .doOnNext(saved -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        succeed(batch.get(i), saved.get(i));
+                    }
+                })
+                .then()
+                .onErrorResume(e -> {
+                    //Tras un fallo parcial o un timeout no se sabe cuales se escribieron: save va por id
+                    //(upsert), asi que los que ya estan se reemplazan por si mismos y no se duplican
+                    log.debug("Fallo el lote de {} documentos, se guardan uno a uno", batch.size(), e);
+                    return Flux.fromIterable(batch).flatMap(this::writeOne).then();
+                });
+    }
+
+    private Mono<Void> writeOne(Pending<T> call) {
+        return template.save(call.document)
+                .doOnNext(saved -> succeed(call, saved))
+                .doOnError(e -> fail(call, e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    //El mismo id que generaria MongoDB; un id String con formato de ObjectId se guarda como ObjectId
+    private T assignId(T document) {
+        PersistentPropertyAccessor<T> accessor = entity.getPropertyAccessor(document);
+        if (accessor.getProperty(idProperty) == null) {
+            ObjectId id = new ObjectId();
+            accessor.setProperty(idProperty, idProperty.getType() == String.class ? id.toHexString() : id);
+        }
+        return accessor.getBean();
+    }
+
+    private void succeed(Pending<T> call, T saved) {
+        pending.remove(call);
+        call.result.tryEmitValue(saved);
+    }
+
+    private void fail(Pending<T> call, Throwable e) {
+        pending.remove(call);
+        call.result.tryEmitError(e);
+    }
+
+    private void terminate(Throwable cause) {
+        terminated = true;
+        for (Pending<T> call : pending) {
+            fail(call, stopped(cause));
+        }
+    }
+
+    private IllegalStateException stopped(Throwable cause) {
+        return new IllegalStateException("La escritura por lotes de " + entity.getName() + " esta detenida", cause);
+    }
+
+    //Igualdad por identidad: dos documentos nuevos iguales son dos llamadas distintas
+    private static final class Pending<T> {
+
+        private final T document;
+        private final Sinks.One<T> result = Sinks.one();
+
+        private Pending(T document) {
+            this.document = document;
+        }
+    }
+}
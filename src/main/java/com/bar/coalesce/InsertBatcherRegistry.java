@@ -0,0 +1,58 @@
+package com.bar.coalesce;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Crea los InsertBatcher de cada recurso. Configuracion: write-batching.enabled (apagado por defecto),
+ * write-batching.window y write-batching.max-size. El tamaño de los lotes se publica como
+ * el histograma write.batch.size con la etiqueta resource.
+ */
+@Component
+@RequiredArgsConstructor
+public class InsertBatcherRegistry {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final ReactiveMongoTemplate template;
+
+    private final List<InsertBatcher<?>> batchers = new CopyOnWriteArrayList<>();
+
+    public <T> InsertBatcher<T> create(Class<T> type, String resource) {
+        boolean enabled = environment.getProperty("write-batching.enabled", Boolean.class, false);
+        Duration window = environment.getProperty("write-batching.window", Duration.class, Duration.ofMillis(2));
+        int maxSize = environment.getProperty("write-batching.max-size", Integer.class, 64);
+
+        DistributionSummary sizes = DistributionSummary.builder("write.batch.size")
+                .tag("resource", resource)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) maxSize)
+                .register(meterRegistry);
+
+        InsertBatcher<T> batcher = new InsertBatcher<>(
+                enabled,
+                template.getConverter().getMappingContext().getRequiredPersistentEntity(type),
+                template,
+                maxSize,
+                window,
+                sizes
+        );
+        batchers.add(batcher);
+        return batcher;
+    }
+
+    @PreDestroy
+    public void dispose() {
+        batchers.forEach(InsertBatcher::dispose);
+    }
+}
@@ -0,0 +1,66 @@
+package com.bar.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Une las llamadas concurrentes con la misma clave: mientras la primera esta en curso
+ * las siguientes se suscriben a su mismo Mono en vez de repetir la consulta.
+ * Todos reciben la misma instancia del resultado. La entrada se quita al terminar,
+ * asi que no es una cache: una llamada posterior vuelve a ejecutarse.
+ */
+public class SingleFlight<K, V> {
+
+    private final boolean enabled;
+    private final Counter executed;
+    private final Counter coalesced;
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    SingleFlight(boolean enabled, Counter executed, Counter coalesced) {
+        this.enabled = enabled;
+        this.executed = executed;
+        this.coalesced = coalesced;
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+
+        return Mono.defer(() -> {
+            Mono<V> current = inFlight.get(key);
+            if (current == null) {
+                Mono<V> created = create(key, call);
+                current = inFlight.putIfAbsent(key, created);
+                if (current == null) {
+                    executed.increment();
+                    return created;
+                }
+            }
+
+            coalesced.increment();
+            return current;
+        });
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private Mono<V> create(K key, Supplier<Mono<V>> call) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+
+        //share(): si todos los suscriptores cancelan se cancela la consulta
+        Mono<V> shared = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .share();
+
+        self.set(shared);
+        return shared;
+    }
+}
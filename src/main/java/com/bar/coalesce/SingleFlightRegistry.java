@@ -0,0 +1,46 @@
+package com.bar.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea los SingleFlight de cada operacion. Se activan o desactivan con
+ * coalescing.{operacion}.enabled y publican singleflight.calls (executed / coalesced)
+ * y singleflight.inflight con las etiquetas operation y resource.
+ */
+@Component
+@RequiredArgsConstructor
+public class SingleFlightRegistry {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    public <K, V> SingleFlight<K, V> create(String operation, String resource) {
+        boolean enabled = environment.getProperty("coalescing." + operation + ".enabled", Boolean.class, true);
+
+        SingleFlight<K, V> flight = new SingleFlight<>(
+                enabled,
+                counter(operation, resource, "executed"),
+                counter(operation, resource, "coalesced")
+        );
+
+        Gauge.builder("singleflight.inflight", flight, SingleFlight::size)
+                .tag("operation", operation)
+                .tag("resource", resource)
+                .register(meterRegistry);
+
+        return flight;
+    }
+
+    private Counter counter(String operation, String resource, String outcome) {
+        return Counter.builder("singleflight.calls")
+                .tag("operation", operation)
+                .tag("resource", resource)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
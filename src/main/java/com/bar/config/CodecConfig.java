@@ -0,0 +1,177 @@
+package com.bar.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolverBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Formatos binarios ademas de JSON, elegidos por Accept y Content-Type en todos los controladores:
+ * application/cbor y application/x-jackson-smile (y application/stream+x-jackson-smile para
+ * recibir los listados elemento por elemento). Usan la misma configuracion de Jackson que el JSON.
+ */
+@Configuration
+public class CodecConfig implements WebFluxConfigurer {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    public static final MediaType SMILE_STREAM = new MediaType("application", "stream+x-jackson-smile");
+
+    @Bean
+    public CodecCustomizer binaryCodecCustomizer(ObjectProvider<Jackson2ObjectMapperBuilder> builders) {
+        ObjectMapper cbor = builders.getObject().factory(new CBORFactory()).build();
+        ObjectMapper smile = builders.getObject().factory(new SmileFactory()).build();
+
+        //Los tipos van explicitos: sin ellos estos codecs tambien se anuncian como application/json
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new SmileEncoder(smile));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile, SMILE, SMILE_STREAM));
+            configurer.customCodecs().register(new CborEncoder(cbor));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+        };
+    }
+
+    //Sin Accept o con */* se responde JSON; si no, el primer codec registrado (CBOR) ganaria
+    @Override
+    public void configureContentTypeResolver(RequestedContentTypeResolverBuilder builder) {
+        builder.headerResolver();
+        builder.fixedResolver(MediaType.APPLICATION_JSON);
+    }
+
+    //El encoder de Spring no escribe flujos en CBOR: un listado se envia como un solo arreglo (ver encodeArray)
+    static class CborEncoder extends Jackson2CborEncoder {
+
+        CborEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        //Los comodines los resuelve la negociacion (JSON); aqui solo CBOR pedido de forma explicita
+        @Override
+        public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+            if (mimeType != null && (mimeType.isWildcardType() || mimeType.isWildcardSubtype())) {
+                return false;
+            }
+            return super.canEncode(elementType, mimeType);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            return encodeArray(this, input, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    //Fuera de application/stream+x-jackson-smile, Spring separa los elementos con '[' ',' ']' de JSON
+    static class SmileEncoder extends Jackson2SmileEncoder {
+
+        SmileEncoder(ObjectMapper mapper) {
+            super(mapper, SMILE, SMILE_STREAM);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (mimeType != null && SMILE_STREAM.isCompatibleWith(mimeType)) {
+                return super.encode(input, bufferFactory, elementType, mimeType, hints);
+            }
+            return encodeArray(this, input, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    //Un listado se escribe como un arreglo de longitud indefinida: cada elemento sale en cuanto llega,
+    //sin juntar la lista entera en memoria
+    private static Flux<DataBuffer> encodeArray(AbstractJackson2Encoder encoder, Publisher<?> input,
+                                                DataBufferFactory bufferFactory, ResolvableType elementType,
+                                                MimeType mimeType, Map<String, Object> hints) {
+        if (input instanceof Mono) {
+            return Mono.from(input)
+                    .map(value -> encoder.encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+
+        ObjectMapper mapper = encoder.getObjectMapper();
+        ObjectWriter writer = mapper.writerFor(mapper.constructType(elementType.getType()));
+        return Flux.using(
+                () -> new ArrayWriter(writer),
+                array -> Flux.concat(
+                        Mono.fromCallable(() -> bufferFactory.wrap(array.start())),
+                        Flux.from(input).map(value -> bufferFactory.wrap(array.write(value))),
+                        Mono.fromCallable(() -> bufferFactory.wrap(array.end()))
+                ),
+                ArrayWriter::close
+        );
+    }
+
+    //El generador de Jackson sobre un buffer que se vacia tras cada elemento
+    private static final class ArrayWriter {
+
+        private final ObjectWriter writer;
+        private final ByteArrayBuilder out = new ByteArrayBuilder();
+        private final JsonGenerator generator;
+
+        ArrayWriter(ObjectWriter writer) throws IOException {
+            this.writer = writer;
+            //Smile escribe aqui su cabecera
+            this.generator = writer.createGenerator(out);
+        }
+
+        byte[] start() throws IOException {
+            generator.writeStartArray();
+            return drain();
+        }
+
+        byte[] write(Object value) {
+            try {
+                writer.writeValue(generator, value);
+                return drain();
+            } catch (IOException e) {
+                throw new EncodingException("No se pudo escribir " + value.getClass().getSimpleName(), e);
+            }
+        }
+
+        byte[] end() throws IOException {
+            generator.writeEndArray();
+            return drain();
+        }
+
+        void close() {
+            try {
+                generator.close();
+            } catch (IOException ignored) {
+                //Solo libera el buffer; lo escrito ya se envio
+            }
+        }
+
+        private byte[] drain() throws IOException {
+            generator.flush();
+            byte[] bytes = out.toByteArray();
+            out.reset();
+            return bytes;
+        }
+    }
+}
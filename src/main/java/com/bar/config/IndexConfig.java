@@ -0,0 +1,35 @@
+package com.bar.config;
+
+import com.bar.query.ResourceFields;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+//Crea los indices que respaldan los campos filtrables y ordenables de ResourceFields
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class IndexConfig {
+
+    private final ReactiveMongoTemplate template;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        Flux.fromIterable(List.of(ResourceFields.CLIENT, ResourceFields.DISH, ResourceFields.INVOICE, ResourceFields.INVOICE_SUMMARY))
+                .flatMap(resource -> Flux.fromIterable(resource.indexedProperties())
+                        .flatMap(property -> template.indexOps(resource.entityType())
+                                .ensureIndex(new Index(property, Sort.Direction.ASC))))
+                .subscribe(
+                        name -> log.debug("Indice verificado: {}", name),
+                        e -> log.warn("No se pudieron crear los indices", e)
+                );
+    }
+}
@@ -1,8 +1,10 @@
 package com.bar.config;
 
 import com.bar.dto.ClientDTO;
+import com.bar.dto.DishDTO;
 import com.bar.dto.InvoiceDTO;
 import com.bar.model.Client;
+import com.bar.model.Dish;
 import com.bar.model.Invoice;
 import org.modelmapper.ModelMapper;
 import org.modelmapper.convention.MatchingStrategies;
@@ -60,6 +62,13 @@ public class MapperConfig {
                 .addMapping(e -> e.getClient().getFirstName(), (dest, v) -> dest.getClient().setName((String) v))
                 .addMapping(e -> e.getClient().getLastName(), (dest, v) -> dest.getClient().setSurname((String) v));
 
+        //Platos guardados en la factura (nombre, precio y categoria al momento de la venta)
+        mapper.createTypeMap(Dish.class, DishDTO.class)
+                .addMapping(Dish::getName, (dest, v) -> dest.setNameDish((String) v))
+                .addMapping(Dish::getPrice, (dest, v) -> dest.setPriceDish((Double) v))
+                .addMapping(Dish::getStatus, (dest, v) -> dest.setStatusDish((Boolean) v))
+                .addMapping(Dish::getCategory, (dest, v) -> dest.setCategoryDish((String) v));
+
         return mapper;
     }
 }
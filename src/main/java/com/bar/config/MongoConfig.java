@@ -1,14 +1,20 @@
 package com.bar.config;
 
+import com.bar.repo.convert.InvoiceConverters;
+import com.bar.repo.impl.GenericRepoImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
 
 @Configuration
 @RequiredArgsConstructor
+@EnableReactiveMongoRepositories(basePackages = "com.bar.repo", repositoryBaseClass = GenericRepoImpl.class)
 public class MongoConfig implements InitializingBean {
 
     @Lazy
@@ -18,4 +24,10 @@ public class MongoConfig implements InitializingBean {
     public void afterPropertiesSet() throws Exception {
         converter.setTypeMapper(new DefaultMongoTypeMapper(null));
     }
+
+    //static: el converter depende de este bean y esta clase depende del converter
+    @Bean
+    public static MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(InvoiceConverters.all());
+    }
 }
@@ -0,0 +1,53 @@
+package com.bar.config;
+
+import com.bar.dto.ClientDTO;
+import com.bar.dto.DishDTO;
+import com.bar.dto.InvoiceDTO;
+import com.bar.dto.InvoiceDetailDTO;
+import com.bar.feed.OrderEvent;
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.model.InvoiceSummary;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * Lo que la imagen nativa no descubre sola (mvn -Pnative native:compile):
+ * <ul>
+ *     <li>ModelMapper recorre getters, setters y constructores de modelos y DTOs por reflexion; los de Lombok
+ *     se generan al compilar y no aparecen en ninguna firma que Spring analice.</li>
+ *     <li>JasperReports lee facturas.jrxml y sus propiedades y extensiones del classpath.</li>
+ * </ul>
+ * Ver README: los TypeMap explicitos de MapperConfig y la compilacion del jrxml generan clases en
+ * ejecucion, asi que la imagen nativa es experimental.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> MAPPED = List.of(
+            Client.class, Dish.class, Invoice.class, InvoiceDetail.class, InvoiceSummary.class,
+            ClientDTO.class, DishDTO.class, InvoiceDTO.class, InvoiceDetailDTO.class, OrderEvent.class
+    );
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : MAPPED) {
+            hints.reflection().registerType(type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+
+        hints.resources()
+                .registerPattern("facturas.jrxml")
+                .registerPattern("templates/receipt.html")
+                .registerPattern("jasperreports_extension.properties")
+                .registerPattern("default.jasperreports.properties")
+                .registerPattern("net/sf/jasperreports/*.properties")
+                .registerPattern("net/sf/jasperreports/**/*.xml");
+    }
+}
@@ -0,0 +1,22 @@
+package com.bar.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+@EnableScheduling
+public class ReportConfig {
+
+    //JasperReports bloquea: el llenado y la exportacion se hacen en este pool, no en los hilos de Netty ni del driver
+    @Bean(destroyMethod = "dispose")
+    public Scheduler reportScheduler(
+            @Value("${report.workers:4}") int workers,
+            @Value("${report.queue-size:1000}") int queueSize
+    ) {
+        return Schedulers.newBoundedElastic(workers, queueSize, "report");
+    }
+}
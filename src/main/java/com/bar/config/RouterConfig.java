@@ -0,0 +1,31 @@
+package com.bar.config;
+
+import com.bar.handler.DishHandler;
+import com.bar.handler.InvoiceHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Rutas funcionales para las lecturas mas frecuentes. Se evaluan antes que los controladores,
+ * asi que con functional-routes.enabled=false vuelven a atenderlas DishController e InvoiceController.
+ */
+@Configuration
+@ConditionalOnProperty(name = "functional-routes.enabled", havingValue = "true", matchIfMissing = true)
+public class RouterConfig {
+
+    //Solo ids con forma de ObjectId: /dishes/pageable, /invoices/summary/... siguen en los controladores
+    private static final String ID = "{id:[0-9a-fA-F]{24}}";
+
+    @Bean
+    public RouterFunction<ServerResponse> hotRoutes(DishHandler dishHandler, InvoiceHandler invoiceHandler) {
+        return RouterFunctions.route()
+                .GET("/dishes", dishHandler::findAll)
+                .GET("/dishes/" + ID, dishHandler::findById)
+                .GET("/invoices/" + ID, invoiceHandler::findById)
+                .build();
+    }
+}
@@ -3,8 +3,12 @@ package com.bar.controller;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.bar.dto.ClientDTO;
+import com.bar.hateoas.LinkTemplates;
 import com.bar.model.Client;
 import com.bar.pagination.PageSupport;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
+import com.bar.query.ResourceFields;
 import com.bar.service.IClientService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,7 +18,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
-import org.springframework.http.MediaType;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -40,24 +44,30 @@ public class ClientController {
     @Qualifier("clientMapper")
     private final ModelMapper modelMapper;
     private final Cloudinary cloudinary;
+    private final LinkTemplates links;
 
     @GetMapping
-    public Mono<ResponseEntity<Flux<ClientDTO>>> findAll() {
-        Flux<ClientDTO> fx = service.findAll().map(this::convertToDto);
+    public Mono<ResponseEntity<Flux<ClientDTO>>> findAll(
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "filter", required = false) String filter,
+            @RequestParam(name = "sort", required = false) String sort
+    ) {
+        Flux<ClientDTO> fx = service.query(
+                QueryFilter.parse(filter, sort, ResourceFields.CLIENT),
+                FieldSelection.parse(fields, ResourceFields.CLIENT)
+        ).map(this::convertToDto);
 
         return Mono.just(ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
                 .body(fx)
         ).defaultIfEmpty(ResponseEntity.notFound().build());
 
     }
 
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<ClientDTO>> findById(@PathVariable("id") String id) {
-        return service.findById(id)
+    public Mono<ResponseEntity<ClientDTO>> findById(@PathVariable("id") String id, @RequestParam(name = "fields", required = false) String fields) {
+        return service.findById(id, FieldSelection.parse(fields, ResourceFields.CLIENT))
                 .map(this::convertToDto)
                 .map(e -> ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
@@ -70,7 +80,6 @@ public class ClientController {
                 .map(e -> ResponseEntity.created(
                                         URI.create(req.getURI().toString().concat("/").concat(e.getId()))
                                 )
-                                .contentType(MediaType.APPLICATION_JSON)
                                 .body(e)
                 ).defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -86,7 +95,6 @@ public class ClientController {
                 .map(this::convertToDto)
                 .map(e -> ResponseEntity
                         .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 ).defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -103,11 +111,14 @@ public class ClientController {
                 });
     }
 
+    private static final LinkRelation CLIENT_INFO = LinkRelation.of("client-info");
+
     private ClientDTO clientHateoas;
 
     @GetMapping("/hateoas/{id}")
     public Mono<EntityModel<ClientDTO>> getHateoas(@PathVariable("id") String id) {
-        Mono<Link> monoLink = linkTo(methodOn(ClientController.class).findById(id)).withRel("client-info").toMono();
+        Mono<Link> monoLink = links.link("clients.findById",
+                () -> linkTo(methodOn(ClientController.class).findById(LinkTemplates.ID, null)), id, CLIENT_INFO);
 
         //PRACTICA ES COMUN PERO NO RECOMENDADA
         /*return service.findById(id)
@@ -132,18 +143,28 @@ public class ClientController {
     @GetMapping("/pageable")
     public Mono<ResponseEntity<PageSupport<ClientDTO>>> getPage(
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "2") int size
+            @RequestParam(name = "size", defaultValue = "2") int size,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "filter", required = false) String filter,
+            @RequestParam(name = "sort", required = false) String sort,
+            final ServerHttpRequest req
     ) {
 
-        return service.getPage(PageRequest.of(page, size))
+        return service.getPage(
+                        PageRequest.of(page, size),
+                        QueryFilter.parse(filter, sort, ResourceFields.CLIENT),
+                        FieldSelection.parse(fields, ResourceFields.CLIENT)
+                )
                 .map(pageSupport -> new PageSupport<>(
                         pageSupport.getContent().stream().map(this::convertToDto).toList(),
                         pageSupport.getPageNumber(),
                         pageSupport.getPageSize(),
                         pageSupport.getTotalElements()
                 ))
+                .flatMap(e -> links.withPageLinks("clients.getPage",
+                        () -> linkTo(methodOn(ClientController.class).getPage(LinkTemplates.PAGE, LinkTemplates.SIZE, null, null, null, null)),
+                        e, req))
                 .map(e -> ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
@@ -1,8 +1,16 @@
 package com.bar.controller;
 
+import com.bar.cache.DishMenuCache;
+import com.bar.cache.MenuResponse;
 import com.bar.dto.DishDTO;
+import com.bar.exception.ValidationException;
+import com.bar.hateoas.LinkTemplates;
 import com.bar.model.Dish;
 import com.bar.pagination.PageSupport;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
+import com.bar.query.ResourceFields;
+import com.bar.search.DishNameIndex;
 import com.bar.service.IDishService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +19,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -19,6 +28,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.util.List;
 
 import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
@@ -31,24 +41,43 @@ public class DishController {
     private final IDishService service;
     @Qualifier("defaultMapper")
     private final ModelMapper modelMapper;
+    private final DishMenuCache menuCache;
+    private final DishNameIndex nameIndex;
+    private final LinkTemplates links;
+
+    //La copia serializada es JSON; con Accept CBOR o Smile responde el metodo siguiente
+    @GetMapping(params = {"!fields", "!filter", "!sort"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> findAll(final ServerHttpRequest req) {
+        return menuCache.get()
+                .map(snapshot -> MenuResponse.of(snapshot, req.getHeaders()))
+                .map(menu -> ResponseEntity.status(menu.status())
+                        .headers(menu.headers())
+                        .body(menu.body()))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
 
+    //Con seleccion de campos, filtro u orden no se usa la copia serializada
     @GetMapping
-    public Mono<ResponseEntity<Flux<DishDTO>>> findAll() {
-        Flux<DishDTO> fx = service.findAll().map(this::convertToDto);
+    public Mono<ResponseEntity<Flux<DishDTO>>> findAll(
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "filter", required = false) String filter,
+            @RequestParam(name = "sort", required = false) String sort
+    ) {
+        Flux<DishDTO> fx = service.query(
+                QueryFilter.parse(filter, sort, ResourceFields.DISH),
+                FieldSelection.parse(fields, ResourceFields.DISH)
+        ).map(this::convertToDto);
 
         return Mono.just(ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
                 .body(fx)
         ).defaultIfEmpty(ResponseEntity.notFound().build());
-
     }
 
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<DishDTO>> findById(@PathVariable("id") String id) {
-        return service.findById(id)
+    public Mono<ResponseEntity<DishDTO>> findById(@PathVariable("id") String id, @RequestParam(name = "fields", required = false) String fields) {
+        return service.findById(id, FieldSelection.parse(fields, ResourceFields.DISH))
                 .map(this::convertToDto)
                 .map(e -> ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
@@ -61,7 +90,6 @@ public class DishController {
                 .map(e -> ResponseEntity.created(
                                         URI.create(req.getURI().toString().concat("/").concat(e.getId()))
                                 )
-                                .contentType(MediaType.APPLICATION_JSON)
                                 .body(e)
                 ).defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -77,7 +105,6 @@ public class DishController {
                 .map(this::convertToDto)
                 .map(e -> ResponseEntity
                         .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 ).defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -94,11 +121,14 @@ public class DishController {
                 });
     }
 
+    private static final LinkRelation DISH_INFO = LinkRelation.of("dish-info");
+
     private DishDTO dishHateoas;
 
     @GetMapping("/hateoas/{id}")
     public Mono<EntityModel<DishDTO>> getHateoas(@PathVariable("id") String id) {
-        Mono<Link> monoLink = linkTo(methodOn(DishController.class).findById(id)).withRel("dish-info").toMono();
+        Mono<Link> monoLink = links.link("dishes.findById",
+                () -> linkTo(methodOn(DishController.class).findById(LinkTemplates.ID, null)), id, DISH_INFO);
 
         //PRACTICA ES COMUN PERO NO RECOMENDADA
         /*return service.findById(id)
@@ -123,23 +153,47 @@ public class DishController {
     @GetMapping("/pageable")
     public Mono<ResponseEntity<PageSupport<DishDTO>>> getPage(
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "2") int size
+            @RequestParam(name = "size", defaultValue = "2") int size,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "filter", required = false) String filter,
+            @RequestParam(name = "sort", required = false) String sort,
+            final ServerHttpRequest req
     ){
 
-        return service.getPage(PageRequest.of(page, size))
+        return service.getPage(
+                        PageRequest.of(page, size),
+                        QueryFilter.parse(filter, sort, ResourceFields.DISH),
+                        FieldSelection.parse(fields, ResourceFields.DISH)
+                )
                 .map(pageSupport -> new PageSupport<>(
                         pageSupport.getContent().stream().map(this::convertToDto).toList(),
                         pageSupport.getPageNumber(),
                         pageSupport.getPageSize(),
                         pageSupport.getTotalElements()
                 ))
+                .flatMap(e -> links.withPageLinks("dishes.getPage",
+                        () -> linkTo(methodOn(DishController.class).getPage(LinkTemplates.PAGE, LinkTemplates.SIZE, null, null, null, null)),
+                        e, req))
                 .map(e -> ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/autocomplete")
+    public Mono<ResponseEntity<List<DishDTO>>> autocomplete(
+            @RequestParam(name = "q") String text,
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        if (limit < 1 || limit > 50) {
+            return Mono.error(new ValidationException("limit debe estar entre 1 y 50"));
+        }
+
+        return Mono.just(ResponseEntity.ok()
+                .body(nameIndex.search(text, limit))
+        );
+    }
+
     private DishDTO convertToDto(Dish model) {
         return modelMapper.map(model, DishDTO.class);
     }
@@ -1,24 +1,49 @@
 package com.bar.controller;
 
+import com.bar.dto.ClientDTO;
 import com.bar.dto.InvoiceDTO;
+import com.bar.dto.InvoiceDetailDTO;
+import com.bar.exception.ValidationException;
+import com.bar.export.InvoiceCsvWriter;
+import com.bar.export.InvoiceXlsxWriter;
+import com.bar.feed.OrderFeed;
+import com.bar.hateoas.LinkTemplates;
+import com.bar.model.Dish;
 import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.model.InvoiceSummary;
 import com.bar.pagination.PageSupport;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
+import com.bar.query.ResourceFields;
+import com.bar.report.ReportFormat;
 import com.bar.service.IInvoiceService;
+import com.bar.service.IInvoiceSummaryService;
+import com.bar.timing.RequestTimings;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 
 import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
@@ -29,26 +54,56 @@ import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.met
 public class InvoiceController {
 
     private final IInvoiceService service;
+    private final IInvoiceSummaryService summaryService;
     @Qualifier("invoiceMapper")
     private final ModelMapper modelMapper;
+    private final InvoiceCsvWriter csvWriter;
+    private final InvoiceXlsxWriter xlsxWriter;
+    private final LinkTemplates links;
+    private final OrderFeed orderFeed;
 
+    //Por defecto los listados salen de invoice_summaries (sin lineas); view=full lee las facturas completas.
+    //Los dos solo ven las facturas activas: un filter=issuedAt anterior al corte de archival.invoices.months
+    //no encuentra las archivadas, que se leen por id o en el resumen del dia
     @GetMapping
-    public Mono<ResponseEntity<Flux<InvoiceDTO>>> findAll() {
-        Flux<InvoiceDTO> fx = service.findAll().map(this::convertToDto);
+    public Mono<ResponseEntity<Flux<InvoiceDTO>>> findAll(
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "filter", required = false) String filter,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "view", required = false) String view
+    ) {
+        Flux<InvoiceDTO> fx = isFullView(view)
+                ? service.query(
+                        QueryFilter.parse(filter, sort, ResourceFields.INVOICE),
+                        FieldSelection.parse(fields, ResourceFields.INVOICE)
+                ).map(this::convertToDto)
+                : summaryService.query(
+                        QueryFilter.parse(filter, sort, ResourceFields.INVOICE_SUMMARY),
+                        FieldSelection.parse(fields, ResourceFields.INVOICE_SUMMARY)
+                ).map(this::convertToDto);
 
         return Mono.just(ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
                 .body(fx)
         ).defaultIfEmpty(ResponseEntity.notFound().build());
 
     }
 
+    //Pedidos en vivo para cocina y barra; el navegador manda Last-Event-ID al reconectarse (ver OrderFeed)
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> feed(
+            @RequestParam(name = "category", required = false) String category,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return orderFeed.subscribe(category, status, lastEventId);
+    }
+
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<InvoiceDTO>> findById(@PathVariable("id") String id) {
-        return service.findById(id)
+    public Mono<ResponseEntity<InvoiceDTO>> findById(@PathVariable("id") String id, @RequestParam(name = "fields", required = false) String fields) {
+        return service.findById(id, FieldSelection.parse(fields, ResourceFields.INVOICE))
+                .transform(RequestTimings.stage("find"))
                 .map(this::convertToDto)
                 .map(e -> ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
@@ -61,7 +116,6 @@ public class InvoiceController {
                 .map(e -> ResponseEntity.created(
                                         URI.create(req.getURI().toString().concat("/").concat(e.getId()))
                                 )
-                                .contentType(MediaType.APPLICATION_JSON)
                                 .body(e)
                 ).defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -77,7 +131,6 @@ public class InvoiceController {
                 .map(this::convertToDto)
                 .map(e -> ResponseEntity
                         .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 ).defaultIfEmpty(ResponseEntity.notFound().build());
     }
@@ -94,11 +147,51 @@ public class InvoiceController {
                 });
     }
 
+    //Cuenta abierta: operaciones sobre una linea sin reenviar la factura completa; responden solo la linea
+    @PostMapping("/{id}/items")
+    public Mono<ResponseEntity<InvoiceDetailDTO>> addItem(@PathVariable("id") String id, @RequestBody InvoiceDetailDTO dto) {
+        InvoiceDetail item = new InvoiceDetail(dto.getQuantity(),
+                dto.getDish() == null ? null : new Dish(dto.getDish().getId(), null, null, null));
+
+        return service.addItem(id, item)
+                .map(this::convertToDto)
+                .map(e -> ResponseEntity.ok()
+                        .body(e)
+                )
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    //delta positivo o negativo; la cantidad no puede quedar en menos de 1
+    @PatchMapping("/{id}/items/{idDish}")
+    public Mono<ResponseEntity<InvoiceDetailDTO>> changeItemQuantity(
+            @PathVariable("id") String id,
+            @PathVariable("idDish") String idDish,
+            @RequestParam(name = "delta") int delta
+    ) {
+        return service.changeItemQuantity(id, idDish, delta)
+                .map(this::convertToDto)
+                .map(e -> ResponseEntity.ok()
+                        .body(e)
+                )
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}/items/{idDish}")
+    public Mono<ResponseEntity<Void>> removeItem(@PathVariable("id") String id, @PathVariable("idDish") String idDish) {
+        return service.removeItem(id, idDish)
+                .map(result -> result
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    private static final LinkRelation INVOICE_INFO = LinkRelation.of("invoice-info");
+
     private InvoiceDTO invoiceHateoas;
 
     @GetMapping("/hateoas/{id}")
     public Mono<EntityModel<InvoiceDTO>> getHateoas(@PathVariable("id") String id) {
-        Mono<Link> monoLink = linkTo(methodOn(InvoiceController.class).findById(id)).withRel("invoice-info").toMono();
+        Mono<Link> monoLink = links.link("invoices.findById",
+                () -> linkTo(methodOn(InvoiceController.class).findById(LinkTemplates.ID, null)), id, INVOICE_INFO);
 
         //PRACTICA ES COMUN PERO NO RECOMENDADA
         /*return service.findById(id)
@@ -123,34 +216,135 @@ public class InvoiceController {
     @GetMapping("/pageable")
     public Mono<ResponseEntity<PageSupport<InvoiceDTO>>> getPage(
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "2") int size
+            @RequestParam(name = "size", defaultValue = "2") int size,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "filter", required = false) String filter,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "view", required = false) String view,
+            final ServerHttpRequest req
     ){
+        Mono<PageSupport<InvoiceDTO>> result;
+        if (isFullView(view)) {
+            result = service.getPage(
+                            PageRequest.of(page, size),
+                            QueryFilter.parse(filter, sort, ResourceFields.INVOICE),
+                            FieldSelection.parse(fields, ResourceFields.INVOICE)
+                    )
+                    .map(pageSupport -> new PageSupport<>(
+                            pageSupport.getContent().stream().map(this::convertToDto).toList(),
+                            pageSupport.getPageNumber(),
+                            pageSupport.getPageSize(),
+                            pageSupport.getTotalElements()
+                    ));
+        } else {
+            result = summaryService.getPage(
+                            PageRequest.of(page, size),
+                            QueryFilter.parse(filter, sort, ResourceFields.INVOICE_SUMMARY),
+                            FieldSelection.parse(fields, ResourceFields.INVOICE_SUMMARY)
+                    )
+                    .map(pageSupport -> new PageSupport<>(
+                            pageSupport.getContent().stream().map(this::convertToDto).toList(),
+                            pageSupport.getPageNumber(),
+                            pageSupport.getPageSize(),
+                            pageSupport.getTotalElements()
+                    ));
+        }
 
-        return service.getPage(PageRequest.of(page, size))
-                .map(pageSupport -> new PageSupport<>(
-                        pageSupport.getContent().stream().map(this::convertToDto).toList(),
-                        pageSupport.getPageNumber(),
-                        pageSupport.getPageSize(),
-                        pageSupport.getTotalElements()
-                ))
+        return result
+                .flatMap(e -> links.withPageLinks("invoices.getPage",
+                        () -> linkTo(methodOn(InvoiceController.class).getPage(LinkTemplates.PAGE, LinkTemplates.SIZE, null, null, null, null, null)),
+                        e, req))
                 .map(e -> ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
                         .body(e)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/generateReport/{id}")
-    public Mono<ResponseEntity<byte[]>> generateReport(@PathVariable("id") String id) {
-        return service.generateReport(id)
-                .map(bytes -> ResponseEntity
+    public Mono<ResponseEntity<Flux<DataBuffer>>> generateReport(
+            @PathVariable("id") String id,
+            @RequestParam(name = "format", required = false) String format,
+            final ServerHttpRequest req,
+            final ServerHttpResponse res
+    ) {
+        ReportFormat reportFormat = ReportFormat.resolve(format, req.getHeaders().getAccept());
+
+        return service.generateReport(id, reportFormat, res.bufferFactory())
+                .transform(RequestTimings.stage("report"))
+                .map(body -> ResponseEntity
                         .ok()
-                        .contentType(MediaType.APPLICATION_PDF) //APPLICATION_OCTET_STREAM
-                        .body(bytes)
+                        .contentType(reportFormat.getMediaType())
+                        .body(body)
+                )
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/summary/{day}")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> dailySummary(
+            @PathVariable("day") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day
+    ) {
+        return service.findDailySummary(day)
+                .map(body -> ResponseEntity.ok()
+                        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, attachment("summary-" + day + ".csv"))
+                        .body(body)
                 )
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/export/csv")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportCsv(final ServerHttpResponse res) {
+        return Mono.just(ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment("invoices.csv"))
+                .body(csvWriter.write(service.exportLines(), res.bufferFactory()))
+        );
+    }
+
+    @GetMapping("/export/xlsx")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportXlsx(final ServerHttpResponse res) {
+        return Mono.just(ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment("invoices.xlsx"))
+                .body(xlsxWriter.write(service.exportLines(), res.bufferFactory()))
+        );
+    }
+
+    private String attachment(String filename) {
+        return ContentDisposition.attachment().filename(filename).build().toString();
+    }
+
+    private boolean isFullView(String view) {
+        if (view == null || view.isBlank() || "summary".equalsIgnoreCase(view)) {
+            return false;
+        }
+        if ("full".equalsIgnoreCase(view)) {
+            return true;
+        }
+        throw new ValidationException("Vista desconocida: " + view);
+    }
+
+    private InvoiceDTO convertToDto(InvoiceSummary summary) {
+        InvoiceDTO dto = new InvoiceDTO();
+        dto.setId(summary.getId());
+        dto.setDescription(summary.getDescription());
+        dto.setIssuedAt(summary.getIssuedAt());
+        if (summary.getClientId() != null || summary.getClientName() != null || summary.getClientSurname() != null) {
+            ClientDTO client = new ClientDTO();
+            client.setId(summary.getClientId());
+            client.setName(summary.getClientName());
+            client.setSurname(summary.getClientSurname());
+            dto.setClient(client);
+        }
+        dto.setItemCount(summary.getItemCount());
+        //El total del resumen se ajusta con $inc al cambiar lineas
+        dto.setTotal(summary.getTotal() == null ? null : Math.round(summary.getTotal() * 100) / 100.0);
+        return dto;
+    }
+
+    private InvoiceDetailDTO convertToDto(InvoiceDetail model) {
+        return modelMapper.map(model, InvoiceDetailDTO.class);
+    }
 
     private InvoiceDTO convertToDto(Invoice model) {
         return modelMapper.map(model, InvoiceDTO.class);
@@ -28,6 +28,13 @@ public class DishDTO {
     @NotNull
     private Boolean statusDish;
 
+    @Size(max = 30)
+    private String categoryDish;
+
+    public DishDTO(String id, String nameDish, Double priceDish, Boolean statusDish) {
+        this(id, nameDish, priceDish, statusDish, null);
+    }
+
     /*@Email
     @Pattern(regexp = "[0-9]+")*/
 }
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -15,6 +16,11 @@ public class InvoiceDTO {
 
     private String id;
     private String description;
+    //Lo asigna el servidor al crear la factura
+    private LocalDateTime issuedAt;
     private ClientDTO client;
     private List<InvoiceDetailDTO> items;
+    private Double total;
+    //Solo en los listados, que no traen las lineas
+    private Integer itemCount;
 }
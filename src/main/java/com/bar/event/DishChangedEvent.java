@@ -0,0 +1,26 @@
+package com.bar.event;
+
+import com.bar.model.Dish;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DishChangedEvent {
+
+    private String dishId;
+    //null cuando el plato fue eliminado
+    private Dish dish;
+
+    public static DishChangedEvent saved(Dish dish) {
+        return new DishChangedEvent(dish.getId(), dish);
+    }
+
+    public static DishChangedEvent deleted(String dishId) {
+        return new DishChangedEvent(dishId, null);
+    }
+
+    public boolean isDeleted() {
+        return dish == null;
+    }
+}
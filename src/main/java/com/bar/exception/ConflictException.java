@@ -0,0 +1,9 @@
+package com.bar.exception;
+
+//409: otra escritura gano la carrera; el cliente puede reintentar
+public class ConflictException extends DomainException {
+
+    public ConflictException(String message) {
+        super(ErrorType.CONFLICT, message);
+    }
+}
@@ -0,0 +1,27 @@
+package com.bar.exception;
+
+/**
+ * Error esperado del dominio (dato invalido, recurso inexistente, conflicto). Sin stack trace ni
+ * excepciones suprimidas: se crea en cada peticion rechazada y WebExceptionHandler solo usa el tipo y
+ * el mensaje. El cuerpo de la respuesta se arma al crearla, asi que las que tienen mensaje fijo se
+ * pueden guardar en una constante y reusar.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    private final ErrorType type;
+    private final byte[] body;
+
+    protected DomainException(ErrorType type, String message) {
+        super(message, null, false, false);
+        this.type = type;
+        this.body = type.body(message);
+    }
+
+    public ErrorType getType() {
+        return type;
+    }
+
+    byte[] body() {
+        return body;
+    }
+}
@@ -0,0 +1,70 @@
+package com.bar.exception;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Tipos de error con su estado y la plantilla del cuerpo ya armados: la respuesta es
+ * {"message":"...","status":N} (como la de RateLimitFilter) y solo falta escapar el mensaje.
+ * Los estados que no tienen tipo propio responden 418, como antes.
+ */
+public enum ErrorType {
+
+    VALIDATION(HttpStatus.BAD_REQUEST),
+    UNAUTHORIZED(HttpStatus.UNAUTHORIZED),
+    NOT_FOUND(HttpStatus.NOT_FOUND),
+    CONFLICT(HttpStatus.CONFLICT),
+    INTERNAL(HttpStatus.INTERNAL_SERVER_ERROR),
+    OTHER(HttpStatus.I_AM_A_TEAPOT);
+
+    private final HttpStatus status;
+    private final String tag;
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private final byte[] withoutMessage;
+
+    ErrorType(HttpStatus status) {
+        this.status = status;
+        this.tag = name().toLowerCase(Locale.ROOT);
+        this.prefix = "{\"message\":\"".getBytes(StandardCharsets.UTF_8);
+        this.suffix = ("\",\"status\":" + status.value() + "}").getBytes(StandardCharsets.UTF_8);
+        this.withoutMessage = ("{\"message\":null,\"status\":" + status.value() + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public HttpStatus status() {
+        return status;
+    }
+
+    //Tag type de la metrica http.server.errors
+    public String tag() {
+        return tag;
+    }
+
+    public byte[] body(String message) {
+        if (message == null) {
+            return withoutMessage;
+        }
+
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(message);
+        byte[] body = new byte[prefix.length + escaped.length + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        System.arraycopy(escaped, 0, body, prefix.length, escaped.length);
+        System.arraycopy(suffix, 0, body, prefix.length + escaped.length, suffix.length);
+        return body;
+    }
+
+    //Mismo criterio que tenia WebExceptionHandler con el status de getErrorAttributes
+    public static ErrorType of(int status) {
+        return switch (status) {
+            case 400, 422 -> VALIDATION;
+            case 401, 403 -> UNAUTHORIZED;
+            case 404 -> NOT_FOUND;
+            case 409 -> CONFLICT;
+            case 500 -> INTERNAL;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package com.bar.exception;
+
+//404 con mensaje fijo en la mayoria de los casos: conviene una constante (ver DomainException)
+public class NotFoundException extends DomainException {
+
+    public NotFoundException(String message) {
+        super(ErrorType.NOT_FOUND, message);
+    }
+}
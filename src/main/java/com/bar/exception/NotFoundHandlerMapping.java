@@ -0,0 +1,30 @@
+package com.bar.exception;
+
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.handler.AbstractHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ultimo HandlerMapping: las rutas que no atiende nadie (bots probando /wp-login.php, /.env...) terminan
+ * aca con una NotFoundException constante, en vez del ResponseStatusException con stack trace que
+ * DispatcherHandler crea para cada una. Necesita spring.web.resources.add-mappings=false: si no, los
+ * recursos estaticos de Spring Boot toman /** antes y buscan cada ruta en el classpath.
+ */
+@Component
+public class NotFoundHandlerMapping extends AbstractHandlerMapping {
+
+    private static final NotFoundException NOT_FOUND = new NotFoundException("No existe el recurso");
+    private static final Mono<WebHandler> HANDLER = Mono.just(exchange -> Mono.error(NOT_FOUND));
+
+    public NotFoundHandlerMapping() {
+        setOrder(Ordered.LOWEST_PRECEDENCE);
+    }
+
+    @Override
+    protected Mono<?> getHandlerInternal(ServerWebExchange exchange) {
+        return HANDLER;
+    }
+}
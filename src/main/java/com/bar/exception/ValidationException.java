@@ -0,0 +1,9 @@
+package com.bar.exception;
+
+//400: el mensaje llega tal cual al cliente y tiene que decir que campo o valor esta mal
+public class ValidationException extends DomainException {
+
+    public ValidationException(String message) {
+        super(ErrorType.VALIDATION, message);
+    }
+}
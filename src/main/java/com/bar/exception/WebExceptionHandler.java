@@ -1,32 +1,66 @@
 package com.bar.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.web.WebProperties;
 import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
-import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.Ordered;
+import org.springframework.core.annotation.MergedAnnotations;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.BodyInserter;
-import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.reactive.function.server.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
+/**
+ * Respuestas de error {"message":"...","status":N} con el estado segun ErrorType.
+ * Las DomainException y las de Spring con estado conocido (404 de rutas inexistentes, 400 de @Valid)
+ * se escriben directo con la plantilla del tipo, sin getErrorAttributes ni el codec JSON; los 500
+ * siguen el camino de AbstractErrorWebExceptionHandler, que los deja en el log con el stack trace.
+ * Metrica: http.server.errors (type).
+ */
 @Component
 //@Order(Ordered.HIGHEST_PRECEDENCE)
 @Order(-1)
 public class WebExceptionHandler extends AbstractErrorWebExceptionHandler {
 
-    public WebExceptionHandler(ErrorAttributes errorAttributes, WebProperties.Resources resources, ApplicationContext applicationContext, ServerCodecConfigurer configurer) {
+    private final Map<ErrorType, Counter> errors = new EnumMap<>(ErrorType.class);
+
+    public WebExceptionHandler(ErrorAttributes errorAttributes, WebProperties.Resources resources, ApplicationContext applicationContext, ServerCodecConfigurer configurer, MeterRegistry meterRegistry) {
         super(errorAttributes, resources, applicationContext);
         this.setMessageWriters(configurer.getWriters());
+
+        for (ErrorType type : ErrorType.values()) {
+            errors.put(type, Counter.builder("http.server.errors")
+                    .tag("type", type.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable throwable) {
+        ErrorType type = type(throwable);
+        if (type == ErrorType.INTERNAL || exchange.getResponse().isCommitted()) {
+            return super.handle(exchange, throwable);
+        }
+
+        errors.get(type).increment();
+        byte[] body = throwable instanceof DomainException domain ? domain.body() : type.body(throwable.getMessage());
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(type.status());
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
     }
 
     @Override
@@ -35,43 +69,27 @@ public class WebExceptionHandler extends AbstractErrorWebExceptionHandler {
     }
 
     private Mono<ServerResponse> renderErrorResponse(ServerRequest req) {
-        Map<String, Object> generalError = getErrorAttributes(req, ErrorAttributeOptions.defaults());
-        Map<String, Object> customError = new HashMap<>();
-
-        HttpStatus httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
-        int statusCode = Integer.parseInt(String.valueOf(generalError.get("status")));
         Throwable error = getError(req);
+        ErrorType type = type(error);
+        errors.get(type).increment();
 
-        switch (statusCode){
-            case 400, 422 -> {
-                customError.put("message", error.getMessage());
-                customError.put("status", 400);
-                httpStatus = HttpStatus.BAD_REQUEST;
-            }
-            case 404 -> {
-                customError.put("message", error.getMessage());
-                customError.put("status", 404);
-                httpStatus = HttpStatus.NOT_FOUND;
-            }
-            case 401, 403 -> {
-                customError.put("message", error.getMessage());
-                customError.put("status", 401);
-                httpStatus = HttpStatus.UNAUTHORIZED;
-            }
-            case 500 -> {
-                customError.put("message", error.getMessage());
-                customError.put("status", 500);
-                //httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
-            }
-            default -> {
-                customError.put("message", error.getMessage());
-                customError.put("status", 418);
-                httpStatus = HttpStatus.I_AM_A_TEAPOT;
-            }
-        }
-
-        return ServerResponse.status(httpStatus)
+        return ServerResponse.status(type.status())
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(customError));
+                .bodyValue(type.body(error.getMessage()));
+    }
+
+    //El estado que DefaultErrorAttributes sacaria de la excepcion, sin armar el mapa de atributos
+    private static ErrorType type(Throwable error) {
+        if (error instanceof DomainException domain) {
+            return domain.getType();
+        }
+        if (error instanceof ErrorResponse response) {
+            return ErrorType.of(response.getStatusCode().value());
+        }
+        return MergedAnnotations.from(error.getClass(), MergedAnnotations.SearchStrategy.TYPE_HIERARCHY)
+                .get(ResponseStatus.class)
+                .getValue("code", HttpStatus.class)
+                .map(status -> ErrorType.of(status.value()))
+                .orElse(ErrorType.INTERNAL);
     }
 }
@@ -0,0 +1,68 @@
+package com.bar.export;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Resumen de ventas de un dia armado a partir de las lineas de sus facturas.
+ * Se exporta como CSV: una fila por plato y al final los totales del dia. Los importes
+ * se suman en centimos y se escriben con dos decimales.
+ */
+public class DailySummary {
+
+    private final LocalDate day;
+    private final Set<String> invoiceIds = new LinkedHashSet<>();
+    private final Map<String, DishTotal> dishes = new TreeMap<>();
+    private long units;
+    private long totalCents;
+
+    public DailySummary(LocalDate day) {
+        this.day = day;
+    }
+
+    public DailySummary add(InvoiceLine line) {
+        invoiceIds.add(line.invoiceId());
+
+        DishTotal dish = dishes.computeIfAbsent(line.dish() == null ? "" : line.dish(), k -> new DishTotal());
+        dish.units += line.quantity();
+        dish.totalCents += line.totalCents();
+
+        units += line.quantity();
+        totalCents += line.totalCents();
+        return this;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public Set<String> getInvoiceIds() {
+        return Collections.unmodifiableSet(invoiceIds);
+    }
+
+    public byte[] toCsv() {
+        StringBuilder sb = new StringBuilder(64 + dishes.size() * 48);
+        sb.append("\uFEFFdish,units,total\r\n");
+
+        dishes.forEach((name, dish) -> {
+            InvoiceCsvWriter.appendField(sb, name).append(',');
+            sb.append(dish.units).append(',');
+            InvoiceCsvWriter.appendMoney(sb, dish.totalCents).append("\r\n");
+        });
+
+        sb.append("TOTAL,").append(units).append(',');
+        InvoiceCsvWriter.appendMoney(sb, totalCents).append("\r\n");
+        sb.append("INVOICES,").append(invoiceIds.size()).append(",\r\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class DishTotal {
+        private long units;
+        private long totalCents;
+    }
+}
@@ -0,0 +1,71 @@
+package com.bar.export;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Component
+public class InvoiceCsvWriter {
+
+    //Filas por cada DataBuffer que se escribe en la respuesta
+    private static final int ROWS_PER_CHUNK = 256;
+
+    //El BOM hace que Excel abra el archivo como UTF-8 (tildes y ñ)
+    private static final String HEADER = "\uFEFFinvoice_id,description,client,dish,quantity,price,total\r\n";
+
+    public Flux<DataBuffer> write(Flux<InvoiceLine> lines, DataBufferFactory factory) {
+        Flux<DataBuffer> rows = lines
+                .buffer(ROWS_PER_CHUNK)
+                .map(chunk -> toBuffer(chunk, factory));
+
+        return Flux.concat(Flux.just(factory.wrap(HEADER.getBytes(StandardCharsets.UTF_8))), rows);
+    }
+
+    private DataBuffer toBuffer(List<InvoiceLine> chunk, DataBufferFactory factory) {
+        StringBuilder sb = new StringBuilder(chunk.size() * 96);
+
+        for (InvoiceLine line : chunk) {
+            appendField(sb, line.invoiceId()).append(',');
+            appendField(sb, line.description()).append(',');
+            appendField(sb, line.client()).append(',');
+            appendField(sb, line.dish()).append(',');
+            sb.append(line.quantity()).append(',');
+            appendMoney(sb, line.priceCents()).append(',');
+            appendMoney(sb, line.totalCents()).append("\r\n");
+        }
+
+        return factory.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static StringBuilder appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            return sb.append(value);
+        }
+
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    //Centimos a "1234.50": siempre dos decimales, sin notacion cientifica
+    static StringBuilder appendMoney(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
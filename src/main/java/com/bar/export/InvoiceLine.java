@@ -0,0 +1,13 @@
+package com.bar.export;
+
+//Una fila de la exportacion: una linea (InvoiceDetail) de una factura, importes en centimos
+public record InvoiceLine(
+        String invoiceId,
+        String description,
+        String client,
+        String dish,
+        int quantity,
+        long priceCents,
+        long totalCents
+) {
+}
@@ -0,0 +1,75 @@
+package com.bar.export;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Escribe el XLSX con SXSSF: solo se mantienen en memoria las ultimas filas de la hoja,
+ * el resto se vuelca a un archivo temporal. Las filas se consumen del Flux con
+ * contrapresion desde un hilo de boundedElastic.
+ */
+@Component
+public class InvoiceXlsxWriter {
+
+    private static final int ROWS_IN_MEMORY = 100;
+    private static final String[] HEADER = {"invoice_id", "description", "client", "dish", "quantity", "price", "total"};
+
+    public Flux<DataBuffer> write(Flux<InvoiceLine> lines, DataBufferFactory factory) {
+        return Flux.from(DataBufferUtils.outputStreamPublisher(
+                out -> {
+                    SXSSFWorkbook workbook = new SXSSFWorkbook(ROWS_IN_MEMORY);
+                    try {
+                        Sheet sheet = workbook.createSheet("invoices");
+                        writeRow(sheet.createRow(0), HEADER);
+                        CellStyle money = workbook.createCellStyle();
+                        money.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+
+                        int index = 1;
+                        for (InvoiceLine line : lines.toIterable(ROWS_IN_MEMORY)) {
+                            Row row = sheet.createRow(index++);
+                            row.createCell(0).setCellValue(line.invoiceId());
+                            row.createCell(1).setCellValue(line.description());
+                            row.createCell(2).setCellValue(line.client());
+                            row.createCell(3).setCellValue(line.dish());
+                            row.createCell(4).setCellValue(line.quantity());
+                            money(row, 5, line.priceCents(), money);
+                            money(row, 6, line.totalCents(), money);
+                        }
+
+                        workbook.write(out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        workbook.dispose();
+                    }
+                },
+                factory,
+                task -> Schedulers.boundedElastic().schedule(task)
+        ));
+    }
+
+    //La celda guarda el numero; el formato muestra siempre dos decimales
+    private void money(Row row, int column, long cents, CellStyle style) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(cents / 100.0);
+        cell.setCellStyle(style);
+    }
+
+    private void writeRow(Row row, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bar.feed;
+
+import com.bar.dto.InvoiceDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+//data de cada evento del feed; invoice es la factura completa despues del cambio (null en deleted)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderEvent(String type, String invoiceId, InvoiceDTO invoice) {
+}
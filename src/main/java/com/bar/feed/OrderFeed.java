@@ -0,0 +1,475 @@
+package com.bar.feed;
+
+import com.bar.archival.InvoiceArchiver;
+import com.bar.dto.InvoiceDTO;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pedidos en vivo para las pantallas de cocina y barra (GET /invoices/feed, text/event-stream).
+ * Un solo change stream sobre invoices se comparte entre todas las pantallas: cada cambio se mapea y
+ * serializa una vez y a cada una le llega el mismo evento ya armado. El stream se abre con la primera
+ * pantalla y se cierra order-feed.grace-period despues de que se va la ultima; si MongoDB lo corta se
+ * reabre desde el ultimo resume token.
+ * <p>
+ * El id de cada evento es su resume token, asi que el navegador lo devuelve en Last-Event-ID al
+ * reconectarse. Lo que falto se reenvia desde los ultimos order-feed.replay-size eventos en memoria o,
+ * si ese id ya no esta (reinicio, desconexion larga), desde un change stream propio que retoma en el
+ * token y se une al compartido cuando lo alcanza. Si MongoDB ya no tiene ese punto se manda un evento
+ * reset: la pantalla vuelve a leer los pedidos abiertos.
+ * <p>
+ * Cada pantalla tiene un buffer de order-feed.subscriber-buffer eventos; la que no lee a tiempo se
+ * desconecta para no retener memoria por ella, y vuelve con Last-Event-ID. Como RateLimitFilter no las
+ * cuenta como peticiones en curso, hay dos limites propios: mas de order-feed.max-subscribers pantallas
+ * reciben solo un retry de order-feed.busy-retry y se cierran (el navegador vuelve despues), y mas de
+ * order-feed.max-catch-ups change streams propios a la vez reciben reset en lugar de abrir otro.
+ * <p>
+ * Los borrados de InvoiceArchiver no son pedidos eliminados: el archivador marca las facturas
+ * (InvoiceArchiver.ARCHIVED) antes de borrarlas y el feed descarta el delete de las que vio marcar.
+ * Metricas: orderfeed.subscribers, orderfeed.events, orderfeed.dropped, orderfeed.rejected y
+ * orderfeed.reconnects (from).
+ * Necesita MongoDB como replica set (ver README); sin change streams el feed reintenta y no envia nada.
+ */
+@Slf4j
+@Component
+public class OrderFeed {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String RESET = "reset";
+    //Solo interno: el update con el que InvoiceArchiver marca una factura antes de borrarla
+    static final String ARCHIVED = "archived";
+
+    private static final String COLLECTION = "invoices";
+    private static final Map<OperationType, String> TYPES = Map.of(
+            OperationType.INSERT, CREATED,
+            OperationType.UPDATE, UPDATED,
+            OperationType.REPLACE, UPDATED,
+            OperationType.DELETE, DELETED
+    );
+    //InvalidResumeToken, ChangeStreamFatalError, ChangeStreamHistoryLost: ese token ya no sirve
+    private static final Set<Integer> LOST_TOKEN = Set.of(260, 280, 286);
+    //Facturas marcadas que se recuerdan por stream: el archivador borra de a archival.invoices.batch-size
+    private static final int MAX_ARCHIVED = 4_096;
+
+    private final ChangeSource source;
+    private final ModelMapper invoiceMapper;
+    private final ObjectMapper objectMapper;
+    private final int subscriberBuffer;
+    private final Duration heartbeat;
+    private final int maxSubscribers;
+    private final int maxCatchUps;
+    private final ServerSentEvent<String> hello;
+    private final ServerSentEvent<String> busy;
+    private final ServerSentEvent<String> ping = ServerSentEvent.<String>builder().comment("ping").build();
+
+    //Ultimos eventos del stream compartido, por numero de secuencia; se accede con el lock del array
+    private final Entry[] replay;
+    private long sequence;
+    private volatile BsonValue lastToken;
+    private final Flux<Entry> shared;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicInteger catchUps = new AtomicInteger();
+    private final Counter events;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Counter fromMemory;
+    private final Counter fromChangeStream;
+    private final Counter reset;
+
+    @Autowired
+    public OrderFeed(ReactiveMongoTemplate template, @Qualifier("invoiceMapper") ModelMapper invoiceMapper,
+                     ObjectMapper objectMapper, Environment environment, MeterRegistry meterRegistry) {
+        this(changeStream(template), invoiceMapper, objectMapper, environment, meterRegistry);
+    }
+
+    OrderFeed(ChangeSource source, ModelMapper invoiceMapper, ObjectMapper objectMapper,
+              Environment environment, MeterRegistry meterRegistry) {
+        this.source = source;
+        this.invoiceMapper = invoiceMapper;
+        this.objectMapper = objectMapper;
+        this.subscriberBuffer = environment.getProperty("order-feed.subscriber-buffer", Integer.class, 256);
+        this.heartbeat = environment.getProperty("order-feed.heartbeat", Duration.class, Duration.ofSeconds(15));
+        this.replay = new Entry[environment.getProperty("order-feed.replay-size", Integer.class, 512)];
+        this.maxSubscribers = environment.getProperty("order-feed.max-subscribers", Integer.class, 500);
+        this.maxCatchUps = environment.getProperty("order-feed.max-catch-ups", Integer.class, 20);
+        Duration busyRetry = environment.getProperty("order-feed.busy-retry", Duration.class, Duration.ofSeconds(30));
+        Duration gracePeriod = environment.getProperty("order-feed.grace-period", Duration.class, Duration.ofSeconds(30));
+        Duration reconnect = environment.getProperty("order-feed.reconnect", Duration.class, Duration.ofSeconds(2));
+        this.hello = ServerSentEvent.<String>builder().comment("conectado").retry(reconnect).build();
+        this.busy = ServerSentEvent.<String>builder().comment("ocupado").retry(busyRetry).build();
+
+        Gauge.builder("orderfeed.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+        this.events = Counter.builder("orderfeed.events").register(meterRegistry);
+        this.dropped = Counter.builder("orderfeed.dropped").register(meterRegistry);
+        this.rejected = Counter.builder("orderfeed.rejected").register(meterRegistry);
+        this.fromMemory = reconnects(meterRegistry, "memory");
+        this.fromChangeStream = reconnects(meterRegistry, "change-stream");
+        this.reset = reconnects(meterRegistry, "reset");
+
+        this.shared = Flux.defer(this::open)
+                .publish()
+                .refCount(1, gracePeriod);
+    }
+
+    /**
+     * Eventos para una pantalla. category: solo pedidos con algun plato de esa categoria (los deleted
+     * pasan siempre, la pantalla no sabe que tenia el pedido); status: created, updated o deleted.
+     */
+    public Flux<ServerSentEvent<String>> subscribe(String category, String status, String lastEventId) {
+        String wantedCategory = normalize(category);
+        String wantedStatus = normalize(status);
+        Flux<Entry> entries = lastEventId == null || lastEventId.isBlank()
+                ? shared
+                : Flux.defer(() -> resume(lastEventId));
+
+        return Flux.defer(() -> {
+            //Con 200 y retry el navegador reintenta solo; con un 503 EventSource no vuelve a conectarse
+            if (subscribers.incrementAndGet() > maxSubscribers) {
+                subscribers.decrementAndGet();
+                rejected.increment();
+                return Flux.just(busy);
+            }
+
+            //El error de onBackpressureBuffer llegaria despues de los eventos pendientes, que esta
+            //pantalla no lee: se corta con takeUntilOther, que no espera a que pida mas
+            Sinks.Empty<Void> full = Sinks.empty();
+            return Flux.merge(
+                            entries.filter(entry -> entry.matches(wantedCategory, wantedStatus)).map(Entry::event),
+                            Flux.interval(heartbeat).map(i -> ping))
+                    .startWith(hello)
+                    .onBackpressureBuffer(subscriberBuffer, event -> full.tryEmitEmpty(),
+                            BufferOverflowStrategy.DROP_LATEST)
+                    .takeUntilOther(full.asMono().doOnSuccess(v -> {
+                        dropped.increment();
+                        log.info("Feed de pedidos: se desconecta una pantalla con {} eventos sin leer",
+                                subscriberBuffer);
+                    }))
+                    .doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+
+    //Con la primera pantalla: lo guardado es de antes de cerrar el stream y ya no sirve para reenviar
+    private Flux<Entry> open() {
+        synchronized (replay) {
+            Arrays.fill(replay, null);
+            lastToken = null;
+        }
+
+        Map<String, Boolean> archived = archivedIds();
+        return Flux.defer(() -> source.changes(lastToken))
+                .filter(change -> isOrderChange(change, archived))
+                .doOnError(this::forgetLostToken)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.warn("Feed de pedidos: se reabre el change stream ({})",
+                                signal.failure().toString())))
+                //invalidate (coleccion borrada o renombrada) cierra el cursor sin error
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .map(this::record);
+    }
+
+    private Entry record(Change change) {
+        Entry entry = entry(change);
+        synchronized (replay) {
+            entry = entry.withSequence(++sequence);
+            replay[slot(sequence)] = entry;
+            lastToken = change.token();
+        }
+        events.increment();
+        return entry;
+    }
+
+    private Flux<Entry> resume(String lastEventId) {
+        List<Entry> missed = after(lastEventId);
+        if (missed == null) {
+            return catchUp(lastEventId);
+        }
+
+        fromMemory.increment();
+        long[] last = {missed.isEmpty() ? sequenceOf(lastEventId) : missed.get(missed.size() - 1).sequence()};
+        //Lo que llego al stream compartido entre la copia y la suscripcion se completa desde la memoria
+        return Flux.fromIterable(missed)
+                .concatWith(shared.concatMapIterable(entry -> {
+                    List<Entry> next = upTo(last[0], entry);
+                    last[0] = Math.max(last[0], entry.sequence());
+                    return next;
+                }));
+    }
+
+    //Change stream propio desde el token hasta alcanzar lo que hay en memoria. El compartido se abre a la
+    //vez: despues de un reinicio todas las pantallas llegan con Last-Event-ID y sin nadie suscrito la
+    //memoria no se llenaria nunca; con el abierto, el primer cambio que ven los dos hace el traspaso
+    private Flux<Entry> catchUp(String lastEventId) {
+        //Cada uno es un cursor mas en MongoDB: por encima del limite la pantalla vuelve a leer los pedidos
+        if (catchUps.incrementAndGet() > maxCatchUps) {
+            catchUps.decrementAndGet();
+            log.info("Feed de pedidos: ya hay {} pantallas retomando, {} recibe reset", maxCatchUps, lastEventId);
+            return reset();
+        }
+
+        fromChangeStream.increment();
+        Disposable recording = shared.subscribe();
+        Map<String, Boolean> archived = archivedIds();
+        AtomicReference<String> last = new AtomicReference<>(lastEventId);
+        return source.changes(new BsonDocument("_data", new BsonString(lastEventId)))
+                .filter(change -> isOrderChange(change, archived))
+                .map(this::entry)
+                .takeWhile(entry -> sequenceOf(last.get()) == 0)
+                .doOnNext(entry -> last.set(entry.id()))
+                .takeUntil(entry -> sequenceOf(entry.id()) > 0)
+                .doFinally(signal -> catchUps.decrementAndGet())
+                .concatWith(Flux.defer(() -> last.get().equals(lastEventId) ? shared : resume(last.get())))
+                .onErrorResume(e -> {
+                    log.info("Feed de pedidos: no se puede retomar desde {} ({}), se envia reset",
+                            lastEventId, e.toString());
+                    return reset();
+                })
+                .doFinally(signal -> recording.dispose());
+    }
+
+    private Flux<Entry> reset() {
+        reset.increment();
+        return Flux.just(Entry.reset()).concatWith(shared);
+    }
+
+    //Los updates con la marca del archivador no se envian y el delete que les sigue tampoco
+    private static boolean isOrderChange(Change change, Map<String, Boolean> archived) {
+        if (ARCHIVED.equals(change.type())) {
+            archived.put(change.invoiceId(), Boolean.TRUE);
+            return false;
+        }
+        return !(DELETED.equals(change.type()) && archived.remove(change.invoiceId()) != null);
+    }
+
+    //Cada stream tiene los suyos; sus cambios llegan de a uno, no hace falta sincronizar
+    private static Map<String, Boolean> archivedIds() {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_ARCHIVED;
+            }
+        };
+    }
+
+    private Entry entry(Change change) {
+        InvoiceDTO invoice = change.invoice() == null ? null : invoiceMapper.map(change.invoice(), InvoiceDTO.class);
+        String id = id(change.token());
+        try {
+            String json = objectMapper.writeValueAsString(new OrderEvent(change.type(), change.invoiceId(), invoice));
+            return new Entry(0, id, change.type(), categories(change.invoice()),
+                    ServerSentEvent.builder(json).id(id).event(change.type()).build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el pedido " + change.invoiceId(), e);
+        }
+    }
+
+    //Eventos posteriores al id entre los guardados; null si el id ya no esta
+    private List<Entry> after(String id) {
+        synchronized (replay) {
+            long found = find(id);
+            if (found == 0) {
+                return null;
+            }
+            List<Entry> missed = new ArrayList<>((int) (sequence - found));
+            for (long s = found + 1; s <= sequence; s++) {
+                missed.add(replay[slot(s)]);
+            }
+            return missed;
+        }
+    }
+
+    private long sequenceOf(String id) {
+        synchronized (replay) {
+            return find(id);
+        }
+    }
+
+    private List<Entry> upTo(long last, Entry entry) {
+        if (entry.sequence() <= last) {
+            return List.of();
+        }
+        if (entry.sequence() == last + 1) {
+            return List.of(entry);
+        }
+
+        synchronized (replay) {
+            List<Entry> next = new ArrayList<>();
+            for (long s = Math.max(last + 1, sequence - replay.length + 1); s < entry.sequence(); s++) {
+                Entry missing = replay[slot(s)];
+                if (missing != null && missing.sequence() == s) {
+                    next.add(missing);
+                }
+            }
+            next.add(entry);
+            return next;
+        }
+    }
+
+    //Con el lock tomado; 0 si no esta
+    private long find(String id) {
+        for (long s = sequence; s > 0 && s > sequence - replay.length; s--) {
+            Entry entry = replay[slot(s)];
+            if (entry == null) {
+                break;
+            }
+            if (entry.id().equals(id)) {
+                return s;
+            }
+        }
+        return 0;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % replay.length);
+    }
+
+    private void forgetLostToken(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof MongoException mongo && LOST_TOKEN.contains(mongo.getCode())) {
+                log.warn("Feed de pedidos: MongoDB ya no tiene el resume token, se sigue desde ahora");
+                lastToken = null;
+                return;
+            }
+        }
+    }
+
+    private static Set<String> categories(Invoice invoice) {
+        if (invoice == null || invoice.getItems() == null) {
+            return Set.of();
+        }
+        Set<String> categories = new HashSet<>();
+        for (InvoiceDetail item : invoice.getItems()) {
+            if (item.getDish() != null && item.getDish().getCategory() != null) {
+                categories.add(item.getDish().getCategory().toLowerCase(Locale.ROOT));
+            }
+        }
+        return categories;
+    }
+
+    private static String id(BsonValue token) {
+        if (token instanceof BsonDocument document && document.isString("_data")) {
+            return document.getString("_data").getValue();
+        }
+        return token.toString();
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Counter reconnects(MeterRegistry meterRegistry, String from) {
+        return Counter.builder("orderfeed.reconnects")
+                .tag("from", from)
+                .register(meterRegistry);
+    }
+
+    private static ChangeSource changeStream(ReactiveMongoTemplate template) {
+        //Un delete solo trae el _id: que lo hizo el archivador se sabe por el update de la marca que lo precede
+        Aggregation operations = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("operationType").in("insert", "update", "replace", "delete")));
+
+        return resumeAfter -> {
+            ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                    .filter(operations)
+                    .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+            if (resumeAfter != null) {
+                options.resumeAfter(resumeAfter);
+            }
+            return template.changeStream(COLLECTION, options.build(), Invoice.class)
+                    .filter(event -> TYPES.containsKey(event.getOperationType()))
+                    .map(OrderFeed::change);
+        };
+    }
+
+    private static Change change(ChangeStreamEvent<Invoice> event) {
+        String type = isArchiving(event) ? ARCHIVED : TYPES.get(event.getOperationType());
+        BsonDocument key = event.getRaw() == null ? null : event.getRaw().getDocumentKey();
+        BsonValue id = key == null ? null : key.get("_id");
+        String invoiceId = id == null ? null
+                : id.isObjectId() ? id.asObjectId().getValue().toHexString()
+                : id.isString() ? id.asString().getValue()
+                : id.toString();
+        return new Change(event.getResumeToken(), type, invoiceId,
+                DELETED.equals(type) || ARCHIVED.equals(type) ? null : event.getBody());
+    }
+
+    private static boolean isArchiving(ChangeStreamEvent<Invoice> event) {
+        UpdateDescription update = event.getRaw() == null ? null : event.getRaw().getUpdateDescription();
+        return update != null && update.getUpdatedFields() != null
+                && update.getUpdatedFields().containsKey(InvoiceArchiver.ARCHIVED);
+    }
+
+    //Origen de los cambios: el change stream de MongoDB, o uno sintetico en las pruebas
+    @FunctionalInterface
+    interface ChangeSource {
+
+        Flux<Change> changes(BsonValue resumeAfter);
+    }
+
+    record Change(BsonValue token, String type, String invoiceId, Invoice invoice) {
+    }
+
+    private record Entry(long sequence, String id, String type, Set<String> categories, ServerSentEvent<String> event) {
+
+        static Entry reset() {
+            return new Entry(0, "", RESET, Set.of(), ServerSentEvent.builder("{}").event(RESET).build());
+        }
+
+        Entry withSequence(long sequence) {
+            return new Entry(sequence, id, type, categories, event);
+        }
+
+        boolean matches(String category, String status) {
+            if (RESET.equals(type)) {
+                return true;
+            }
+            return (status == null || status.equals(type))
+                    && (category == null || DELETED.equals(type) || categories.contains(category));
+        }
+    }
+}
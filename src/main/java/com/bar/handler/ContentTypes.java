@@ -0,0 +1,42 @@
+package com.bar.handler;
+
+import com.bar.config.CodecConfig;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.NotAcceptableStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Las rutas funcionales no negocian el formato: se elige aqui con Accept, como en los controladores
+final class ContentTypes {
+
+    static final List<MediaType> VALUE = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, CodecConfig.SMILE);
+
+    static final List<MediaType> STREAM = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, CodecConfig.SMILE,
+            CodecConfig.SMILE_STREAM, MediaType.APPLICATION_NDJSON);
+
+    private ContentTypes() {
+    }
+
+    //Sin Accept o con */* queda JSON
+    static MediaType select(ServerRequest request, List<MediaType> supported) {
+        List<MediaType> accept = new ArrayList<>(request.headers().accept());
+        if (accept.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        MimeTypeUtils.sortBySpecificity(accept);
+        for (MediaType requested : accept) {
+            for (MediaType candidate : supported) {
+                if (requested.isCompatibleWith(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new NotAcceptableStatusException(supported);
+    }
+}
@@ -0,0 +1,85 @@
+package com.bar.handler;
+
+import com.bar.cache.DishMenuCache;
+import com.bar.cache.MenuResponse;
+import com.bar.dto.DishDTO;
+import com.bar.model.Dish;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
+import com.bar.query.ResourceFields;
+import com.bar.service.IDishService;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Version funcional de GET /dishes y GET /dishes/{id} (ver RouterConfig). Responde igual que
+ * DishController, sin la resolucion de argumentos ni el ResponseEntity de los metodos anotados.
+ */
+@Component
+@RequiredArgsConstructor
+public class DishHandler {
+
+    private final IDishService service;
+    @Qualifier("defaultMapper")
+    private final ModelMapper modelMapper;
+    private final DishMenuCache menuCache;
+
+    public Mono<ServerResponse> findAll(ServerRequest request) {
+        String fields = QueryParams.get(request, "fields");
+        String filter = QueryParams.get(request, "filter");
+        String sort = QueryParams.get(request, "sort");
+        MediaType contentType = ContentTypes.select(request, ContentTypes.STREAM);
+
+        //Como el produces de DishController.findAll: la copia serializada solo se sirve como JSON
+        if (fields == null && filter == null && sort == null && MediaType.APPLICATION_JSON.equals(contentType)) {
+            return menu(request.headers().asHttpHeaders());
+        }
+
+        Flux<DishDTO> fx = service.query(
+                QueryFilter.parse(filter, sort, ResourceFields.DISH),
+                FieldSelection.parse(fields, ResourceFields.DISH)
+        ).map(this::convertToDto);
+
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(fx, DishDTO.class);
+    }
+
+    public Mono<ServerResponse> findById(ServerRequest request) {
+        String id = request.pathVariable("id");
+        FieldSelection fields = FieldSelection.parse(QueryParams.get(request, "fields"), ResourceFields.DISH);
+        MediaType contentType = ContentTypes.select(request, ContentTypes.VALUE);
+
+        return service.findById(id, fields)
+                .map(this::convertToDto)
+                .flatMap(e -> ServerResponse.ok()
+                        .contentType(contentType)
+                        .bodyValue(e)
+                )
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    //Copia serializada del menu, con ETag y gzip como en DishController.findAll
+    private Mono<ServerResponse> menu(HttpHeaders headers) {
+        return menuCache.get()
+                .map(snapshot -> MenuResponse.of(snapshot, headers))
+                .flatMap(menu -> {
+                    ServerResponse.BodyBuilder builder = ServerResponse.status(menu.status())
+                            .headers(h -> h.addAll(menu.headers()));
+                    return menu.body() == null ? builder.build() : builder.bodyValue(menu.body());
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private DishDTO convertToDto(Dish model) {
+        return modelMapper.map(model, DishDTO.class);
+    }
+}
@@ -0,0 +1,45 @@
+package com.bar.handler;
+
+import com.bar.dto.InvoiceDTO;
+import com.bar.model.Invoice;
+import com.bar.query.FieldSelection;
+import com.bar.query.ResourceFields;
+import com.bar.service.IInvoiceService;
+import com.bar.timing.RequestTimings;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+//Version funcional de GET /invoices/{id} (ver RouterConfig); responde igual que InvoiceController.findById
+@Component
+@RequiredArgsConstructor
+public class InvoiceHandler {
+
+    private final IInvoiceService service;
+    @Qualifier("invoiceMapper")
+    private final ModelMapper modelMapper;
+
+    public Mono<ServerResponse> findById(ServerRequest request) {
+        String id = request.pathVariable("id");
+        FieldSelection fields = FieldSelection.parse(QueryParams.get(request, "fields"), ResourceFields.INVOICE);
+        MediaType contentType = ContentTypes.select(request, ContentTypes.VALUE);
+
+        return service.findById(id, fields)
+                .transform(RequestTimings.stage("find"))
+                .map(this::convertToDto)
+                .flatMap(e -> ServerResponse.ok()
+                        .contentType(contentType)
+                        .bodyValue(e)
+                )
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private InvoiceDTO convertToDto(Invoice model) {
+        return modelMapper.map(model, InvoiceDTO.class);
+    }
+}
@@ -0,0 +1,20 @@
+package com.bar.handler;
+
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.List;
+
+final class QueryParams {
+
+    private QueryParams() {
+    }
+
+    //Como @RequestParam String: null si no viene y los valores repetidos unidos con ','
+    static String get(ServerRequest request, String name) {
+        List<String> values = request.queryParams().get(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.size() == 1 ? values.get(0) : String.join(",", values);
+    }
+}
@@ -0,0 +1,177 @@
+package com.bar.hateoas;
+
+import com.bar.pagination.PageSupport;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.WebFluxBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Plantillas de los links de hypermedia. linkTo(methodOn(...)) arma un proxy y construye la URI en
+ * cada llamada; aqui se hace una vez por metodo del controlador y URI base, con marcadores en lugar
+ * del id y de la pagina, y despues cada link es una sustitucion de texto.
+ */
+@Component
+public class LinkTemplates {
+
+    //Valores que linkTo deja tal cual en la URI y que despues se reemplazan
+    public static final String ID = "0link0id0";
+    public static final int PAGE = -1_000_001;
+    public static final int SIZE = -1_000_002;
+
+    //La URI base sale de la peticion (Host, X-Forwarded-*): no se guardan mas que estas
+    private static final int MAX_BASES = 32;
+
+    private final Map<String, IdTemplate> idTemplates = new ConcurrentHashMap<>();
+    private final Map<String, PageTemplate> pageTemplates = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> bases = new ConcurrentHashMap<>();
+
+    //method identifica al metodo del controlador; link arma el link con ID en lugar del id
+    public Mono<Link> link(String method, Supplier<WebFluxBuilder> link, String id, LinkRelation rel) {
+        return Mono.deferContextual(ctx -> {
+            String key = key(method, ctx);
+            IdTemplate template = idTemplates.get(key);
+            if (template != null) {
+                return Mono.just(template.expand(id, rel));
+            }
+
+            return link.get().withSelfRel().toMono()
+                    .map(IdTemplate::parse)
+                    .doOnNext(parsed -> cache(idTemplates, key, ctx, parsed))
+                    .map(parsed -> parsed.expand(id, rel));
+        });
+    }
+
+    //self, first, prev, next y last de la pagina, con los mismos parametros de la peticion
+    public <T> Mono<PageSupport<T>> withPageLinks(String method, Supplier<WebFluxBuilder> link,
+                                                  PageSupport<T> page, ServerHttpRequest request) {
+        return Mono.deferContextual(ctx -> {
+            String key = key(method, ctx);
+            PageTemplate template = pageTemplates.get(key);
+            if (template != null) {
+                return Mono.just(template.apply(page, request.getQueryParams()));
+            }
+
+            return link.get().withSelfRel().toMono()
+                    .map(PageTemplate::parse)
+                    .doOnNext(parsed -> cache(pageTemplates, key, ctx, parsed))
+                    .map(parsed -> parsed.apply(page, request.getQueryParams()));
+        });
+    }
+
+    private <V> void cache(Map<String, V> templates, String key, ContextView ctx, V template) {
+        String base = base(ctx);
+        if (bases.containsKey(base) || bases.size() < MAX_BASES) {
+            bases.put(base, Boolean.TRUE);
+            templates.putIfAbsent(key, template);
+        }
+    }
+
+    private static String key(String method, ContextView ctx) {
+        String base = base(ctx);
+        return base.isEmpty() ? method : method + " " + base;
+    }
+
+    //Misma fuente que WebFluxLinkBuilder: sin el exchange en el contexto los links son relativos
+    private static String base(ContextView ctx) {
+        ServerWebExchange exchange = ctx.getOrDefault(ServerWebExchangeContextFilter.EXCHANGE_CONTEXT_ATTRIBUTE, null);
+        if (exchange == null) {
+            return "";
+        }
+
+        URI uri = exchange.getRequest().getURI();
+        return uri.getScheme() + "://" + uri.getRawAuthority() + exchange.getRequest().getPath().contextPath().value();
+    }
+
+    record IdTemplate(String prefix, String suffix) {
+
+        static IdTemplate parse(Link link) {
+            String href = link.getHref();
+            int at = href.indexOf(ID);
+            if (at < 0) {
+                throw new IllegalStateException("El link no tiene el marcador del id: " + href);
+            }
+            return new IdTemplate(href.substring(0, at), href.substring(at + ID.length()));
+        }
+
+        Link expand(String id, LinkRelation rel) {
+            return Link.of(prefix + UriUtils.encodePathSegment(id, StandardCharsets.UTF_8) + suffix, rel);
+        }
+    }
+
+    //El href queda como <path>?page=PAGE&size=SIZE{&fields,filter,sort}
+    record PageTemplate(String beforePage, String beforeSize, List<String> variables) {
+
+        static PageTemplate parse(Link link) {
+            String href = link.getHref();
+            int page = href.indexOf(Integer.toString(PAGE));
+            int size = href.indexOf(Integer.toString(SIZE));
+            if (page < 0 || size < page) {
+                throw new IllegalStateException("El link no tiene los marcadores de pagina: " + href);
+            }
+            return new PageTemplate(href.substring(0, page),
+                    href.substring(page + Integer.toString(PAGE).length(), size),
+                    link.getVariableNames());
+        }
+
+        <T> PageSupport<T> apply(PageSupport<T> page, MultiValueMap<String, String> params) {
+            int number = page.getPageNumber();
+            int size = page.getPageSize();
+            int last = (int) Math.max(page.totalPages() - 1, 0);
+            String query = query(params);
+
+            List<Link> links = new ArrayList<>(5);
+            links.add(Link.of(href(number, size, query), IanaLinkRelations.SELF));
+            links.add(Link.of(href(0, size, query), IanaLinkRelations.FIRST));
+            if (number > 0) {
+                links.add(Link.of(href(Math.min(number - 1, last), size, query), IanaLinkRelations.PREV));
+            }
+            if (number < last) {
+                links.add(Link.of(href(number + 1, size, query), IanaLinkRelations.NEXT));
+            }
+            links.add(Link.of(href(last, size, query), IanaLinkRelations.LAST));
+
+            page.setLinks(links);
+            return page;
+        }
+
+        private String href(int page, int size, String query) {
+            return beforePage + page + beforeSize + size + query;
+        }
+
+        //Los parametros opcionales del metodo (fields, filter, sort...) que trae la peticion
+        private String query(MultiValueMap<String, String> params) {
+            StringBuilder sb = null;
+            for (String name : variables) {
+                List<String> values = params.get(name);
+                if (values == null) {
+                    continue;
+                }
+                for (String value : values) {
+                    if (sb == null) {
+                        sb = new StringBuilder(64);
+                    }
+                    sb.append('&').append(name).append('=')
+                            .append(UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8));
+                }
+            }
+            return sb == null ? "" : sb.toString();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.bar.migration;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.model.InvoiceSummary;
+import com.bar.repo.convert.InvoiceConverters;
+import com.bar.service.IInvoiceSummaryService;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reescribe en el formato compacto (ver InvoiceConverters) las facturas guardadas con el
+ * Client y el Dish completos o sin issuedAt. Avanza por lotes ordenados por _id y solo toca
+ * documentos de un schema anterior, asi que si se detiene se puede volver a lanzar y sigue donde quedo.
+ * El avance se consulta en /actuator/invoicemigration. migrate(id) reescribe una sola factura en el
+ * momento, para las operaciones que solo entienden el formato compacto (lineas con $inc).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvoiceCompactionMigration {
+
+    private static final String COLLECTION = "invoices";
+
+    private final ReactiveMongoTemplate template;
+    private final IInvoiceSummaryService summaries;
+    private final InvoiceConverters.InvoiceWriter writer = new InvoiceConverters.InvoiceWriter();
+    private final InvoiceConverters.InvoiceReader reader = new InvoiceConverters.InvoiceReader();
+
+    @Value("${migration.invoices.auto-start:true}")
+    private boolean autoStart;
+
+    @Value("${migration.invoices.batch-size:500}")
+    private int batchSize;
+
+    //Pausa entre lotes para no competir con el trafico normal
+    @Value("${migration.invoices.pause:50ms}")
+    private Duration pause;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<MigrationProgress> progress = new AtomicReference<>(MigrationProgress.idle());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (autoStart) {
+            start();
+        }
+    }
+
+    public MigrationProgress getProgress() {
+        return progress.get();
+    }
+
+    public MigrationProgress start() {
+        if (!running.compareAndSet(false, true)) {
+            return progress.get();
+        }
+
+        AtomicReference<Object> lastId = new AtomicReference<>();
+        progress.set(MigrationProgress.started(0));
+
+        template.count(pending(), COLLECTION)
+                .doOnNext(total -> progress.set(MigrationProgress.started(total)))
+                .thenMany(Mono.defer(() -> nextBatch(lastId.get()))
+                        .flatMap(batch -> migrate(batch, lastId).thenReturn(batch.size()))
+                        .delayElement(pause)
+                        .repeat()
+                        .takeUntil(size -> size < batchSize))
+                //Los resumenes de los listados se arman con los nombres y totales ya completados
+                .then(Mono.defer(() -> progress.get().migrated() > 0 ? summaries.rebuild() : Mono.empty()))
+                .doFinally(signal -> running.set(false))
+                .subscribe(
+                        count -> { },
+                        e -> {
+                            progress.updateAndGet(p -> p.failed(e.getMessage()));
+                            log.warn("Se detuvo la migracion de facturas; se puede reanudar", e);
+                        },
+                        () -> {
+                            MigrationProgress done = progress.updateAndGet(MigrationProgress::completed);
+                            if (done.total() > 0) {
+                                log.info("Migracion de facturas terminada: {} migradas, {} con error", done.migrated(), done.errors());
+                            }
+                        }
+                );
+
+        return progress.get();
+    }
+
+    //Una sola factura, si todavia esta en un formato anterior; tambien actualiza su resumen
+    public Mono<Void> migrate(String id) {
+        Query query = pending().addCriteria(Criteria.where("_id").is(InvoiceConverters.toObjectId(id)));
+
+        return template.findOne(query, Document.class, COLLECTION)
+                .flatMap(document -> rewrite(List.of(document)))
+                .flatMapMany(result -> Flux.fromIterable(result.invoices()))
+                .concatMap(invoice -> summaries.save(InvoiceSummary.of(invoice)))
+                .then();
+    }
+
+    private static Query pending() {
+        return new Query(Criteria.where(InvoiceConverters.SCHEMA).ne(InvoiceConverters.SCHEMA_VERSION));
+    }
+
+    private Mono<List<Document>> nextBatch(Object lastId) {
+        Query query = pending();
+        if (lastId != null) {
+            query.addCriteria(Criteria.where("_id").gt(lastId));
+        }
+        query.with(Sort.by("_id")).limit(batchSize);
+
+        return template.find(query, Document.class, COLLECTION).collectList();
+    }
+
+    private Mono<Void> migrate(List<Document> batch, AtomicReference<Object> lastId) {
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        lastId.set(batch.get(batch.size() - 1).get("_id"));
+
+        return rewrite(batch)
+                .doOnNext(result -> progress.updateAndGet(p -> p.advance(result.invoices().size(), result.failed())))
+                .then();
+    }
+
+    private Mono<Rewrite> rewrite(List<Document> batch) {
+        List<Invoice> invoices = batch.stream().map(reader::convert).toList();
+
+        return Mono.zip(clients(invoices), dishes(invoices))
+                .flatMap(catalog -> {
+                    List<WriteModel<Document>> replacements = new ArrayList<>(batch.size());
+                    List<Invoice> rewritten = new ArrayList<>(batch.size());
+                    int errors = 0;
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        try {
+                            Invoice invoice = complete(invoices.get(i), catalog.getT1(), catalog.getT2());
+                            Document compact = writer.convert(invoice);
+                            compact.put("_id", batch.get(i).get("_id"));
+
+                            //Si la aplicacion ya la reescribio mientras tanto, no se pisa
+                            replacements.add(new ReplaceOneModel<>(Filters.and(
+                                    Filters.eq("_id", compact.get("_id")),
+                                    Filters.ne(InvoiceConverters.SCHEMA, InvoiceConverters.SCHEMA_VERSION)
+                            ), compact));
+                            rewritten.add(invoice);
+                        } catch (RuntimeException e) {
+                            errors++;
+                            log.warn("No se pudo migrar la factura " + batch.get(i).get("_id"), e);
+                        }
+                    }
+
+                    Rewrite result = new Rewrite(rewritten, errors);
+                    return template.getCollection(COLLECTION)
+                            .flatMap(collection -> replacements.isEmpty()
+                                    ? Mono.empty()
+                                    : Mono.from(collection.bulkWrite(replacements, new BulkWriteOptions().ordered(false))))
+                            .thenReturn(result);
+                });
+    }
+
+    //Las facturas antiguas pueden tener solo el id del cliente o del plato
+    private Mono<Map<String, Client>> clients(List<Invoice> invoices) {
+        Set<String> ids = invoices.stream()
+                .map(Invoice::getClient)
+                .filter(client -> client != null && client.getId() != null && client.getFirstName() == null)
+                .map(Client::getId)
+                .collect(Collectors.toSet());
+
+        return ids.isEmpty()
+                ? Mono.just(Map.of())
+                : template.find(new Query(Criteria.where("id").in(ids)), Client.class).collectMap(Client::getId);
+    }
+
+    private Mono<Map<String, Dish>> dishes(List<Invoice> invoices) {
+        Set<String> ids = invoices.stream()
+                .filter(invoice -> invoice.getItems() != null)
+                .flatMap(invoice -> invoice.getItems().stream())
+                .map(InvoiceDetail::getDish)
+                .filter(dish -> dish != null && dish.getId() != null && (dish.getName() == null || dish.getPrice() == null))
+                .map(Dish::getId)
+                .collect(Collectors.toSet());
+
+        return ids.isEmpty()
+                ? Mono.just(Map.of())
+                : template.find(new Query(Criteria.where("id").in(ids)), Dish.class).collectMap(Dish::getId, Function.identity());
+    }
+
+    private static Invoice complete(Invoice invoice, Map<String, Client> clients, Map<String, Dish> dishes) {
+        Client client = invoice.getClient();
+        if (client != null && client.getFirstName() == null && clients.containsKey(client.getId())) {
+            invoice.setClient(clients.get(client.getId()));
+        }
+
+        if (invoice.getItems() == null) {
+            return invoice;
+        }
+
+        long totalCents = 0;
+        for (InvoiceDetail item : invoice.getItems()) {
+            Dish dish = item.getDish();
+            if (dish != null && (dish.getName() == null || dish.getPrice() == null) && dishes.containsKey(dish.getId())) {
+                Dish current = dishes.get(dish.getId());
+                item.setDish(new Dish(dish.getId(),
+                        Objects.requireNonNullElse(dish.getName(), current.getName()),
+                        Objects.requireNonNullElse(dish.getPrice(), current.getPrice()),
+                        null,
+                        current.getCategory()));
+            }
+
+            double price = item.getDish() == null || item.getDish().getPrice() == null ? 0 : item.getDish().getPrice();
+            int quantity = item.getQuantity() == null ? 0 : item.getQuantity();
+            totalCents += Math.round(price * 100) * quantity;
+        }
+
+        if (invoice.getTotal() == null) {
+            invoice.setTotal(totalCents / 100.0);
+        }
+        return invoice;
+    }
+
+    private record Rewrite(List<Invoice> invoices, int failed) {
+    }
+}
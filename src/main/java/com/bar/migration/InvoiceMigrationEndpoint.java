@@ -0,0 +1,26 @@
+package com.bar.migration;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+//GET /actuator/invoicemigration muestra el avance; POST la lanza o reanuda
+@Component
+@Endpoint(id = "invoicemigration")
+@RequiredArgsConstructor
+public class InvoiceMigrationEndpoint {
+
+    private final InvoiceCompactionMigration migration;
+
+    @ReadOperation
+    public MigrationProgress progress() {
+        return migration.getProgress();
+    }
+
+    @WriteOperation
+    public MigrationProgress start() {
+        return migration.start();
+    }
+}
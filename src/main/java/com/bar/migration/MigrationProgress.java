@@ -0,0 +1,36 @@
+package com.bar.migration;
+
+import java.time.Instant;
+
+public record MigrationProgress(Status status, long total, long migrated, long errors,
+                                Instant startedAt, Instant finishedAt, String message) {
+
+    public enum Status { IDLE, RUNNING, COMPLETED, FAILED }
+
+    static MigrationProgress idle() {
+        return new MigrationProgress(Status.IDLE, 0, 0, 0, null, null, null);
+    }
+
+    static MigrationProgress started(long total) {
+        return new MigrationProgress(Status.RUNNING, total, 0, 0, Instant.now(), null, null);
+    }
+
+    MigrationProgress advance(long migrated, long errors) {
+        return new MigrationProgress(status, total, this.migrated + migrated, this.errors + errors, startedAt, null, null);
+    }
+
+    MigrationProgress completed() {
+        return new MigrationProgress(Status.COMPLETED, total, migrated, errors, startedAt, Instant.now(), null);
+    }
+
+    MigrationProgress failed(String message) {
+        return new MigrationProgress(Status.FAILED, total, migrated, errors, startedAt, Instant.now(), message);
+    }
+
+    public double getPercent() {
+        if (total == 0) {
+            return status == Status.COMPLETED ? 100 : 0;
+        }
+        return Math.min(100, migrated * 100.0 / total);
+    }
+}
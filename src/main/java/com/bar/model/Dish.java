@@ -29,4 +29,12 @@ public class Dish {
     @Field
     private Boolean status;
 
+    //cocina, barra...: se copia en cada linea de factura y el feed de pedidos filtra por ella
+    @Field
+    private String category;
+
+    public Dish(String id, String name, Double price, Boolean status) {
+        this(id, name, price, status, null);
+    }
+
 }
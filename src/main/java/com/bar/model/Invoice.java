@@ -8,6 +8,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -24,9 +25,17 @@ public class Invoice {
     @Field
     private String description;
 
+    //Se fija al crear la factura; decide en que coleccion mensual se archiva (ver InvoiceArchiver)
+    @Field
+    private LocalDateTime issuedAt;
+
     @Field
     private Client client;
 
     @Field
     private List<InvoiceDetail> items;
+
+    //Suma de cantidad * precio de los platos al momento de guardar
+    @Field
+    private Double total;
 }
@@ -9,6 +9,6 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class InvoiceDetail {
 
-    private int quantity;
+    private Integer quantity;
     private Dish dish;
 }
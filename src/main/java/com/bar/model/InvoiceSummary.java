@@ -0,0 +1,66 @@
+package com.bar.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+//Vista de lectura de las facturas para los listados; se mantiene desde InvoiceServiceImpl
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Document(collection = "invoice_summaries")
+public class InvoiceSummary {
+
+    //Mismo id que la factura
+    @Id
+    @EqualsAndHashCode.Include
+    private String id;
+
+    @Field
+    private String description;
+
+    @Field
+    private LocalDateTime issuedAt;
+
+    @Field
+    private String clientId;
+
+    @Field
+    private String clientName;
+
+    @Field
+    private String clientSurname;
+
+    @Field
+    private Integer itemCount;
+
+    @Field
+    private Double total;
+
+    @Field
+    private Instant updatedAt;
+
+    public static InvoiceSummary of(Invoice invoice) {
+        Client client = invoice.getClient();
+
+        return new InvoiceSummary(
+                invoice.getId(),
+                invoice.getDescription(),
+                invoice.getIssuedAt(),
+                client == null ? null : client.getId(),
+                client == null ? null : client.getFirstName(),
+                client == null ? null : client.getLastName(),
+                invoice.getItems() == null ? 0 : invoice.getItems().size(),
+                invoice.getTotal(),
+                Instant.now()
+        );
+    }
+}
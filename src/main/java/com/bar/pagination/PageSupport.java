@@ -1,9 +1,11 @@
 package com.bar.pagination;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.hateoas.Link;
 
 import java.util.List;
 
@@ -19,6 +21,13 @@ public class PageSupport<T> {
     private int pageNumber;
     private int pageSize;
     private long totalElements;
+    //self, first, prev, next y last; solo en las respuestas de los controladores (LinkTemplates)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<Link> links;
+
+    public PageSupport(List<T> content, int pageNumber, int pageSize, long totalElements) {
+        this(content, pageNumber, pageSize, totalElements, null);
+    }
 
     @JsonProperty
     public long totalPages() {
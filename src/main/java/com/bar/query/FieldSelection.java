@@ -0,0 +1,59 @@
+package com.bar.query;
+
+import com.bar.exception.ValidationException;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Seleccion de campos pedida con el parametro fields= (ej: fields=id,description,client.name).
+ * Se traduce a una proyeccion de MongoDB; el id siempre se incluye.
+ */
+public final class FieldSelection {
+
+    public static final FieldSelection ALL = new FieldSelection(Set.of());
+
+    private final Set<String> properties;
+
+    private FieldSelection(Set<String> properties) {
+        this.properties = properties;
+    }
+
+    public static FieldSelection parse(String fields, ResourceFields resource) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        Set<String> properties = new HashSet<>();
+        properties.add(resource.property("id"));
+
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            List<String> projection = resource.projection(name);
+            if (projection == null) {
+                throw new ValidationException("Campo desconocido en fields: " + name);
+            }
+            properties.addAll(projection);
+        }
+
+        //MongoDB rechaza proyecciones con una ruta y su padre a la vez (ej: client y client.firstName)
+        properties.removeIf(p -> properties.stream().anyMatch(parent -> p.startsWith(parent + ".")));
+
+        return new FieldSelection(Set.copyOf(properties));
+    }
+
+    public boolean isAll() {
+        return properties.isEmpty();
+    }
+
+    public Query applyTo(Query query) {
+        properties.forEach(p -> query.fields().include(p));
+        return query;
+    }
+}
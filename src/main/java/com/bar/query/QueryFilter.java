@@ -0,0 +1,193 @@
+package com.bar.query;
+
+import com.bar.exception.ValidationException;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filtro y orden de los parametros filter= y sort=, compilados a Criteria y Sort de MongoDB.
+ * <p>
+ * filter: condiciones campo:operador:valor separadas por ';' (ej: statusDish:eq:true;priceDish:lt:50).
+ * Operadores: eq, ne, lt, lte, gt, gte, in (valores separados por ',').
+ * <p>
+ * sort: campos separados por ',', con '-' delante para orden descendente (ej: -priceDish,nameDish).
+ */
+public final class QueryFilter {
+
+    public static final QueryFilter NONE = new QueryFilter(List.of(), Sort.unsorted());
+
+    private static final Map<String, Operator> OPERATORS = Map.of(
+            "eq", Criteria::is,
+            "ne", Criteria::ne,
+            "lt", Criteria::lt,
+            "lte", Criteria::lte,
+            "gt", Criteria::gt,
+            "gte", Criteria::gte
+    );
+
+    private final List<Criteria> criteria;
+    private final Sort sort;
+
+    private QueryFilter(List<Criteria> criteria, Sort sort) {
+        this.criteria = criteria;
+        this.sort = sort;
+    }
+
+    public static QueryFilter parse(String filter, String sort, ResourceFields resource) {
+        List<Criteria> criteria = new ArrayList<>();
+
+        if (filter != null && !filter.isBlank()) {
+            for (String clause : filter.split(";")) {
+                if (!clause.isBlank()) {
+                    criteria.add(parseClause(clause.trim(), resource));
+                }
+            }
+        }
+
+        List<Sort.Order> orders = new ArrayList<>();
+
+        if (sort != null && !sort.isBlank()) {
+            for (String field : sort.split(",")) {
+                String name = field.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+
+                boolean descending = name.startsWith("-");
+                String property = indexedProperty(descending ? name.substring(1) : name, resource);
+                orders.add(descending ? Sort.Order.desc(property) : Sort.Order.asc(property));
+            }
+        }
+
+        return new QueryFilter(criteria, Sort.by(orders));
+    }
+
+    public boolean isEmpty() {
+        return criteria.isEmpty() && sort.isUnsorted();
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public Query toQuery() {
+        Query query = new Query();
+
+        if (criteria.size() == 1) {
+            query.addCriteria(criteria.get(0));
+        } else if (criteria.size() > 1) {
+            query.addCriteria(new Criteria().andOperator(criteria));
+        }
+
+        return query.with(sort);
+    }
+
+    private static Criteria parseClause(String clause, ResourceFields resource) {
+        String[] parts = clause.split(":", 3);
+        if (parts.length != 3) {
+            throw badRequest("Condicion invalida en filter: " + clause);
+        }
+
+        String property = indexedProperty(parts[0], resource);
+        Class<?> type = propertyType(resource.entityType(), property);
+        Criteria criteria = Criteria.where(property);
+
+        if ("in".equals(parts[1])) {
+            return criteria.in(Arrays.stream(parts[2].split(",")).map(v -> convert(v, type, clause)).toList());
+        }
+
+        Operator operator = OPERATORS.get(parts[1]);
+        if (operator == null) {
+            throw badRequest("Operador desconocido en filter: " + parts[1]);
+        }
+
+        return operator.apply(criteria, convert(parts[2], type, clause));
+    }
+
+    private static String indexedProperty(String field, ResourceFields resource) {
+        String property = resource.property(field);
+        if (property == null) {
+            throw badRequest("Campo desconocido: " + field);
+        }
+        if (!resource.isIndexed(property)) {
+            throw badRequest("El campo " + field + " no tiene indice y no se puede filtrar ni ordenar");
+        }
+        return property;
+    }
+
+    private static Class<?> propertyType(Class<?> entityType, String property) {
+        ResolvableType type = ResolvableType.forClass(entityType);
+
+        for (String segment : property.split("\\.")) {
+            Field field = ReflectionUtils.findField(type.resolve(), segment);
+            if (field == null) {
+                throw badRequest("Campo desconocido: " + property);
+            }
+
+            type = ResolvableType.forField(field);
+            if (type.asCollection() != ResolvableType.NONE) {
+                type = type.asCollection().getGeneric(0);
+            }
+        }
+
+        return type.resolve();
+    }
+
+    private static Object convert(String value, Class<?> type, String clause) {
+        try {
+            if (type == String.class) {
+                return value;
+            }
+            if (type == Boolean.class || type == boolean.class) {
+                if (!value.equals("true") && !value.equals("false")) {
+                    throw badRequest("Valor booleano invalido en filter: " + clause);
+                }
+                return Boolean.valueOf(value);
+            }
+            if (type == Double.class || type == double.class) {
+                return Double.valueOf(value);
+            }
+            if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            }
+            if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            }
+            if (type == LocalDate.class) {
+                return LocalDate.parse(value);
+            }
+            if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+            if (type == Instant.class) {
+                return Instant.parse(value);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw badRequest("Valor invalido en filter: " + clause);
+        }
+
+        throw badRequest("No se puede filtrar por el campo de la condicion: " + clause);
+    }
+
+    private static ValidationException badRequest(String message) {
+        return new ValidationException(message);
+    }
+
+    @FunctionalInterface
+    private interface Operator {
+        Criteria apply(Criteria criteria, Object value);
+    }
+}
@@ -0,0 +1,133 @@
+package com.bar.query;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceSummary;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Campos publicos (nombres del DTO) que se pueden pedir en cada recurso y la propiedad
+ * del documento a la que corresponden. Solo las propiedades indexadas se pueden usar
+ * en filter= y sort= (ver IndexConfig).
+ */
+public final class ResourceFields {
+
+    public static final ResourceFields CLIENT = new ResourceFields(Client.class, Map.of(
+            "id", "id",
+            "name", "firstName",
+            "surname", "lastName",
+            "birthDateClient", "birthDate",
+            "picture", "urlPhoto"
+    ), Set.of("lastName", "birthDate"));
+
+    public static final ResourceFields DISH = new ResourceFields(Dish.class, Map.of(
+            "id", "id",
+            "nameDish", "name",
+            "priceDish", "price",
+            "statusDish", "status",
+            "categoryDish", "category"
+    ), Set.of("name", "price", "status"));
+
+    //Las lineas se guardan compactas: {dishId, name, price, category, quantity} (ver InvoiceConverters)
+    public static final ResourceFields INVOICE = new ResourceFields(Invoice.class, merge(
+            Map.of("id", "id", "description", "description", "issuedAt", "issuedAt", "total", "total"),
+            CLIENT.nested("client", "client"),
+            Map.of(
+                    "items", "items",
+                    "items.quantity", "items.quantity",
+                    "items.dish.id", "items.dishId",
+                    "items.dish.nameDish", "items.name",
+                    "items.dish.priceDish", "items.price",
+                    "items.dish.categoryDish", "items.category"
+            )
+    ), Set.of("description", "issuedAt", "client.id"), Map.of(
+            "items.dish", List.of("items.dishId", "items.name", "items.price", "items.category")
+    ));
+
+    //Listados de facturas (invoice_summaries): mismos nombres publicos que INVOICE
+    public static final ResourceFields INVOICE_SUMMARY = new ResourceFields(InvoiceSummary.class, Map.of(
+            "id", "id",
+            "description", "description",
+            "issuedAt", "issuedAt",
+            "client.id", "clientId",
+            "client.name", "clientName",
+            "client.surname", "clientSurname",
+            "itemCount", "itemCount",
+            "total", "total"
+    ), Set.of("description", "issuedAt", "clientId", "total"), Map.of(
+            "client", List.of("clientId", "clientName", "clientSurname")
+    ));
+
+    private final Class<?> entityType;
+    private final Map<String, String> properties;
+    private final Set<String> indexedProperties;
+    //Campos que en el documento ocupan varias rutas
+    private final Map<String, List<String>> groups;
+
+    private ResourceFields(Class<?> entityType, Map<String, String> properties, Set<String> indexedProperties) {
+        this(entityType, properties, indexedProperties, Map.of());
+    }
+
+    private ResourceFields(Class<?> entityType, Map<String, String> properties, Set<String> indexedProperties,
+                           Map<String, List<String>> groups) {
+        this.entityType = entityType;
+        this.properties = Map.copyOf(properties);
+        this.indexedProperties = Set.copyOf(indexedProperties);
+        this.groups = Map.copyOf(groups);
+    }
+
+    public Class<?> entityType() {
+        return entityType;
+    }
+
+    public String property(String field) {
+        return properties.get(field);
+    }
+
+    //Rutas del documento que hay que proyectar para el campo; null si no existe
+    public List<String> projection(String field) {
+        List<String> group = groups.get(field);
+        if (group != null) {
+            return group;
+        }
+
+        String property = properties.get(field);
+        return property == null ? null : List.of(property);
+    }
+
+    public Set<String> fields() {
+        Set<String> fields = new HashSet<>(properties.keySet());
+        fields.addAll(groups.keySet());
+        return fields;
+    }
+
+    public Set<String> indexedProperties() {
+        return indexedProperties;
+    }
+
+    public boolean isIndexed(String property) {
+        return "id".equals(property) || indexedProperties.contains(property);
+    }
+
+    private Map<String, String> nested(String field, String property) {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put(field, property);
+        properties.forEach((k, v) -> result.put(field + "." + k, property + "." + v));
+        return result;
+    }
+
+    @SafeVarargs
+    private static Map<String, String> merge(Map<String, String>... maps) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map<String, String> map : maps) {
+            result.putAll(map);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package com.bar.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket por cliente de un grupo de rutas, con GCRA: cada cliente es un solo AtomicLong con
+ * el instante teorico de su siguiente peticion, asi que admitir o rechazar es un compareAndSet,
+ * sin locks ni objetos nuevos. Un bucket cuyo instante ya paso esta lleno y se puede descartar.
+ */
+final class ClientLimiter {
+
+    //Cuando ya hay demasiados buckets los clientes nuevos se reparten en estos, por hash: un cliente
+    //abusivo solo frena a los que caen en su mismo bucket y no a todos los nuevos
+    static final int OVERFLOW_BUCKETS = 64;
+    private static final String[] OVERFLOW = new String[OVERFLOW_BUCKETS];
+
+    static {
+        for (int i = 0; i < OVERFLOW_BUCKETS; i++) {
+            OVERFLOW[i] = "overflow:" + i;
+        }
+    }
+
+    private final long interval;
+    private final long tolerance;
+    private final int maxBuckets;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    ClientLimiter(double perSecond, int burst, int maxBuckets) {
+        this.interval = (long) (1_000_000_000L / perSecond);
+        this.tolerance = interval * (Math.max(burst, 1) - 1);
+        this.maxBuckets = maxBuckets;
+    }
+
+    //0 si se admite; si no, nanosegundos hasta que el cliente tenga otra peticion
+    long acquire(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            String key = buckets.size() < maxBuckets ? client : OVERFLOW[Math.floorMod(client.hashCode(), OVERFLOW_BUCKETS)];
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, now);
+            long wait = start - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    //Descarta los buckets llenos desde hace mas de idleNanos
+    int evictIdle(long now, long idleNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() + idleNanos < now);
+        return before - buckets.size();
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
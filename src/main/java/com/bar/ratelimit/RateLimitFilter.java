@@ -0,0 +1,209 @@
+package com.bar.ratelimit;
+
+import com.bar.warmup.WarmUpTraffic;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limita las peticiones antes de que lleguen a los controladores:
+ * <ul>
+ *     <li>por cliente (API key conocida o IP, de la conexion o de rate-limit.client-ip-header) y grupo de
+ *     rutas, con rate-limit.routes.{read,write,report,upload}.per-second y .burst; si se pasa responde 429
+ *     con Retry-After.</li>
+ *     <li>en total, con rate-limit.max-concurrent peticiones en curso; por encima responde 503 sin hacer nada mas
+ *     (y sin gastar del bucket del cliente).</li>
+ * </ul>
+ * No limita /actuator ni las peticiones de calentamiento (WarmUpTraffic).
+ * Metricas: ratelimit.requests (route, outcome = allowed / limited / shed), ratelimit.inflight y ratelimit.buckets.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RateLimitFilter implements WebFilter {
+
+    private static final byte[] LIMITED = "{\"message\":\"Demasiadas peticiones, intente mas tarde\",\"status\":429}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SHED = "{\"message\":\"Servicio saturado, intente mas tarde\",\"status\":503}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final Duration idleEviction;
+    private final String apiKeyHeader;
+    //Cabecera con la IP del cliente que escribe el proxy de delante; null si se conecta directo
+    private final String clientIpHeader;
+    //Solo estas claves tienen bucket propio; cualquier otra cuenta por la IP
+    private final Set<String> apiKeys;
+    private final WarmUpTraffic warmUp;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Map<RouteClass, ClientLimiter> limiters = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, Counter> allowed = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, Counter> limited = new EnumMap<>(RouteClass.class);
+    private final Map<RouteClass, Counter> shed = new EnumMap<>(RouteClass.class);
+
+    public RateLimitFilter(Environment environment, MeterRegistry meterRegistry, WarmUpTraffic warmUp) {
+        this.warmUp = warmUp;
+        this.enabled = environment.getProperty("rate-limit.enabled", Boolean.class, true);
+        this.maxConcurrent = environment.getProperty("rate-limit.max-concurrent", Integer.class, 256);
+        this.idleEviction = environment.getProperty("rate-limit.idle-eviction", Duration.class, Duration.ofMinutes(5));
+        this.apiKeyHeader = environment.getProperty("rate-limit.api-key-header", "X-API-Key");
+        String ipHeader = environment.getProperty("rate-limit.client-ip-header", "");
+        this.clientIpHeader = ipHeader.isBlank() ? null : ipHeader;
+        this.apiKeys = Set.of(environment.getProperty("rate-limit.api-keys", String[].class, new String[0]));
+        int maxBuckets = environment.getProperty("rate-limit.max-buckets", Integer.class, 100_000);
+
+        for (RouteClass route : RouteClass.values()) {
+            String prefix = "rate-limit.routes." + route.property();
+            limiters.put(route, new ClientLimiter(
+                    environment.getProperty(prefix + ".per-second", Double.class, defaultRate(route)),
+                    environment.getProperty(prefix + ".burst", Integer.class, defaultBurst(route)),
+                    maxBuckets
+            ));
+            allowed.put(route, counter(meterRegistry, route, "allowed"));
+            limited.put(route, counter(meterRegistry, route, "limited"));
+            shed.put(route, counter(meterRegistry, route, "shed"));
+
+            Gauge.builder("ratelimit.buckets", limiters.get(route), ClientLimiter::size)
+                    .tag("route", route.property())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ratelimit.inflight", inflight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        if (!enabled || path.startsWith("/actuator") || warmUp.matches(request)) {
+            return chain.filter(exchange);
+        }
+
+        RouteClass route = RouteClass.of(request.getMethod(), path);
+        String client = client(request);
+
+        //Las pantallas del feed de pedidos quedan conectadas horas: no cuentan como peticiones en curso
+        if (path.equals("/invoices/feed")) {
+            long wait = limiters.get(route).acquire(client, System.nanoTime());
+            return wait > 0 ? tooMany(exchange, route, wait) : allow(exchange, chain, route);
+        }
+
+        //Primero el limite global: una peticion descartada con 503 no gasta del bucket del cliente
+        if (inflight.incrementAndGet() > maxConcurrent) {
+            inflight.decrementAndGet();
+            shed.get(route).increment();
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, 1, SHED);
+        }
+
+        long wait = limiters.get(route).acquire(client, System.nanoTime());
+        if (wait > 0) {
+            inflight.decrementAndGet();
+            return tooMany(exchange, route, wait);
+        }
+
+        return allow(exchange, chain, route)
+                .doFinally(signal -> inflight.decrementAndGet());
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (ClientLimiter limiter : limiters.values()) {
+            evicted += limiter.evictIdle(now, idleEviction.toNanos());
+        }
+        if (evicted > 0) {
+            log.debug("Buckets de rate limit descartados: {}", evicted);
+        }
+    }
+
+    private String client(ServerHttpRequest request) {
+        if (!apiKeys.isEmpty()) {
+            String key = request.getHeaders().getFirst(apiKeyHeader);
+            if (key != null && apiKeys.contains(key)) {
+                return "key:" + key;
+            }
+        }
+
+        //Detras de un proxy todas las peticiones llegan desde su IP: la del cliente va en la cabecera que
+        //el proxy escribe. De una lista (X-Forwarded-For) vale la ultima: la que agrego el propio proxy
+        if (clientIpHeader != null) {
+            String forwarded = request.getHeaders().getFirst(clientIpHeader);
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+            }
+        }
+
+        //Sin cabecera configurada: la IP de la conexion (o la que deje server.forward-headers-strategy)
+        InetSocketAddress remote = request.getRemoteAddress();
+        return remote == null ? "unknown" : remote.getHostString();
+    }
+
+    private Mono<Void> allow(ServerWebExchange exchange, WebFilterChain chain, RouteClass route) {
+        allowed.get(route).increment();
+        return chain.filter(exchange);
+    }
+
+    //Retry-After va en segundos enteros: se redondea hacia arriba
+    private Mono<Void> tooMany(ServerWebExchange exchange, RouteClass route, long waitNanos) {
+        limited.get(route).increment();
+        return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, (waitNanos + 999_999_999L) / 1_000_000_000L, LIMITED);
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, long retryAfterSeconds, byte[] body) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, RouteClass route, String outcome) {
+        return Counter.builder("ratelimit.requests")
+                .tag("route", route.property())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static double defaultRate(RouteClass route) {
+        return switch (route) {
+            case READ -> 50;
+            case WRITE -> 10;
+            case REPORT -> 1;
+            case UPLOAD -> 0.2;
+        };
+    }
+
+    private static int defaultBurst(RouteClass route) {
+        return switch (route) {
+            case READ -> 100;
+            case WRITE -> 20;
+            case REPORT -> 5;
+            case UPLOAD -> 3;
+        };
+    }
+}
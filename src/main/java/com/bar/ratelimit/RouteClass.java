@@ -0,0 +1,38 @@
+package com.bar.ratelimit;
+
+import org.springframework.http.HttpMethod;
+
+//Grupos de rutas con su propio limite por cliente (rate-limit.routes.{grupo}.*)
+enum RouteClass {
+
+    READ("read"),
+    WRITE("write"),
+    REPORT("report"),
+    UPLOAD("upload");
+
+    private final String property;
+
+    RouteClass(String property) {
+        this.property = property;
+    }
+
+    String property() {
+        return property;
+    }
+
+    //Solo comparaciones de texto: corre en cada peticion, antes del ruteo
+    static RouteClass of(HttpMethod method, String path) {
+        if (path.startsWith("/invoices/generateReport/")
+                || path.startsWith("/invoices/summary/")
+                || path.startsWith("/invoices/export/")) {
+            return REPORT;
+        }
+        if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) {
+            return READ;
+        }
+        if (path.startsWith("/clients/") && path.contains("/upload/")) {
+            return UPLOAD;
+        }
+        return WRITE;
+    }
+}
@@ -1,8 +1,15 @@
 package com.bar.repo;
 
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.data.repository.NoRepositoryBean;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @NoRepositoryBean
 public interface IGenericRepo<T, ID> extends ReactiveMongoRepository<T, ID> {
+
+    Flux<T> findAll(Query query);
+    Mono<T> findOne(Query query);
+    Mono<Long> count(Query query);
 }
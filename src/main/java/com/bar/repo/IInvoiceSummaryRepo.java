@@ -0,0 +1,6 @@
+package com.bar.repo;
+
+import com.bar.model.InvoiceSummary;
+
+public interface IInvoiceSummaryRepo extends IGenericRepo<InvoiceSummary, String> {
+}
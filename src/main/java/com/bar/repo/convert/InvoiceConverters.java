@@ -0,0 +1,180 @@
+package com.bar.repo.convert;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Formato compacto de las facturas en MongoDB:
+ * <pre>
+ * { _id, schema: 3, description, issuedAt, total,
+ *   client: { _id, firstName, lastName },
+ *   items: [ { dishId, name, price, category, quantity } ] }
+ * </pre>
+ * La lectura tambien acepta los formatos anteriores: con el Client y el Dish completos embebidos,
+ * y sin issuedAt, que se toma del instante de creacion del ObjectId (ver InvoiceCompactionMigration).
+ */
+public final class InvoiceConverters {
+
+    public static final int SCHEMA_VERSION = 3;
+    public static final String SCHEMA = "schema";
+
+    private InvoiceConverters() {
+    }
+
+    public static List<Converter<?, ?>> all() {
+        return List.of(new InvoiceWriter(), new InvoiceReader());
+    }
+
+    @WritingConverter
+    public static class InvoiceWriter implements Converter<Invoice, Document> {
+
+        @Override
+        public Document convert(Invoice invoice) {
+            Document document = new Document();
+            if (invoice.getId() != null) {
+                document.put("_id", toObjectId(invoice.getId()));
+            }
+            document.put(SCHEMA, SCHEMA_VERSION);
+            putIfNotNull(document, "description", invoice.getDescription());
+            putIfNotNull(document, "issuedAt", toDate(invoice.getIssuedAt()));
+            putIfNotNull(document, "total", invoice.getTotal());
+
+            Client client = invoice.getClient();
+            if (client != null) {
+                Document compact = new Document();
+                putIfNotNull(compact, "_id", toObjectId(client.getId()));
+                putIfNotNull(compact, "firstName", client.getFirstName());
+                putIfNotNull(compact, "lastName", client.getLastName());
+                document.put("client", compact);
+            }
+
+            if (invoice.getItems() != null) {
+                List<Document> items = new ArrayList<>(invoice.getItems().size());
+                for (InvoiceDetail item : invoice.getItems()) {
+                    items.add(writeItem(item));
+                }
+                document.put("items", items);
+            }
+
+            return document;
+        }
+    }
+
+    @ReadingConverter
+    public static class InvoiceReader implements Converter<Document, Invoice> {
+
+        @Override
+        public Invoice convert(Document document) {
+            Invoice invoice = new Invoice();
+            invoice.setId(toId(document.get("_id")));
+            invoice.setDescription(document.getString("description"));
+            invoice.setIssuedAt(issuedAt(document));
+            //Las lineas agregadas con $inc pueden dejar decimales de mas en el total
+            Double total = toDouble(document.get("total"));
+            invoice.setTotal(total == null ? null : Math.round(total * 100) / 100.0);
+
+            Document client = document.get("client", Document.class);
+            if (client != null) {
+                Client compact = new Client();
+                compact.setId(toId(client.get("_id")));
+                compact.setFirstName(client.getString("firstName"));
+                compact.setLastName(client.getString("lastName"));
+                invoice.setClient(compact);
+            }
+
+            List<?> items = document.get("items", List.class);
+            if (items != null) {
+                List<InvoiceDetail> details = new ArrayList<>(items.size());
+                for (Object element : items) {
+                    details.add(readItem((Document) element));
+                }
+                invoice.setItems(details);
+            }
+
+            return invoice;
+        }
+    }
+
+    public static Document writeItem(InvoiceDetail item) {
+        Document line = new Document();
+        Dish dish = item.getDish();
+        if (dish != null) {
+            putIfNotNull(line, "dishId", toObjectId(dish.getId()));
+            putIfNotNull(line, "name", dish.getName());
+            putIfNotNull(line, "price", dish.getPrice());
+            putIfNotNull(line, "category", dish.getCategory());
+        }
+        putIfNotNull(line, "quantity", item.getQuantity());
+        return line;
+    }
+
+    public static InvoiceDetail readItem(Document line) {
+        Integer quantity = line.get("quantity") == null ? null : ((Number) line.get("quantity")).intValue();
+
+        //Formato anterior: { quantity, dish: { _id, name, price, status } }
+        Document legacy = line.get("dish", Document.class);
+        if (legacy != null) {
+            Dish dish = new Dish(toId(legacy.get("_id")), legacy.getString("name"), toDouble(legacy.get("price")), null);
+            return new InvoiceDetail(quantity, dish);
+        }
+
+        Dish dish = new Dish(toId(line.get("dishId")), line.getString("name"), toDouble(line.get("price")), null,
+                line.getString("category"));
+        return new InvoiceDetail(quantity, dish);
+    }
+
+    //Fecha de emision; las facturas anteriores a issuedAt usan la del ObjectId
+    public static LocalDateTime issuedAt(Document document) {
+        Object issuedAt = document.get("issuedAt");
+        if (issuedAt instanceof Date date) {
+            return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        }
+
+        Object id = document.get("_id");
+        return id instanceof ObjectId objectId
+                ? LocalDateTime.ofInstant(objectId.getDate().toInstant(), ZoneId.systemDefault())
+                : null;
+    }
+
+    public static Date toDate(LocalDateTime dateTime) {
+        return dateTime == null ? null : Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static void putIfNotNull(Document document, String key, Object value) {
+        if (value != null) {
+            document.put(key, value);
+        }
+    }
+
+    //Los ids de los documentos son ObjectId; se respetan los ids que no lo sean
+    public static Object toObjectId(String id) {
+        if (id == null) {
+            return null;
+        }
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private static String toId(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof ObjectId objectId ? objectId.toHexString() : value.toString();
+    }
+
+    private static Double toDouble(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+}
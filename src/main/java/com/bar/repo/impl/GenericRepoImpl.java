@@ -0,0 +1,39 @@
+package com.bar.repo.impl;
+
+import com.bar.repo.IGenericRepo;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
+import org.springframework.data.mongodb.repository.support.SimpleReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.Serializable;
+
+//Clase base de todos los repositorios (ver MongoConfig)
+public class GenericRepoImpl<T, ID extends Serializable> extends SimpleReactiveMongoRepository<T, ID> implements IGenericRepo<T, ID> {
+
+    private final MongoEntityInformation<T, ID> entityInformation;
+    private final ReactiveMongoOperations mongoOperations;
+
+    public GenericRepoImpl(MongoEntityInformation<T, ID> entityInformation, ReactiveMongoOperations mongoOperations) {
+        super(entityInformation, mongoOperations);
+        this.entityInformation = entityInformation;
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Flux<T> findAll(Query query) {
+        return mongoOperations.find(query, entityInformation.getJavaType(), entityInformation.getCollectionName());
+    }
+
+    @Override
+    public Mono<T> findOne(Query query) {
+        return mongoOperations.findOne(query, entityInformation.getJavaType(), entityInformation.getCollectionName());
+    }
+
+    @Override
+    public Mono<Long> count(Query query) {
+        return mongoOperations.count(query, entityInformation.getJavaType(), entityInformation.getCollectionName());
+    }
+}
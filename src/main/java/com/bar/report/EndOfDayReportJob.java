@@ -0,0 +1,62 @@
+package com.bar.report;
+
+import com.bar.export.DailySummary;
+import com.bar.service.IInvoiceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Al cierre genera los PDF de las facturas del dia y el resumen de ventas y los archiva en GridFS,
+ * para que las consultas de los encargados no tengan que volver a llenar los reportes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EndOfDayReportJob {
+
+    private final IInvoiceService service;
+    private final ReportArchive archive;
+
+    //Reportes que se generan a la vez; el pool de reportes limita ademas los hilos
+    @Value("${report.archive.concurrency:2}")
+    private int concurrency;
+
+    @Scheduled(cron = "${report.archive.cron:0 30 23 * * *}")
+    public void archiveToday() {
+        LocalDate today = LocalDate.now();
+
+        archive(today).subscribe(
+                count -> log.info("Reportes archivados del {}: {} facturas", today, count),
+                e -> log.warn("No se pudieron archivar los reportes del " + today, e)
+        );
+    }
+
+    public Mono<Long> archive(LocalDate day) {
+        return service.exportLines(day)
+                .reduce(new DailySummary(day), DailySummary::add)
+                .flatMap(summary -> Flux.fromIterable(summary.getInvoiceIds())
+                        .flatMap(id -> archiveInvoice(id, day), concurrency)
+                        .filter(Boolean::booleanValue)
+                        .count()
+                        .flatMap(count -> archive.storeSummary(day, summary.toCsv()).thenReturn(count))
+                );
+    }
+
+    private Mono<Boolean> archiveInvoice(String invoiceId, LocalDate day) {
+        return service.generateReport(invoiceId, ReportFormat.PDF)
+                .filter(pdf -> pdf.length > 0)
+                .flatMap(pdf -> archive.storeInvoice(invoiceId, day, pdf).thenReturn(true))
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.warn("No se pudo archivar la factura " + invoiceId, e);
+                    return Mono.just(false);
+                });
+    }
+}
@@ -0,0 +1,18 @@
+package com.bar.report;
+
+import com.bar.model.Invoice;
+
+import java.io.OutputStream;
+
+public interface IReportRenderer {
+
+    ReportFormat getFormat();
+
+    //true si el reporte se debe escribir en trozos directo a la respuesta en vez de armar un byte[]
+    default boolean isStreamed(Invoice invoice) {
+        return false;
+    }
+
+    //Recibe la factura con cliente y platos ya cargados
+    void render(Invoice invoice, OutputStream out) throws Exception;
+}
@@ -0,0 +1,79 @@
+package com.bar.report;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsResource;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+/**
+ * PDFs de facturas y resumenes diarios ya generados, guardados en GridFS (fs.files / fs.chunks).
+ * Se buscan por nombre de archivo, que GridFS indexa.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReportArchive {
+
+    private final ReactiveGridFsTemplate gridFs;
+
+    public Mono<Void> storeInvoice(String invoiceId, LocalDate day, byte[] pdf) {
+        Document metadata = new Document("type", "invoice")
+                .append("invoiceId", invoiceId)
+                .append("day", day.toString());
+
+        return store(invoiceFilename(invoiceId), ReportFormat.PDF.getMediaType().toString(), metadata, pdf);
+    }
+
+    public Mono<Void> storeSummary(LocalDate day, byte[] csv) {
+        Document metadata = new Document("type", "summary")
+                .append("day", day.toString());
+
+        return store(summaryFilename(day), "text/csv;charset=UTF-8", metadata, csv);
+    }
+
+    //Vacio si la factura no esta archivada
+    public Mono<Flux<DataBuffer>> findInvoice(String invoiceId) {
+        return find(invoiceFilename(invoiceId));
+    }
+
+    public Mono<Flux<DataBuffer>> findSummary(LocalDate day) {
+        return find(summaryFilename(day));
+    }
+
+    //Al modificar o eliminar la factura el PDF archivado deja de ser valido
+    public Mono<Void> evictInvoice(String invoiceId) {
+        return gridFs.delete(query(whereFilename().is(invoiceFilename(invoiceId))));
+    }
+
+    private Mono<Void> store(String filename, String contentType, Document metadata, byte[] content) {
+        Flux<DataBuffer> body = Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content));
+
+        return gridFs.delete(query(whereFilename().is(filename)))
+                .then(gridFs.store(body, filename, contentType, metadata))
+                .then();
+    }
+
+    private Mono<Flux<DataBuffer>> find(String filename) {
+        return gridFs.findFirst(query(whereFilename().is(filename)).with(Sort.by(Sort.Direction.DESC, "uploadDate")))
+                .flatMap(gridFs::getResource)
+                .map(ReactiveGridFsResource::getDownloadStream);
+    }
+
+    private static String invoiceFilename(String invoiceId) {
+        return "invoice-" + invoiceId + ".pdf";
+    }
+
+    private static String summaryFilename(LocalDate day) {
+        return "summary-" + day + ".csv";
+    }
+}
@@ -0,0 +1,57 @@
+package com.bar.report;
+
+import com.bar.exception.ValidationException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public enum ReportFormat {
+
+    //Factura formal (JasperReports)
+    PDF(MediaType.APPLICATION_PDF),
+    //Recibos rapidos
+    HTML(new MediaType("text", "html", StandardCharsets.UTF_8)),
+    TEXT(new MediaType("text", "plain", StandardCharsets.UTF_8)),
+    ESCPOS(new MediaType("application", "vnd.escpos"));
+
+    private final MediaType mediaType;
+
+    ReportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    //El parametro format tiene prioridad sobre el header Accept; por defecto se genera el PDF
+    public static ReportFormat resolve(String format, List<MediaType> accept) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Formato de reporte desconocido: " + format);
+            }
+        }
+
+        List<MediaType> sorted = new ArrayList<>(accept);
+        MimeTypeUtils.sortBySpecificity(sorted);
+
+        for (MediaType requested : sorted) {
+            if (requested.isWildcardType()) {
+                return PDF;
+            }
+            for (ReportFormat candidate : values()) {
+                if (requested.isCompatibleWith(candidate.mediaType)) {
+                    return candidate;
+                }
+            }
+        }
+
+        return PDF;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bar.report.impl;
+
+import com.bar.report.ReportFormat;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.Charset;
+
+/**
+ * El mismo recibo de texto con los comandos ESC/POS para enviarlo directo a la impresora:
+ * inicializa, selecciona la pagina de codigos PC850 (tildes y ñ) y corta el papel al final.
+ */
+@Component
+public class EscPosReceiptRenderer extends TextReceiptRenderer {
+
+    private static final char ESC = 0x1B;
+    private static final char GS = 0x1D;
+
+    public EscPosReceiptRenderer() {
+        super(Charset.forName("IBM850"));
+    }
+
+    @Override
+    public ReportFormat getFormat() {
+        return ReportFormat.ESCPOS;
+    }
+
+    @Override
+    protected void begin(StringBuilder sb) {
+        //ESC @ (reset) y ESC t 2 (PC850)
+        sb.append(ESC).append('@').append(ESC).append('t').append((char) 2);
+    }
+
+    @Override
+    protected void bold(StringBuilder sb, boolean on) {
+        sb.append(ESC).append('E').append((char) (on ? 1 : 0));
+    }
+
+    @Override
+    protected void end(StringBuilder sb) {
+        //ESC d 4 (avanza 4 lineas) y GS V 66 0 (corte parcial)
+        sb.append(ESC).append('d').append((char) 4);
+        sb.append(GS).append('V').append((char) 66).append((char) 0);
+    }
+}
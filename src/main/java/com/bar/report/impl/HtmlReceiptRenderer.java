@@ -0,0 +1,183 @@
+package com.bar.report.impl;
+
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.report.ReportFormat;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recibo HTML a partir de templates/receipt.html. La plantilla se separa una sola vez en
+ * trozos de texto fijo y marcadores {{campo}}; el bloque {{#items}}...{{/items}} se repite
+ * por cada linea de la factura.
+ */
+@Component
+public class HtmlReceiptRenderer extends ReceiptRenderer {
+
+    private static final String TEMPLATE = "templates/receipt.html";
+    private static final String ITEMS_START = "{{#items}}";
+    private static final String ITEMS_END = "{{/items}}";
+
+    private final Segment[] header;
+    private final Segment[] item;
+    private final Segment[] footer;
+
+    public HtmlReceiptRenderer() {
+        super(StandardCharsets.UTF_8);
+
+        String template = load();
+        int start = template.indexOf(ITEMS_START);
+        int end = template.indexOf(ITEMS_END);
+        if (start < 0 || end < start) {
+            throw new IllegalStateException(TEMPLATE + " debe contener un bloque " + ITEMS_START + "..." + ITEMS_END);
+        }
+
+        this.header = compile(template.substring(0, start), false);
+        this.item = compile(template.substring(start + ITEMS_START.length(), end), true);
+        this.footer = compile(template.substring(end + ITEMS_END.length()), false);
+    }
+
+    @Override
+    public ReportFormat getFormat() {
+        return ReportFormat.HTML;
+    }
+
+    @Override
+    protected void write(Invoice invoice, StringBuilder sb) {
+        long total = totalCents(invoice);
+
+        writeSegments(header, invoice, null, total, sb);
+        if (invoice.getItems() != null) {
+            for (InvoiceDetail detail : invoice.getItems()) {
+                writeSegments(item, invoice, detail, total, sb);
+            }
+        }
+        writeSegments(footer, invoice, null, total, sb);
+    }
+
+    private void writeSegments(Segment[] segments, Invoice invoice, InvoiceDetail detail, long total, StringBuilder sb) {
+        for (Segment segment : segments) {
+            if (segment.text() != null) {
+                sb.append(segment.text());
+                continue;
+            }
+
+            switch (segment.field()) {
+                case ID -> escape(sb, invoice.getId());
+                case DESCRIPTION -> escape(sb, invoice.getDescription());
+                case CLIENT -> {
+                    int from = sb.length();
+                    appendClient(sb, invoice.getClient());
+                    escapeInPlace(sb, from);
+                }
+                case TOTAL -> appendMoney(sb, total);
+                case QUANTITY -> sb.append(quantity(detail));
+                case DISH -> escape(sb, dishName(detail));
+                case PRICE -> appendMoney(sb, priceCents(detail));
+                case LINE_TOTAL -> appendMoney(sb, lineCents(detail));
+            }
+        }
+    }
+
+    private static Segment[] compile(String template, boolean itemScope) {
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+
+        while (position < template.length()) {
+            int open = template.indexOf("{{", position);
+            if (open < 0) {
+                segments.add(new Segment(template.substring(position), null));
+                break;
+            }
+
+            int close = template.indexOf("}}", open);
+            if (close < 0) {
+                throw new IllegalStateException("Marcador sin cerrar en " + TEMPLATE);
+            }
+
+            if (open > position) {
+                segments.add(new Segment(template.substring(position, open), null));
+            }
+            segments.add(new Segment(null, Field.of(template.substring(open + 2, close).trim(), itemScope)));
+            position = close + 2;
+        }
+
+        return segments.toArray(Segment[]::new);
+    }
+
+    private static String load() {
+        try (InputStream in = new ClassPathResource(TEMPLATE).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + TEMPLATE, e);
+        }
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            appendEscaped(sb, value.charAt(i));
+        }
+    }
+
+    private static void escapeInPlace(StringBuilder sb, int from) {
+        for (int i = from; i < sb.length(); i++) {
+            if (needsEscape(sb.charAt(i))) {
+                String raw = sb.substring(from);
+                sb.setLength(from);
+                escape(sb, raw);
+                return;
+            }
+        }
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == '<' || c == '>' || c == '&' || c == '"' || c == '\'';
+    }
+
+    private static void appendEscaped(StringBuilder sb, char c) {
+        switch (c) {
+            case '<' -> sb.append("&lt;");
+            case '>' -> sb.append("&gt;");
+            case '&' -> sb.append("&amp;");
+            case '"' -> sb.append("&quot;");
+            case '\'' -> sb.append("&#39;");
+            default -> sb.append(c);
+        }
+    }
+
+    private enum Field {
+        ID, DESCRIPTION, CLIENT, TOTAL, QUANTITY, DISH, PRICE, LINE_TOTAL;
+
+        //Dentro del bloque de items {{total}} es el total de la linea
+        static Field of(String name, boolean itemScope) {
+            Field field = switch (name) {
+                case "id" -> ID;
+                case "description" -> DESCRIPTION;
+                case "client" -> CLIENT;
+                case "total" -> itemScope ? LINE_TOTAL : TOTAL;
+                case "quantity" -> QUANTITY;
+                case "dish" -> DISH;
+                case "price" -> PRICE;
+                default -> throw new IllegalStateException("Marcador desconocido en " + TEMPLATE + ": " + name);
+            };
+
+            if (!itemScope && (field == QUANTITY || field == DISH || field == PRICE)) {
+                throw new IllegalStateException("{{" + name + "}} solo se puede usar dentro de " + ITEMS_START);
+            }
+            return field;
+        }
+    }
+
+    private record Segment(String text, Field field) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.bar.report.impl;
+
+import com.bar.model.InvoiceDetail;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRField;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Recorre las lineas de la factura una a una sin copiarlas ni usar reflexion por campo
+ * como JRBeanCollectionDataSource. Jasper solo mantiene la linea actual.
+ */
+class InvoiceItemDataSource implements JRDataSource {
+
+    private final Iterator<InvoiceDetail> items;
+    private InvoiceDetail current;
+
+    InvoiceItemDataSource(List<InvoiceDetail> items) {
+        this.items = items == null ? List.<InvoiceDetail>of().iterator() : items.iterator();
+    }
+
+    @Override
+    public boolean next() {
+        current = items.hasNext() ? items.next() : null;
+        return current != null;
+    }
+
+    @Override
+    public Object getFieldValue(JRField field) {
+        return switch (field.getName()) {
+            case "quantity" -> current.getQuantity();
+            case "dish" -> current.getDish();
+            default -> null;
+        };
+    }
+}
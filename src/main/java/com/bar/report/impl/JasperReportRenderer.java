@@ -0,0 +1,92 @@
+package com.bar.report.impl;
+
+import com.bar.model.Invoice;
+import com.bar.report.IReportRenderer;
+import com.bar.report.ReportFormat;
+import com.bar.timing.RequestTimings;
+import net.sf.jasperreports.engine.*;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class JasperReportRenderer implements IReportRenderer {
+
+    //Tamaño de bloque y crecimiento del archivo de intercambio del virtualizador
+    private static final int SWAP_BLOCK_SIZE = 4096;
+    private static final int SWAP_MIN_GROW = 256;
+
+    @Value("${report.large-invoice.threshold:500}")
+    private int largeInvoiceThreshold;
+
+    @Value("${report.virtualizer.max-pages:50}")
+    private int maxPagesInMemory;
+
+    @Value("${report.virtualizer.directory:${java.io.tmpdir}}")
+    private String swapDirectory;
+
+    //El jrxml compilado no cambia y Jasper lo puede llenar desde varios hilos a la vez
+    private volatile JasperReport compiled;
+
+    @Override
+    public ReportFormat getFormat() {
+        return ReportFormat.PDF;
+    }
+
+    @Override
+    public boolean isStreamed(Invoice invoice) {
+        return invoice.getItems() != null && invoice.getItems().size() > largeInvoiceThreshold;
+    }
+
+    @Override
+    public void render(Invoice invoice, OutputStream out) throws Exception {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("txt_client", invoice.getClient().getFirstName());
+
+        //Facturas grandes: las paginas ya llenadas pasan a disco en vez de quedarse en el JasperPrint
+        JRSwapFileVirtualizer virtualizer = null;
+        if (isStreamed(invoice)) {
+            virtualizer = new JRSwapFileVirtualizer(maxPagesInMemory, new JRSwapFile(swapDirectory, SWAP_BLOCK_SIZE, SWAP_MIN_GROW), true);
+            parameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+        }
+
+        try {
+            JasperReport report = report();
+            JasperPrint print = RequestTimings.time("jasper-fill",
+                    () -> JasperFillManager.fillReport(report, parameters, new InvoiceItemDataSource(invoice.getItems())));
+            if (virtualizer != null) {
+                virtualizer.setReadOnly(true);
+            }
+            RequestTimings.time("pdf-export", () -> {
+                JasperExportManager.exportReportToPdfStream(print, out);
+                return null;
+            });
+        } finally {
+            if (virtualizer != null) {
+                virtualizer.cleanup();
+            }
+        }
+    }
+
+    private JasperReport report() throws Exception {
+        JasperReport report = compiled;
+        if (report == null) {
+            synchronized (this) {
+                report = compiled;
+                if (report == null) {
+                    try (InputStream stream = getClass().getResourceAsStream("/facturas.jrxml")) {
+                        report = RequestTimings.time("jasper-compile", () -> JasperCompileManager.compileReport(stream));
+                    }
+                    compiled = report;
+                }
+            }
+        }
+        return report;
+    }
+}
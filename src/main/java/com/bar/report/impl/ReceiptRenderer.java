@@ -0,0 +1,133 @@
+package com.bar.report.impl;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.report.IReportRenderer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Base de los recibos rapidos (HTML y texto). Cada hilo reutiliza su StringBuilder y su
+ * buffer de bytes, asi que un recibo no crea objetos por linea ni copias intermedias.
+ */
+abstract class ReceiptRenderer implements IReportRenderer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_SIZE));
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+    private final ThreadLocal<CharsetEncoder> encoders;
+
+    protected ReceiptRenderer(Charset charset) {
+        this.encoders = ThreadLocal.withInitial(() -> charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    @Override
+    public void render(Invoice invoice, OutputStream out) throws IOException {
+        StringBuilder sb = builders.get();
+        sb.setLength(0);
+        try {
+            write(invoice, sb);
+            encode(sb, out);
+        } finally {
+            //No se retienen recibos enormes en el hilo
+            if (sb.capacity() > BUFFER_SIZE * 8) {
+                builders.remove();
+            }
+        }
+    }
+
+    protected abstract void write(Invoice invoice, StringBuilder sb);
+
+    private void encode(CharSequence text, OutputStream out) throws IOException {
+        CharsetEncoder encoder = encoders.get().reset();
+        ByteBuffer buffer = buffers.get();
+        CharBuffer chars = CharBuffer.wrap(text);
+
+        CoderResult result;
+        do {
+            buffer.clear();
+            result = encoder.encode(chars, buffer, true);
+            out.write(buffer.array(), 0, buffer.position());
+        } while (result.isOverflow());
+
+        do {
+            buffer.clear();
+            result = encoder.flush(buffer);
+            out.write(buffer.array(), 0, buffer.position());
+        } while (result.isOverflow());
+    }
+
+    protected static long totalCents(Invoice invoice) {
+        long total = 0;
+        if (invoice.getItems() != null) {
+            for (InvoiceDetail item : invoice.getItems()) {
+                total += lineCents(item);
+            }
+        }
+        return total;
+    }
+
+    protected static long lineCents(InvoiceDetail item) {
+        return quantity(item) * priceCents(item);
+    }
+
+    protected static int quantity(InvoiceDetail item) {
+        return item.getQuantity() == null ? 0 : item.getQuantity();
+    }
+
+    protected static long priceCents(InvoiceDetail item) {
+        Dish dish = item.getDish();
+        return dish == null || dish.getPrice() == null ? 0 : Math.round(dish.getPrice() * 100);
+    }
+
+    protected static String dishName(InvoiceDetail item) {
+        Dish dish = item.getDish();
+        return dish == null || dish.getName() == null ? "" : dish.getName();
+    }
+
+    protected static void appendClient(StringBuilder sb, Client client) {
+        if (client == null || client.getFirstName() == null) {
+            return;
+        }
+        sb.append(client.getFirstName());
+        if (client.getLastName() != null) {
+            sb.append(' ').append(client.getLastName());
+        }
+    }
+
+    //Importe en centimos a "1234.50" sin pasar por String.format ni BigDecimal
+    protected static void appendMoney(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    protected static int moneyLength(long cents) {
+        int length = cents < 0 ? 4 : 3;
+        long units = Math.abs(cents) / 100;
+        do {
+            length++;
+            units /= 10;
+        } while (units > 0);
+        return length;
+    }
+}
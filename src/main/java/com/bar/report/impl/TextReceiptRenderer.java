@@ -0,0 +1,148 @@
+package com.bar.report.impl;
+
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.report.ReportFormat;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Recibo de texto plano para impresora termica de 80mm (48 columnas con la fuente A).
+ */
+@Component
+public class TextReceiptRenderer extends ReceiptRenderer {
+
+    protected static final int WIDTH = 48;
+
+    //Cant(4) Plato(23) P.Unit(9) Total(9) separadas por un espacio
+    private static final int QUANTITY_WIDTH = 4;
+    private static final int DISH_WIDTH = 23;
+    private static final int MONEY_WIDTH = 9;
+
+    public TextReceiptRenderer() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    protected TextReceiptRenderer(Charset charset) {
+        super(charset);
+    }
+
+    @Override
+    public ReportFormat getFormat() {
+        return ReportFormat.TEXT;
+    }
+
+    @Override
+    protected void write(Invoice invoice, StringBuilder sb) {
+        begin(sb);
+
+        bold(sb, true);
+        center(sb, invoice.getDescription());
+        bold(sb, false);
+
+        sb.append("Cliente: ");
+        int from = sb.length();
+        appendClient(sb, invoice.getClient());
+        truncate(sb, from, WIDTH - 9);
+        sb.append('\n');
+        sb.append("Factura: ").append(invoice.getId()).append('\n');
+        rule(sb);
+
+        padRight(sb, "Cant", QUANTITY_WIDTH);
+        sb.append(' ');
+        padRight(sb, "Plato", DISH_WIDTH);
+        sb.append(' ');
+        padLeft(sb, "P.Unit", MONEY_WIDTH);
+        sb.append(' ');
+        padLeft(sb, "Total", MONEY_WIDTH);
+        sb.append('\n');
+
+        if (invoice.getItems() != null) {
+            for (InvoiceDetail item : invoice.getItems()) {
+                int quantity = quantity(item);
+                spaces(sb, QUANTITY_WIDTH - digits(quantity));
+                sb.append(quantity).append(' ');
+                padRight(sb, dishName(item), DISH_WIDTH);
+                sb.append(' ');
+                money(sb, priceCents(item), MONEY_WIDTH);
+                sb.append(' ');
+                money(sb, lineCents(item), MONEY_WIDTH);
+                sb.append('\n');
+            }
+        }
+
+        rule(sb);
+        bold(sb, true);
+        long total = totalCents(invoice);
+        sb.append("TOTAL");
+        money(sb, total, WIDTH - 5);
+        sb.append('\n');
+        bold(sb, false);
+
+        end(sb);
+    }
+
+    //Puntos de extension para los comandos de impresora (ver EscPosReceiptRenderer)
+    protected void begin(StringBuilder sb) {
+    }
+
+    protected void bold(StringBuilder sb, boolean on) {
+    }
+
+    protected void end(StringBuilder sb) {
+        sb.append('\n');
+    }
+
+    private static void center(StringBuilder sb, String text) {
+        String value = text == null ? "" : text;
+        int length = Math.min(value.length(), WIDTH);
+        spaces(sb, (WIDTH - length) / 2);
+        sb.append(value, 0, length).append('\n');
+    }
+
+    private static void rule(StringBuilder sb) {
+        for (int i = 0; i < WIDTH; i++) {
+            sb.append('-');
+        }
+        sb.append('\n');
+    }
+
+    private static void money(StringBuilder sb, long cents, int width) {
+        spaces(sb, width - moneyLength(cents));
+        appendMoney(sb, cents);
+    }
+
+    private static void padRight(StringBuilder sb, String value, int width) {
+        int length = Math.min(value.length(), width);
+        sb.append(value, 0, length);
+        spaces(sb, width - length);
+    }
+
+    private static void padLeft(StringBuilder sb, String value, int width) {
+        int length = Math.min(value.length(), width);
+        spaces(sb, width - length);
+        sb.append(value, 0, length);
+    }
+
+    private static void truncate(StringBuilder sb, int from, int width) {
+        if (sb.length() - from > width) {
+            sb.setLength(from + width);
+        }
+    }
+
+    private static void spaces(StringBuilder sb, int count) {
+        for (int i = 0; i < count; i++) {
+            sb.append(' ');
+        }
+    }
+
+    private static int digits(int value) {
+        int digits = value < 0 ? 2 : 1;
+        for (int v = Math.abs(value); v >= 10; v /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,223 @@
+package com.bar.search;
+
+import com.bar.dto.DishDTO;
+import com.bar.event.DishChangedEvent;
+import com.bar.model.Dish;
+import com.bar.repo.IDishRepo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Indice en memoria de prefijos de palabra (edge n-grams) sobre Dish.name para el autocompletado.
+ * No distingue mayusculas ni tildes. Cada prefijo guarda sus platos ya ordenados:
+ * activos primero, luego los que empiezan por el texto buscado y luego los nombres mas cortos.
+ * Las lecturas no bloquean; las escrituras reemplazan los arreglos afectados.
+ * Los DishChangedEvent que llegan mientras se carga el indice se aplican en el momento y la carga no
+ * pisa esos platos: el evento es posterior a lo que pudo leer la consulta.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DishNameIndex {
+
+    private static final int MAX_PREFIX = 20;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private final IDishRepo repo;
+    @Qualifier("defaultMapper")
+    private final ModelMapper modelMapper;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry[]> prefixes = new ConcurrentHashMap<>();
+
+    //Platos con eventos durante la carga; null si no se esta cargando. Se accede con el lock del indice
+    private Set<String> changedWhileLoading;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        loadAll().subscribe(null, e -> log.warn("No se pudo cargar el indice de platos", e));
+    }
+
+    Mono<Void> loadAll() {
+        return Flux.defer(() -> {
+                    synchronized (this) {
+                        changedWhileLoading = new HashSet<>();
+                    }
+                    return repo.findAll();
+                })
+                .doOnNext(this::putLoaded)
+                .doFinally(signal -> {
+                    synchronized (this) {
+                        changedWhileLoading = null;
+                    }
+                })
+                .then();
+    }
+
+    private synchronized void putLoaded(Dish dish) {
+        if (changedWhileLoading == null || !changedWhileLoading.contains(dish.getId())) {
+            put(dish);
+        }
+    }
+
+    @EventListener
+    public synchronized void onDishChanged(DishChangedEvent event) {
+        if (changedWhileLoading != null) {
+            changedWhileLoading.add(event.getDishId());
+        }
+        if (event.isDeleted()) {
+            remove(event.getDishId());
+        } else {
+            put(event.getDish());
+        }
+    }
+
+    public List<DishDTO> search(String text, int limit) {
+        String[] tokens = tokenize(text);
+        if (tokens.length == 0) {
+            return List.of();
+        }
+
+        //Se recorre la lista del token mas largo (la mas corta) y se filtra por el resto
+        String longest = tokens[0];
+        for (String token : tokens) {
+            if (token.length() > longest.length()) {
+                longest = token;
+            }
+        }
+
+        Entry[] candidates = prefixes.getOrDefault(key(longest), EMPTY);
+        List<DishDTO> result = new ArrayList<>(Math.min(limit, candidates.length));
+
+        for (Entry entry : candidates) {
+            if (entry.matches(tokens)) {
+                result.add(entry.dto());
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public synchronized void put(Dish dish) {
+        Entry previous = entries.get(dish.getId());
+        if (previous != null) {
+            removeEntry(previous);
+        }
+
+        String[] tokens = tokenize(dish.getName());
+        Entry entry = new Entry(
+                dish.getId(),
+                String.join(" ", tokens),
+                tokens,
+                Boolean.TRUE.equals(dish.getStatus()),
+                modelMapper.map(dish, DishDTO.class)
+        );
+        entries.put(entry.id(), entry);
+
+        for (String key : keys(entry)) {
+            Comparator<Entry> order = ranking(key);
+            prefixes.compute(key, (k, current) -> {
+                Entry[] source = current == null ? EMPTY : current;
+                int position = Arrays.binarySearch(source, entry, order);
+                int index = position < 0 ? -position - 1 : position;
+
+                Entry[] updated = new Entry[source.length + 1];
+                System.arraycopy(source, 0, updated, 0, index);
+                updated[index] = entry;
+                System.arraycopy(source, index, updated, index + 1, source.length - index);
+                return updated;
+            });
+        }
+    }
+
+    public synchronized void remove(String dishId) {
+        Entry previous = entries.remove(dishId);
+        if (previous != null) {
+            removeEntry(previous);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        for (String key : keys(entry)) {
+            prefixes.computeIfPresent(key, (k, current) -> {
+                Entry[] updated = Arrays.stream(current).filter(e -> !e.id().equals(entry.id())).toArray(Entry[]::new);
+                return updated.length == 0 ? null : updated;
+            });
+        }
+    }
+
+    private static Set<String> keys(Entry entry) {
+        Set<String> keys = new HashSet<>();
+        for (String token : entry.tokens()) {
+            for (int i = 1; i <= Math.min(token.length(), MAX_PREFIX); i++) {
+                keys.add(token.substring(0, i));
+            }
+        }
+        return keys;
+    }
+
+    private static String key(String token) {
+        return token.length() > MAX_PREFIX ? token.substring(0, MAX_PREFIX) : token;
+    }
+
+    private static Comparator<Entry> ranking(String key) {
+        return Comparator.comparing((Entry e) -> !e.active())
+                .thenComparing(e -> !e.name().startsWith(key))
+                .thenComparingInt(e -> e.name().length())
+                .thenComparing(Entry::name)
+                .thenComparing(Entry::id);
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String cleaned = SEPARATORS.matcher(normalized.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return cleaned.isEmpty() ? new String[0] : cleaned.split(" ");
+    }
+
+    private record Entry(String id, String name, String[] tokens, boolean active, DishDTO dto) {
+
+        boolean matches(String[] query) {
+            for (String q : query) {
+                boolean found = false;
+                for (String token : tokens) {
+                    if (token.startsWith(q)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.bar.service;
 
 import com.bar.pagination.PageSupport;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -13,4 +15,8 @@ public interface ICRUD<T, ID> {
     Mono<T> findById(ID id);
     Mono<Boolean> delete(ID id);
     Mono<PageSupport<T>> getPage(Pageable pageable);
+
+    Flux<T> query(QueryFilter filter, FieldSelection fields);
+    Mono<T> findById(ID id, FieldSelection fields);
+    Mono<PageSupport<T>> getPage(Pageable pageable, QueryFilter filter, FieldSelection fields);
 }
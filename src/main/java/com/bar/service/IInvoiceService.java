@@ -1,10 +1,37 @@
 package com.bar.service;
 
 
+import com.bar.export.InvoiceLine;
 import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.report.ReportFormat;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+
 public interface IInvoiceService extends ICRUD<Invoice, String> {
 
     Mono<byte[]> generateReport(String idInvoice);
+
+    Mono<byte[]> generateReport(String idInvoice, ReportFormat format);
+
+    //Las facturas grandes se escriben en varios DataBuffer mientras se genera el PDF
+    Mono<Flux<DataBuffer>> generateReport(String idInvoice, ReportFormat format, DataBufferFactory bufferFactory);
+
+    Flux<InvoiceLine> exportLines();
+
+    //Lineas de las facturas creadas ese dia
+    Flux<InvoiceLine> exportLines(LocalDate day);
+
+    Mono<Flux<DataBuffer>> findDailySummary(LocalDate day);
+
+    //Cuenta abierta: si el plato ya esta en la factura se suma la cantidad; devuelve la linea como quedo
+    Mono<InvoiceDetail> addItem(String idInvoice, InvoiceDetail item);
+
+    Mono<InvoiceDetail> changeItemQuantity(String idInvoice, String idDish, int delta);
+
+    Mono<Boolean> removeItem(String idInvoice, String idDish);
 }
@@ -0,0 +1,10 @@
+package com.bar.service;
+
+import com.bar.model.InvoiceSummary;
+import reactor.core.publisher.Mono;
+
+public interface IInvoiceSummaryService extends ICRUD<InvoiceSummary, String> {
+
+    //Regenera invoice_summaries completa a partir de invoices; devuelve cuantos resumenes quedaron
+    Mono<Long> rebuild();
+}
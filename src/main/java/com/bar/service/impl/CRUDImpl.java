@@ -1,18 +1,58 @@
 package com.bar.service.impl;
 
+import com.bar.coalesce.InsertBatcher;
+import com.bar.coalesce.InsertBatcherRegistry;
+import com.bar.coalesce.SingleFlight;
+import com.bar.coalesce.SingleFlightRegistry;
 import com.bar.pagination.PageSupport;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
 import com.bar.repo.IGenericRepo;
 import com.bar.service.ICRUD;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Locale;
+
 public abstract class CRUDImpl<T, ID> implements ICRUD<T, ID> {
 
     protected abstract IGenericRepo<T, ID> getRepo();
 
+    private SingleFlight<ID, T> findByIdFlight;
+    private InsertBatcher<T> insertBatcher;
+
+    @Autowired
+    public void setSingleFlightRegistry(SingleFlightRegistry registry) {
+        this.findByIdFlight = registry.create("find-by-id", resourceName());
+    }
+
+    @Autowired
+    public void setInsertBatcherRegistry(InsertBatcherRegistry registry) {
+        this.insertBatcher = registry.create(entityType(), resourceName());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Class<T> entityType() {
+        return (Class<T>) GenericTypeResolver.resolveTypeArguments(getClass(), CRUDImpl.class)[0];
+    }
+
+    //ClientServiceImpl -> client; se usa como etiqueta en las metricas
+    protected String resourceName() {
+        return getClass().getSimpleName().replace("ServiceImpl", "").toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public Mono<T> save(T t) {
+        //Con write-batching.enabled las inserciones simultaneas se envian juntas en un insertAll
+        if (insertBatcher.accepts(t)) {
+            return insertBatcher.insert(t);
+        }
         return getRepo().save(t);
     }
 
@@ -28,7 +68,8 @@ public abstract class CRUDImpl<T, ID> implements ICRUD<T, ID> {
 
     @Override
     public Mono<T> findById(ID id) {
-        return getRepo().findById(id);
+        //Las lecturas simultaneas del mismo id comparten una sola consulta
+        return findByIdFlight.execute(id, () -> getRepo().findById(id));
     }
 
     @Override
@@ -46,18 +87,41 @@ public abstract class CRUDImpl<T, ID> implements ICRUD<T, ID> {
 
     @Override
     public Mono<PageSupport<T>> getPage(Pageable pageable) {
-        return getRepo().findAll()
+        return getPage(pageable, QueryFilter.NONE, FieldSelection.ALL);
+    }
+
+    @Override
+    public Flux<T> query(QueryFilter filter, FieldSelection fields) {
+        return getRepo().findAll(fields.applyTo(filter.toQuery()));
+    }
+
+    @Override
+    public Mono<T> findById(ID id, FieldSelection fields) {
+        if (fields.isAll()) {
+            return findById(id);
+        }
+
+        return getRepo().findOne(fields.applyTo(new Query(Criteria.where("id").is(id))));
+    }
+
+    @Override
+    public Mono<PageSupport<T>> getPage(Pageable pageable, QueryFilter filter, FieldSelection fields) {
+        Query query = fields.applyTo(filter.toQuery()).with(pageable);
+
+        //El id al final desempata: ordenando solo por un campo que se repite, skip/limit puede repetir u
+        //omitir documentos entre paginas
+        if (filter.getSort().getOrderFor("id") == null) {
+            query.with(Sort.by("id"));
+        }
+
+        return getRepo().findAll(query)
                 .collectList()
-                .map(list -> new PageSupport<>(
-                        //1,2,3,4,5,6,7,8,9,10
-                        list.stream()
-                                .skip(pageable.getPageNumber() * pageable.getPageSize())
-                                .limit(pageable.getPageSize()).toList()
-                        ,
+                .zipWith(getRepo().count(filter.toQuery()))
+                .map(result -> new PageSupport<>(
+                        result.getT1(),
                         pageable.getPageNumber(),
                         pageable.getPageSize(),
-                        list.size()
+                        result.getT2()
                 ));
-
     }
 }
@@ -1,5 +1,6 @@
 package com.bar.service.impl;
 
+import com.bar.event.DishChangedEvent;
 import com.bar.model.Dish;
 import com.bar.repo.IDishRepo;
 import com.bar.repo.IGenericRepo;
@@ -7,6 +8,7 @@ import com.bar.service.IDishService;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -17,12 +19,35 @@ import reactor.core.publisher.Mono;
 public class DishServiceImpl extends CRUDImpl<Dish, String> implements IDishService {
 
     private final IDishRepo repo;
+    private final ApplicationEventPublisher publisher;
 
     @Override
     protected IGenericRepo<Dish, String> getRepo() {
         return repo;
     }
 
+    @Override
+    public Mono<Dish> save(Dish dish) {
+        return super.save(dish)
+                .doOnNext(e -> publisher.publishEvent(DishChangedEvent.saved(e)));
+    }
+
+    @Override
+    public Mono<Dish> update(String id, Dish dish) {
+        return super.update(id, dish)
+                .doOnNext(e -> publisher.publishEvent(DishChangedEvent.saved(e)));
+    }
+
+    @Override
+    public Mono<Boolean> delete(String id) {
+        return super.delete(id)
+                .doOnNext(result -> {
+                    if (result) {
+                        publisher.publishEvent(DishChangedEvent.deleted(id));
+                    }
+                });
+    }
+
     /*@Override
     public Mono<Dish> save(Dish dish) {
         return repo.save(dish);
@@ -1,38 +1,234 @@
 package com.bar.service.impl;
 
+import com.bar.archival.InvoicePartitions;
+import com.bar.coalesce.SingleFlight;
+import com.bar.coalesce.SingleFlightRegistry;
+import com.bar.exception.ConflictException;
+import com.bar.exception.ValidationException;
+import com.bar.export.InvoiceLine;
+import com.bar.migration.InvoiceCompactionMigration;
+import com.bar.model.Client;
+import com.bar.model.Dish;
 import com.bar.model.Invoice;
 import com.bar.model.InvoiceDetail;
+import com.bar.model.InvoiceSummary;
+import com.bar.query.FieldSelection;
 import com.bar.repo.IClientRepo;
 import com.bar.repo.IDishRepo;
 import com.bar.repo.IInvoiceRepo;
+import com.bar.repo.IInvoiceSummaryRepo;
 import com.bar.repo.IGenericRepo;
+import com.bar.repo.convert.InvoiceConverters;
+import com.bar.report.IReportRenderer;
+import com.bar.report.ReportArchive;
+import com.bar.report.ReportFormat;
 import com.bar.service.IInvoiceService;
+import com.bar.timing.RequestTimings;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import lombok.RequiredArgsConstructor;
-import net.sf.jasperreports.engine.*;
-import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.context.Context;
 
-import java.io.InputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class InvoiceServiceImpl extends CRUDImpl<Invoice, String> implements IInvoiceService {
 
+    //Facturas por lote al exportar: una consulta de clientes por lote
+    private static final int EXPORT_BATCH = 256;
+    //Tamaño de cada DataBuffer al enviar un reporte en trozos
+    private static final int STREAM_CHUNK_SIZE = 16 * 1024;
+    //Reintentos cuando otro mesero cambia la misma linea entre la lectura y la actualizacion
+    private static final int ITEM_RETRIES = 3;
+    //Sin stack trace: se puede reusar la misma instancia
+    private static final ConflictException LINE_CHANGED =
+            new ConflictException("La linea cambio mientras se actualizaba; intente de nuevo");
+    //Las actualizaciones de lineas solo aplican al formato compacto (ver findLine)
+    private static final Bson COMPACT = Filters.eq(InvoiceConverters.SCHEMA, InvoiceConverters.SCHEMA_VERSION);
+    private static final ConflictException NOT_MIGRATED =
+            new ConflictException("La factura todavia no esta en el formato actual; intente de nuevo");
+
     private final IInvoiceRepo invoiceRepo;
     private final IClientRepo clientRepo;
     private final IDishRepo dishRepo;
+    private final IInvoiceSummaryRepo summaryRepo;
+    //PDF con Jasper y recibos rapidos (HTML, texto, ESC/POS)
+    private final List<IReportRenderer> renderers;
+    private final ReportArchive archive;
+    private final Scheduler reportScheduler;
+    private final InvoicePartitions partitions;
+    private final ReactiveMongoTemplate template;
+    private final InvoiceCompactionMigration migration;
+
+    private SingleFlight<ReportKey, Report> reportFlight;
 
     @Override
     protected IGenericRepo<Invoice, String> getRepo() {
         return invoiceRepo;
     }
 
+    @Override
+    @Autowired
+    public void setSingleFlightRegistry(SingleFlightRegistry registry) {
+        super.setSingleFlightRegistry(registry);
+        this.reportFlight = registry.create("generate-report", resourceName());
+    }
+
+    //Si no esta entre las activas se busca en la particion mensual que le corresponde (ver InvoiceArchiver)
+    @Override
+    public Mono<Invoice> findById(String id) {
+        return super.findById(id)
+                .switchIfEmpty(Mono.defer(() -> partitions.findArchived(id)));
+    }
+
+    @Override
+    public Mono<Invoice> findById(String id, FieldSelection fields) {
+        if (fields.isAll()) {
+            return findById(id);
+        }
+
+        return super.findById(id, fields)
+                .switchIfEmpty(Mono.defer(() -> partitions.findArchived(id, fields)));
+    }
+
+    private Mono<Invoice> findStored(String id) {
+        return invoiceRepo.findById(id)
+                .switchIfEmpty(Mono.defer(() -> partitions.findArchived(id)));
+    }
+
+    @Override
+    public Mono<Invoice> save(Invoice invoice) {
+        return snapshot(invoice, null)
+                .flatMap(super::save)
+                .flatMap(this::saveSummary);
+    }
+
+    //Los platos que ya estaban en la factura conservan el precio con el que se vendieron
+    @Override
+    public Mono<Invoice> update(String id, Invoice invoice) {
+        return invoiceRepo.findById(id)
+                .flatMap(previous -> snapshot(invoice, previous))
+                .flatMap(invoiceRepo::save)
+                .flatMap(this::saveSummary)
+                .flatMap(e -> archive.evictInvoice(id).thenReturn(e));
+    }
+
+    @Override
+    public Mono<Boolean> delete(String id) {
+        return super.delete(id)
+                .flatMap(result -> result
+                        ? summaryRepo.deleteById(id).then(archive.evictInvoice(id)).thenReturn(true)
+                        : Mono.just(false));
+    }
+
+    //Resumen para los listados (invoice_summaries); se puede regenerar con IInvoiceSummaryService.rebuild
+    private Mono<Invoice> saveSummary(Invoice invoice) {
+        return summaryRepo.save(InvoiceSummary.of(invoice)).thenReturn(invoice);
+    }
+
+    //Valida el cliente y los platos (una consulta para todos) y guarda en la factura
+    //sus nombres y precios actuales junto con el total
+    private Mono<Invoice> snapshot(Invoice invoice, Invoice previous) {
+        if (invoice.getClient() == null || invoice.getClient().getId() == null) {
+            return Mono.error(badRequest("La factura debe tener un cliente"));
+        }
+        if (invoice.getItems() == null || invoice.getItems().isEmpty()) {
+            return Mono.error(badRequest("La factura debe tener al menos un plato"));
+        }
+        for (InvoiceDetail item : invoice.getItems()) {
+            if (item.getDish() == null || item.getDish().getId() == null) {
+                return Mono.error(badRequest("Cada linea de la factura debe tener un plato"));
+            }
+            if (item.getQuantity() == null || item.getQuantity() < 1) {
+                return Mono.error(badRequest("Cantidad invalida para el plato " + item.getDish().getId()));
+            }
+        }
+
+        Map<String, Dish> sold = new HashMap<>();
+        if (previous != null && previous.getItems() != null) {
+            previous.getItems().stream()
+                    .map(InvoiceDetail::getDish)
+                    .filter(dish -> dish != null && dish.getName() != null && dish.getPrice() != null)
+                    .forEach(dish -> sold.put(dish.getId(), dish));
+        }
+
+        Set<String> ids = invoice.getItems().stream()
+                .map(item -> item.getDish().getId())
+                .filter(id -> !sold.containsKey(id))
+                .collect(Collectors.toSet());
+
+        String clientId = invoice.getClient().getId();
+        Mono<Client> client = clientRepo.findById(clientId)
+                .switchIfEmpty(Mono.error(() -> badRequest("El cliente no existe: " + clientId)));
+        Mono<Map<String, Dish>> dishes = ids.isEmpty()
+                ? Mono.just(Map.of())
+                : dishRepo.findAllById(ids).collectMap(Dish::getId);
+
+        return Mono.zip(client, dishes)
+                .map(result -> {
+                    Set<String> missing = new TreeSet<>(ids);
+                    missing.removeAll(result.getT2().keySet());
+                    if (!missing.isEmpty()) {
+                        throw badRequest("Los platos no existen: " + String.join(", ", missing));
+                    }
+
+                    Client found = result.getT1();
+                    Client clientSnapshot = new Client();
+                    clientSnapshot.setId(found.getId());
+                    clientSnapshot.setFirstName(found.getFirstName());
+                    clientSnapshot.setLastName(found.getLastName());
+                    invoice.setClient(clientSnapshot);
+                    invoice.setIssuedAt(previous == null ? LocalDateTime.now() : previous.getIssuedAt());
+
+                    long totalCents = 0;
+                    for (InvoiceDetail item : invoice.getItems()) {
+                        String id = item.getDish().getId();
+                        Dish dish = sold.containsKey(id) ? sold.get(id) : result.getT2().get(id);
+                        double price = dish.getPrice() == null ? 0 : dish.getPrice();
+
+                        item.setDish(new Dish(id, dish.getName(), price, null, dish.getCategory()));
+                        totalCents += Math.round(price * 100) * item.getQuantity();
+                    }
+                    invoice.setTotal(totalCents / 100.0);
+
+                    return invoice;
+                });
+    }
+
+    //Facturas guardadas antes de copiar los datos del cliente y los platos: se completan al leerlas
     private Mono<Invoice> populateClient(Invoice invoice) {
+        if (invoice.getClient().getFirstName() != null) {
+            return Mono.just(invoice);
+        }
+
         return clientRepo.findById(invoice.getClient().getId())
                 .map(client -> {
                     invoice.setClient(client);
@@ -40,27 +236,80 @@ public class InvoiceServiceImpl extends CRUDImpl<Invoice, String> implements IIn
                 });
     }
 
-    private Mono<Invoice> populateItems(Invoice invoice){
-        List<Mono<InvoiceDetail>> list = invoice.getItems().stream()
-                .map(item -> dishRepo.findById(item.getDish().getId())
-                        .map(dish -> {
-                            item.setDish(dish);
-                            return item;
-                        })
-                ).toList();
+    //Una sola consulta para los platos sin nombre o precio guardado
+    private Mono<Invoice> populateItems(Invoice invoice) {
+        Set<String> ids = invoice.getItems().stream()
+                .map(InvoiceDetail::getDish)
+                .filter(dish -> dish.getName() == null || dish.getPrice() == null)
+                .map(Dish::getId)
+                .collect(Collectors.toSet());
+
+        if (ids.isEmpty()) {
+            return Mono.just(invoice);
+        }
+
+        return dishRepo.findAllById(ids)
+                .collectMap(Dish::getId)
+                .map(dishes -> {
+                    invoice.getItems().stream()
+                            .filter(item -> dishes.containsKey(item.getDish().getId()))
+                            .forEach(item -> item.setDish(dishes.get(item.getDish().getId())));
+                    return invoice;
+                });
+    }
+
+
+    //Varios dispositivos piden el mismo reporte a la vez: se hidrata y se genera una sola vez.
+    //Las facturas grandes solo comparten la hidratacion; cada respuesta genera su propio stream.
+    //Las etapas compartidas se miden en sus propios RequestTimings y se copian a cada peticion que
+    //espero el resultado, no solo a la primera
+    private Mono<Report> loadReport(String idInvoice, ReportFormat format) {
+        IReportRenderer renderer = renderer(format);
 
-        return Mono.when(list).then(Mono.just(invoice));
+        return Mono.deferContextual(ctx -> reportFlight.execute(new ReportKey(idInvoice, format), () -> {
+                    RequestTimings shared = new RequestTimings();
+                    return findStored(idInvoice)
+                            .transform(RequestTimings.stage("mongo-invoice"))
+                            .flatMap(invoice -> populateClient(invoice).transform(RequestTimings.stage("mongo-client")))
+                            .flatMap(invoice -> populateItems(invoice).transform(RequestTimings.stage("mongo-items")))
+                            .flatMap(invoice -> renderer.isStreamed(invoice)
+                                    ? Mono.just(new Report(invoice, null, shared))
+                                    : Mono.just(invoice)
+                                            .publishOn(reportScheduler)
+                                            .flatMap(inv -> renderTimed(inv, format))
+                                            .map(content -> new Report(invoice, content, shared))
+                            )
+                            .contextWrite(Context.of(RequestTimings.class, shared));
+                })
+                .doOnNext(report -> {
+                    RequestTimings timings = RequestTimings.from(ctx);
+                    if (timings != null) {
+                        timings.recordAll(report.timings());
+                    }
+                }));
     }
 
+    private IReportRenderer renderer(ReportFormat format) {
+        for (IReportRenderer renderer : renderers) {
+            if (renderer.getFormat() == format) {
+                return renderer;
+            }
+        }
+        throw new IllegalStateException("No hay renderer para " + format);
+    }
 
-    private byte[] generatePDF(Invoice invoice){
-        try (InputStream stream = getClass().getResourceAsStream("/facturas.jrxml")) {
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("txt_client", invoice.getClient().getFirstName());
+    //Se ejecuta en el hilo actual (del pool de reportes); Jasper mide sus etapas a traves de RequestTimings
+    private Mono<byte[]> renderTimed(Invoice invoice, ReportFormat format) {
+        return Mono.deferContextual(ctx -> Mono.fromCallable(
+                        () -> RequestTimings.bind(RequestTimings.from(ctx), () -> render(invoice, format))))
+                .transform(RequestTimings.stage("render"));
+    }
 
-            JasperReport report = JasperCompileManager.compileReport(stream);
-            JasperPrint print = JasperFillManager.fillReport(report, parameters, new JRBeanCollectionDataSource(invoice.getItems()));
-            return JasperExportManager.exportReportToPdf(print);
+    private byte[] render(Invoice invoice, ReportFormat format){
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            renderer(format).render(invoice, out);
+            return out.toByteArray();
         } catch (Exception e) {
             return new byte[0];
         }
@@ -69,13 +318,345 @@ public class InvoiceServiceImpl extends CRUDImpl<Invoice, String> implements IIn
 
     @Override
     public Mono<byte[]> generateReport(String idInvoice) {
-        return invoiceRepo.findById(idInvoice)
-                .flatMap(this::populateClient)
-                .flatMap(this::populateItems)
-                .map(this::generatePDF)
+        return generateReport(idInvoice, ReportFormat.PDF);
+    }
+
+    @Override
+    public Mono<byte[]> generateReport(String idInvoice, ReportFormat format) {
+        return loadReport(idInvoice, format)
+                .flatMap(report -> report.content() != null
+                        ? Mono.just(report.content())
+                        : renderTimed(report.invoice(), format).subscribeOn(reportScheduler)
+                )
                 .onErrorResume(e -> Mono.empty());
     }
 
+    @Override
+    public Mono<Flux<DataBuffer>> generateReport(String idInvoice, ReportFormat format, DataBufferFactory bufferFactory) {
+        Mono<Flux<DataBuffer>> rendered = Mono.deferContextual(ctx -> loadReport(idInvoice, format)
+                .map(report -> report.content() != null
+                        ? Flux.just(bufferFactory.wrap(report.content()))
+                        : stream(renderer(format), report.invoice(), bufferFactory, RequestTimings.from(ctx))
+                ))
+                .onErrorResume(e -> Mono.empty());
+
+        //El PDF archivado al cierre del dia se sirve desde GridFS sin volver a generarlo
+        if (format != ReportFormat.PDF) {
+            return rendered;
+        }
+
+        return archive.findInvoice(idInvoice)
+                .transform(RequestTimings.stage("gridfs"))
+                .onErrorResume(e -> Mono.empty())
+                .switchIfEmpty(rendered);
+    }
+
+    @Override
+    public Mono<Flux<DataBuffer>> findDailySummary(LocalDate day) {
+        return archive.findSummary(day);
+    }
+
+    //Los tiempos de un reporte en trozos llegan despues de enviar las cabeceras: solo salen en el log de peticiones lentas
+    private Flux<DataBuffer> stream(IReportRenderer renderer, Invoice invoice, DataBufferFactory bufferFactory, RequestTimings timings) {
+        return Flux.from(DataBufferUtils.outputStreamPublisher(
+                out -> {
+                    try {
+                        RequestTimings.bind(timings, () -> {
+                            renderer.render(invoice, out);
+                            return null;
+                        });
+                    } catch (Exception e) {
+                        throw Exceptions.propagate(e);
+                    }
+                },
+                bufferFactory,
+                task -> reportScheduler.schedule(task),
+                STREAM_CHUNK_SIZE
+        ));
+    }
+
+    //Solo las facturas activas; las archivadas se exportan por dia
+    @Override
+    public Flux<InvoiceLine> exportLines() {
+        return exportLines(invoiceRepo.findAll(new Query()));
+    }
+
+    @Override
+    public Flux<InvoiceLine> exportLines(LocalDate day) {
+        return exportLines(partitions.findIssued(day.atStartOfDay(), day.plusDays(1).atStartOfDay()));
+    }
+
+    private Flux<InvoiceLine> exportLines(Flux<Invoice> invoices) {
+        //El catalogo de platos es pequeño; las facturas se leen del cursor por lotes
+        return dishRepo.findAll()
+                .collectMap(Dish::getId)
+                .flatMapMany(dishes -> invoices
+                        .buffer(EXPORT_BATCH)
+                        .concatMap(this::populateClients)
+                        .concatMapIterable(batch -> toLines(batch, dishes))
+                );
+    }
+
+    private Mono<List<Invoice>> populateClients(List<Invoice> batch) {
+        Set<String> ids = batch.stream()
+                .map(Invoice::getClient)
+                .filter(client -> client != null && client.getId() != null && client.getFirstName() == null)
+                .map(Client::getId)
+                .collect(Collectors.toSet());
+
+        if (ids.isEmpty()) {
+            return Mono.just(batch);
+        }
+
+        return clientRepo.findAllById(ids)
+                .collectMap(Client::getId)
+                .map(clients -> {
+                    batch.stream()
+                            .filter(invoice -> invoice.getClient() != null && clients.containsKey(invoice.getClient().getId()))
+                            .forEach(invoice -> invoice.setClient(clients.get(invoice.getClient().getId())));
+                    return batch;
+                });
+    }
+
+    private List<InvoiceLine> toLines(List<Invoice> batch, Map<String, Dish> dishes) {
+        List<InvoiceLine> lines = new ArrayList<>();
+
+        for (Invoice invoice : batch) {
+            if (invoice.getItems() == null) {
+                continue;
+            }
+
+            String client = clientName(invoice.getClient());
+            for (InvoiceDetail item : invoice.getItems()) {
+                Dish dish = item.getDish();
+                if (dish != null && dish.getName() == null && dishes.containsKey(dish.getId())) {
+                    dish = dishes.get(dish.getId());
+                }
+
+                int quantity = item.getQuantity() == null ? 0 : item.getQuantity();
+                long priceCents = dish == null || dish.getPrice() == null ? 0 : Math.round(dish.getPrice() * 100);
+
+                lines.add(new InvoiceLine(
+                        invoice.getId(),
+                        invoice.getDescription(),
+                        client,
+                        dish == null ? null : dish.getName(),
+                        quantity,
+                        priceCents,
+                        quantity * priceCents
+                ));
+            }
+        }
+
+        return lines;
+    }
+
+    @Override
+    public Mono<InvoiceDetail> addItem(String idInvoice, InvoiceDetail item) {
+        if (item.getDish() == null || item.getDish().getId() == null) {
+            return Mono.error(badRequest("La linea debe tener un plato"));
+        }
+        if (item.getQuantity() == null || item.getQuantity() < 1) {
+            return Mono.error(badRequest("Cantidad invalida para el plato " + item.getDish().getId()));
+        }
+
+        String idDish = item.getDish().getId();
+        return dishRepo.findById(idDish)
+                .switchIfEmpty(Mono.error(() -> badRequest("El plato no existe: " + idDish)))
+                .flatMap(dish -> addItem(idInvoice, dish, item.getQuantity(), ITEM_RETRIES));
+    }
+
+    private Mono<InvoiceDetail> addItem(String idInvoice, Dish dish, int quantity, int retries) {
+        return findLine(idInvoice, dish.getId())
+                .flatMap(line -> {
+                    Mono<InvoiceDetail> result = line.isPresent()
+                            ? changeLine(idInvoice, line.get(), quantity)
+                            : pushLine(idInvoice,
+                                    new Dish(dish.getId(), dish.getName(), dish.getPrice(), null, dish.getCategory()), quantity);
+                    return result.switchIfEmpty(Mono.defer(() -> retries > 0
+                            ? addItem(idInvoice, dish, quantity, retries - 1)
+                            : Mono.error(LINE_CHANGED)));
+                });
+    }
+
+    @Override
+    public Mono<InvoiceDetail> changeItemQuantity(String idInvoice, String idDish, int delta) {
+        if (delta == 0) {
+            return Mono.error(badRequest("La variacion de la cantidad no puede ser 0"));
+        }
+        return changeItemQuantity(idInvoice, idDish, delta, ITEM_RETRIES);
+    }
+
+    private Mono<InvoiceDetail> changeItemQuantity(String idInvoice, String idDish, int delta, int retries) {
+        return findLine(idInvoice, idDish)
+                .flatMap(line -> line.isEmpty() ? Mono.empty() : Mono.just(line.get()))
+                .flatMap(line -> {
+                    if (quantity(line) + delta < 1) {
+                        return Mono.error(badRequest("La cantidad no puede quedar en menos de 1; para quitar el plato use DELETE"));
+                    }
+                    return changeLine(idInvoice, line, delta)
+                            .switchIfEmpty(Mono.defer(() -> retries > 0
+                                    ? changeItemQuantity(idInvoice, idDish, delta, retries - 1)
+                                    : Mono.error(LINE_CHANGED)));
+                });
+    }
+
+    @Override
+    public Mono<Boolean> removeItem(String idInvoice, String idDish) {
+        return removeItem(idInvoice, idDish, ITEM_RETRIES);
+    }
+
+    private Mono<Boolean> removeItem(String idInvoice, String idDish, int retries) {
+        return findLine(idInvoice, idDish)
+                .flatMap(line -> line.isEmpty() ? Mono.empty() : Mono.just(line.get()))
+                .flatMap(line -> {
+                    double amount = -amount(line.getDish().getPrice(), quantity(line));
+                    //Solo si la linea sigue igual que al leerla; si no, el total quedaria mal
+                    Bson filter = Filters.and(
+                            Filters.eq("_id", InvoiceConverters.toObjectId(idInvoice)),
+                            COMPACT,
+                            Filters.elemMatch("items", Filters.and(
+                                    Filters.eq("dishId", InvoiceConverters.toObjectId(idDish)),
+                                    Filters.eq("quantity", line.getQuantity()),
+                                    Filters.eq("price", line.getDish().getPrice())
+                            ))
+                    );
+                    Bson update = Updates.combine(
+                            new Document("$pull", new Document("items", new Document("dishId", InvoiceConverters.toObjectId(idDish)))),
+                            Updates.inc("total", amount)
+                    );
+
+                    return template.getCollection(InvoicePartitions.HOT)
+                            .flatMap(collection -> Mono.from(collection.updateOne(filter, update)))
+                            .flatMap(result -> result.getModifiedCount() > 0
+                                    ? afterItemChange(idInvoice, -1, amount).thenReturn(true)
+                                    : retries > 0 ? removeItem(idInvoice, idDish, retries - 1) : Mono.error(LINE_CHANGED));
+                })
+                .defaultIfEmpty(false);
+    }
+
+    //Solo la linea del plato: { _id, schema, items: [linea] }. Vacio si la factura no existe (o esta archivada).
+    //Las lineas se buscan y se actualizan por items.dishId: una factura que la migracion todavia no
+    //reescribio (items.dish._id, quiza sin total) se pasa al formato compacto antes de tocarla
+    private Mono<Optional<InvoiceDetail>> findLine(String idInvoice, String idDish) {
+        return readLine(idInvoice, idDish)
+                .flatMap(document -> isCompact(document)
+                        ? Mono.just(document)
+                        : migration.migrate(idInvoice)
+                                .then(readLine(idInvoice, idDish))
+                                .filter(InvoiceServiceImpl::isCompact)
+                                .switchIfEmpty(Mono.error(NOT_MIGRATED)))
+                .map(InvoiceServiceImpl::firstLine);
+    }
+
+    private Mono<Document> readLine(String idInvoice, String idDish) {
+        return template.getCollection(InvoicePartitions.HOT)
+                .flatMap(collection -> Mono.from(collection
+                        .find(Filters.eq("_id", InvoiceConverters.toObjectId(idInvoice)))
+                        .projection(Projections.fields(
+                                Projections.include(InvoiceConverters.SCHEMA),
+                                Projections.elemMatch("items", Filters.eq("dishId", InvoiceConverters.toObjectId(idDish))))
+                        )
+                        .first()));
+    }
+
+    private static boolean isCompact(Document document) {
+        return Integer.valueOf(InvoiceConverters.SCHEMA_VERSION).equals(document.get(InvoiceConverters.SCHEMA));
+    }
+
+    //$inc sobre la cantidad; el precio es el que quedo guardado en la linea al venderla
+    private Mono<InvoiceDetail> changeLine(String idInvoice, InvoiceDetail line, int delta) {
+        String idDish = line.getDish().getId();
+        Bson filter = Filters.and(
+                Filters.eq("_id", InvoiceConverters.toObjectId(idInvoice)),
+                COMPACT,
+                Filters.elemMatch("items", Filters.and(
+                        Filters.eq("dishId", InvoiceConverters.toObjectId(idDish)),
+                        Filters.eq("price", line.getDish().getPrice()),
+                        //Una linea antigua sin cantidad no cumple $gte: se exige que siga sin ella
+                        line.getQuantity() == null ? Filters.eq("quantity", null) : Filters.gte("quantity", 1 - delta)
+                ))
+        );
+        double amount = amount(line.getDish().getPrice(), delta);
+        Bson update = Updates.combine(Updates.inc("items.$.quantity", delta), Updates.inc("total", amount));
+
+        return modifyLine(idInvoice, idDish, filter, update, 0, amount);
+    }
+
+    private Mono<InvoiceDetail> pushLine(String idInvoice, Dish dish, int quantity) {
+        //Si otro mesero ya agrego el plato no se duplica la linea: se reintenta con $inc
+        Bson filter = Filters.and(
+                Filters.eq("_id", InvoiceConverters.toObjectId(idInvoice)),
+                COMPACT,
+                Filters.ne("items.dishId", InvoiceConverters.toObjectId(dish.getId()))
+        );
+        double amount = amount(dish.getPrice(), quantity);
+        Bson update = Updates.combine(
+                Updates.push("items", InvoiceConverters.writeItem(new InvoiceDetail(quantity, dish))),
+                Updates.inc("total", amount)
+        );
+
+        return modifyLine(idInvoice, dish.getId(), filter, update, 1, amount);
+    }
+
+    private Mono<InvoiceDetail> modifyLine(String idInvoice, String idDish, Bson filter, Bson update, int itemCountDelta, double amount) {
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+                .returnDocument(ReturnDocument.AFTER)
+                .projection(Projections.elemMatch("items", Filters.eq("dishId", InvoiceConverters.toObjectId(idDish))));
+
+        return template.getCollection(InvoicePartitions.HOT)
+                .flatMap(collection -> Mono.from(collection.findOneAndUpdate(filter, update, options)))
+                .flatMap(document -> Mono.justOrEmpty(firstLine(document)))
+                .flatMap(line -> afterItemChange(idInvoice, itemCountDelta, amount).thenReturn(line));
+    }
+
+    //El resumen de los listados se ajusta con $inc y el PDF archivado deja de valer
+    private Mono<Void> afterItemChange(String idInvoice, int itemCountDelta, double amount) {
+        Bson update = Updates.combine(
+                Updates.inc("itemCount", itemCountDelta),
+                Updates.inc("total", amount),
+                Updates.set("updatedAt", new Date())
+        );
+
+        return template.getCollection(template.getCollectionName(InvoiceSummary.class))
+                .flatMap(collection -> Mono.from(collection.updateOne(Filters.eq("_id", InvoiceConverters.toObjectId(idInvoice)), update)))
+                .then(archive.evictInvoice(idInvoice));
+    }
+
+    private static Optional<InvoiceDetail> firstLine(Document document) {
+        List<Document> items = document.getList("items", Document.class);
+        return items == null || items.isEmpty() ? Optional.empty() : Optional.of(InvoiceConverters.readItem(items.get(0)));
+    }
+
+    //Las lineas antiguas pueden no tener cantidad: cuenta como 0
+    private static int quantity(InvoiceDetail line) {
+        return line.getQuantity() == null ? 0 : line.getQuantity();
+    }
+
+    //Importe en centimos exactos; null (facturas antiguas sin precio) cuenta como 0
+    private static double amount(Double price, int quantity) {
+        return price == null ? 0 : Math.round(price * 100) * quantity / 100.0;
+    }
+
+    private static ValidationException badRequest(String message) {
+        return new ValidationException(message);
+    }
+
+    private String clientName(Client client) {
+        if (client == null || client.getFirstName() == null) {
+            return null;
+        }
+
+        return client.getLastName() == null ? client.getFirstName() : client.getFirstName() + " " + client.getLastName();
+    }
+
+    private record ReportKey(String invoiceId, ReportFormat format) {
+    }
+
+    //content es null cuando el reporte se escribe en trozos (facturas grandes)
+    private record Report(Invoice invoice, byte[] content, RequestTimings timings) {
+    }
+
 
     /*@Override
     public Mono<byte[]> generateReport(String idInvoice) {
@@ -0,0 +1,82 @@
+package com.bar.service.impl;
+
+import com.bar.model.InvoiceSummary;
+import com.bar.repo.IGenericRepo;
+import com.bar.repo.IInvoiceSummaryRepo;
+import com.bar.service.IInvoiceSummaryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InvoiceSummaryServiceImpl extends CRUDImpl<InvoiceSummary, String> implements IInvoiceSummaryService {
+
+    private static final String INVOICES = "invoices";
+    private static final String SUMMARIES = "invoice_summaries";
+
+    private final IInvoiceSummaryRepo repo;
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    protected IGenericRepo<InvoiceSummary, String> getRepo() {
+        return repo;
+    }
+
+    //Primera ejecucion: si hay facturas sin resumen se arma la coleccion completa
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        Mono.zip(template.estimatedCount(INVOICES), template.estimatedCount(SUMMARIES))
+                .filter(counts -> counts.getT1() > counts.getT2())
+                .flatMap(counts -> rebuild())
+                .subscribe(
+                        count -> log.info("Resumenes de facturas reconstruidos: {}", count),
+                        e -> log.warn("No se pudieron reconstruir los resumenes de facturas", e)
+                );
+    }
+
+    @Override
+    public Mono<Long> rebuild() {
+        Date startedAt = new Date();
+
+        //Los resumenes ajustados con $inc mientras corre (afterItemChange en InvoiceServiceImpl) tienen un
+        //updatedAt posterior a startedAt y se dejan como estan: la agregacion leyo las facturas antes
+        Document keepNewer = new Document("$replaceRoot", new Document("newRoot", new Document("$cond", List.of(
+                new Document("$gte", List.of("$updatedAt", startedAt)), "$$ROOT", "$$new"))));
+
+        //Lee tanto el formato compacto como el anterior (Client y Dish embebidos)
+        List<Document> pipeline = List.of(
+                new Document("$project", new Document("description", 1)
+                        .append("issuedAt", 1)
+                        .append("clientId", new Document("$toString", "$client._id"))
+                        .append("clientName", "$client.firstName")
+                        .append("clientSurname", "$client.lastName")
+                        .append("itemCount", new Document("$size", new Document("$ifNull", List.of("$items", List.of()))))
+                        .append("total", 1)
+                        .append("updatedAt", new Document("$literal", startedAt))),
+                new Document("$merge", new Document("into", SUMMARIES)
+                        .append("on", "_id")
+                        .append("whenMatched", List.of(keepNewer))
+                        .append("whenNotMatched", "insert"))
+        );
+
+        //Los resumenes que no se tocaron en esta pasada son de facturas eliminadas
+        Query orphans = new Query(Criteria.where("updatedAt").lt(startedAt));
+
+        return template.getCollection(INVOICES)
+                .flatMap(collection -> Mono.from(collection.aggregate(pipeline).toCollection()))
+                .then(template.remove(orphans, SUMMARIES))
+                .then(template.count(new Query(), SUMMARIES));
+    }
+}
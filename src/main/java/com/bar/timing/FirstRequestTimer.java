@@ -0,0 +1,83 @@
+package com.bar.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tiempo desde el arranque de la JVM hasta la primera respuesta (sin contar /actuator ni lo que llega
+ * antes de que readiness pase a ACCEPTING_TRAFFIC, como el calentamiento): lo que tarda una instancia
+ * nueva en atender despues de un deploy o de escalar. Queda en el log y en la metrica
+ * application.first-request.time, junto a application.started.time y application.ready.time,
+ * con el modo de arranque como tag, con los mismos nombres que la tabla del README (jvm, aot, cds,
+ * aot + cds, native).
+ */
+@Slf4j
+@Component
+//Despues de ServerTimingFilter y RateLimitFilter: una peticion rechazada no cuenta como atendida
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class FirstRequestTimer implements WebFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final ApplicationAvailability availability;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (done.get()
+                || availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC
+                || exchange.getRequest().getPath().pathWithinApplication().value().startsWith("/actuator")) {
+            return chain.filter(exchange);
+        }
+
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (done.compareAndSet(false, true)) {
+                        record(exchange);
+                    }
+                });
+    }
+
+    private void record(ServerWebExchange exchange) {
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        String mode = mode();
+
+        TimeGauge.builder("application.first-request.time", () -> millis, TimeUnit.MILLISECONDS)
+                .tag("mode", mode)
+                .register(meterRegistry);
+        log.info("Primera peticion atendida a los {} ms del arranque (modo {}): {} {} -> {}", millis, mode,
+                exchange.getRequest().getMethod(), exchange.getRequest().getPath().value(),
+                exchange.getResponse().getStatusCode());
+    }
+
+    private static String mode() {
+        if (NativeDetector.inNativeImage()) {
+            return "native";
+        }
+
+        boolean cds = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(arg -> arg.startsWith("-XX:SharedArchiveFile="));
+        boolean aot = AotDetector.useGeneratedArtifacts();
+        if (cds) {
+            return aot ? "aot + cds" : "cds";
+        }
+        return aot ? "aot" : "jvm";
+    }
+}
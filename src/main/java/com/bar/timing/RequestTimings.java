@@ -0,0 +1,126 @@
+package com.bar.timing;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Tiempos de las etapas de una peticion (consultas, llenado del reporte, exportacion...).
+ * ServerTimingFilter la deja en el contexto de Reactor y la publica en la cabecera Server-Timing.
+ * El codigo bloqueante (JasperReports) la recibe en un ThreadLocal mientras corre en el pool de reportes.
+ */
+public final class RequestTimings {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    //En orden de llegada; si una etapa se repite se suma
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+
+    public synchronized void record(String stage, long nanos) {
+        stages.merge(stage, nanos, Long::sum);
+    }
+
+    //Suma las etapas de otra medicion, por ejemplo las de un trabajo compartido entre varias peticiones
+    public void recordAll(RequestTimings other) {
+        Map<String, Long> copy;
+        synchronized (other) {
+            copy = new LinkedHashMap<>(other.stages);
+        }
+        copy.forEach(this::record);
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    //name;dur=12.3, ... con el total al final (milisegundos, como pide Server-Timing)
+    public synchronized String toHeader() {
+        StringBuilder sb = new StringBuilder(stages.size() * 24 + 24);
+        stages.forEach((stage, nanos) -> appendMetric(sb, stage, nanos).append(", "));
+        return appendMetric(sb, "total", elapsedNanos()).toString();
+    }
+
+    private static StringBuilder appendMetric(StringBuilder sb, String stage, long nanos) {
+        return sb.append(stage).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0));
+    }
+
+    public static <T> Function<Mono<T>, Mono<T>> stage(String name) {
+        return mono -> Mono.deferContextual(ctx -> {
+            RequestTimings timings = from(ctx);
+            if (timings == null) {
+                return mono;
+            }
+
+            //Se registra antes de pasar el valor: despues ya pueden haberse enviado las cabeceras
+            Stopwatch watch = timings.new Stopwatch(name);
+            return mono.doOnSuccess(value -> watch.stop())
+                    .doOnError(e -> watch.stop())
+                    .doOnCancel(watch::stop);
+        });
+    }
+
+    //Registra una sola vez, con la primera señal que termine la etapa
+    private final class Stopwatch {
+
+        private final String stage;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        private Stopwatch(String stage) {
+            this.stage = stage;
+        }
+
+        void stop() {
+            if (stopped.compareAndSet(false, true)) {
+                record(stage, System.nanoTime() - start);
+            }
+        }
+    }
+
+    public static RequestTimings from(ContextView ctx) {
+        return ctx.getOrDefault(RequestTimings.class, null);
+    }
+
+    //Ejecuta codigo bloqueante con las mediciones de la peticion disponibles en el hilo
+    public static <T> T bind(RequestTimings timings, Callable<T> work) throws Exception {
+        if (timings == null) {
+            return work.call();
+        }
+
+        RequestTimings previous = CURRENT.get();
+        CURRENT.set(timings);
+        try {
+            return work.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    //Mide una etapa bloqueante; sin peticion asociada (ej: el job de cierre) solo la ejecuta
+    public static <T> T time(String stage, Callable<T> work) throws Exception {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return work.call();
+        }
+
+        long start = System.nanoTime();
+        try {
+            return work.call();
+        } finally {
+            timings.record(stage, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.bar.timing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrega la cabecera Server-Timing con las etapas medidas hasta que se envia la respuesta.
+ * Lo que pasa despues (escritura del cuerpo, reportes enviados en trozos) solo aparece en el
+ * log de peticiones lentas, que se escribe al terminar la respuesta.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServerTimingFilter implements WebFilter {
+
+    @Value("${server-timing.enabled:true}")
+    private boolean enabled;
+
+    //0 desactiva el log
+    @Value("${server-timing.slow-threshold:1s}")
+    private Duration slowThreshold;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+
+        RequestTimings timings = new RequestTimings();
+        AtomicLong committedAt = new AtomicLong();
+
+        exchange.getResponse().beforeCommit(() -> {
+            committedAt.set(System.nanoTime());
+            exchange.getResponse().getHeaders().add(RequestTimings.HEADER, timings.toHeader());
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange)
+                .contextWrite(Context.of(RequestTimings.class, timings))
+                .doFinally(signal -> logIfSlow(exchange, timings, committedAt.get()));
+    }
+
+    private void logIfSlow(ServerWebExchange exchange, RequestTimings timings, long committedAt) {
+        if (slowThreshold.isZero() || timings.elapsedNanos() < slowThreshold.toNanos()) {
+            return;
+        }
+        //El feed de pedidos dura lo que la pantalla este conectada
+        if (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(exchange.getResponse().getHeaders().getContentType())) {
+            return;
+        }
+
+        if (committedAt != 0) {
+            timings.record("write", System.nanoTime() - committedAt);
+        }
+        log.warn("Peticion lenta {} {} -> {}: {}",
+                exchange.getRequest().getMethod(),
+                exchange.getRequest().getPath().value(),
+                exchange.getResponse().getStatusCode(),
+                timings.toHeader());
+    }
+}
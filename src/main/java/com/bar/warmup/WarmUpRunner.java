@@ -0,0 +1,221 @@
+package com.bar.warmup;
+
+import com.bar.cache.DishMenuCache;
+import com.bar.dto.ClientDTO;
+import com.bar.dto.DishDTO;
+import com.bar.dto.InvoiceDTO;
+import com.bar.dto.InvoiceDetailDTO;
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.report.IReportRenderer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Calentamiento antes de recibir trafico. Spring Boot pasa readiness a ACCEPTING_TRAFFIC recien cuando
+ * terminan los ApplicationRunner, asi que /actuator/health/readiness queda en OUT_OF_SERVICE mientras
+ * esto corre. Abre conexiones del pool de MongoDB y arma el menu cacheado; despues repite, hasta
+ * cumplir warmup.duration, el mapeo con los tres ModelMapper (los TypeMap implicitos se crean en el
+ * primer map), la serializacion JSON y los reportes de cada formato con una factura sintetica, para
+ * que el JIT compile esos caminos y Jasper cargue sus clases y compile el jrxml. El servidor ya escucha
+ * en este punto: cada ronda tambien hace GET por loopback a warmup.requests (listados paginados), que
+ * calienta lo que solo corre con una peticion real (ruteo, codecs, links de hypermedia).
+ * Si algo falla (por ejemplo MongoDB todavia no responde) se avisa y se sigue: nunca impide el arranque.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final Document PING = new Document("ping", 1);
+    //Espera minima de MongoDB y de las peticiones cuando ya casi no queda tiempo
+    private static final Duration MIN_WAIT = Duration.ofSeconds(1);
+
+    private final ReactiveMongoTemplate template;
+    private final DishMenuCache dishMenuCache;
+    @Qualifier("defaultMapper")
+    private final ModelMapper defaultMapper;
+    @Qualifier("clientMapper")
+    private final ModelMapper clientMapper;
+    @Qualifier("invoiceMapper")
+    private final ModelMapper invoiceMapper;
+    private final ObjectMapper objectMapper;
+    private final List<IReportRenderer> renderers;
+    private final Environment environment;
+    private final WarmUpTraffic traffic;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.duration:10s}")
+    private Duration duration;
+
+    //Peticiones simultaneas al abrir el pool: cada una que no encuentra conexion libre abre otra
+    @Value("${warmup.connections:10}")
+    private int connections;
+
+    @Value("${warmup.invoice-items:20}")
+    private int invoiceItems;
+
+    //Solo lecturas: se repiten en cada ronda contra los datos reales
+    @Value("${warmup.requests:}")
+    private List<String> requests;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            traffic.finish();
+            return;
+        }
+        try {
+            warmUp();
+        } finally {
+            traffic.finish();
+        }
+    }
+
+    private void warmUp() {
+
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        Map<String, Task> tasks = new LinkedHashMap<>();
+
+        run(tasks, deadline, "mongo-pool", () -> Flux.range(0, connections)
+                .flatMap(i -> template.executeCommand(PING), connections)
+                .then()
+                .block(remaining(deadline)));
+        run(tasks, deadline, "dish-menu", () -> dishMenuCache.get().block(remaining(deadline)));
+
+        Invoice invoice = sampleInvoice();
+        //Sin servidor (tests con entorno web simulado) no hay a quien pedirle nada
+        String port = environment.getProperty("local.server.port");
+        List<String> uris = port == null ? List.of() : requests;
+        //Con la marca de WarmUpTraffic RateLimitFilter no las limita
+        WebClient client = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + port)
+                .defaultHeader(WarmUpTraffic.HEADER, traffic.token())
+                .build();
+        int rounds = 0;
+        do {
+            run(tasks, deadline, "mapping", () -> map(invoice));
+            run(tasks, deadline, "serialization", () -> serialize(invoice));
+            for (IReportRenderer renderer : renderers) {
+                run(tasks, deadline, "report-" + renderer.getFormat().name().toLowerCase(Locale.ROOT), () -> {
+                    renderer.render(invoice, OutputStream.nullOutputStream());
+                    return null;
+                });
+            }
+            for (String uri : uris) {
+                run(tasks, deadline, "GET " + uri, () -> client.get().uri(uri)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .block(remaining(deadline)));
+            }
+            rounds++;
+        } while (System.nanoTime() < deadline);
+
+        StringBuilder report = new StringBuilder();
+        tasks.forEach((name, task) -> report.append(System.lineSeparator()).append(task.describe(name)));
+        log.info("Calentamiento terminado en {} ms, {} rondas; readiness pasa a ACCEPTING_TRAFFIC{}",
+                (System.nanoTime() - start) / 1_000_000, rounds, report);
+    }
+
+    //Cada tarea corre al menos una vez aunque ya se haya cumplido el tiempo
+    private static void run(Map<String, Task> tasks, long deadline, String name, Callable<?> work) {
+        Task task = tasks.computeIfAbsent(name, n -> new Task());
+        if (task.failed || (task.count > 0 && System.nanoTime() >= deadline)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            work.call();
+            task.record(System.nanoTime() - start);
+        } catch (Exception | LinkageError e) {
+            //LinkageError: falta una clase (por ejemplo la de PDF); que falle la peticion, no el arranque
+            task.failed = true;
+            log.warn("Calentamiento: {} fallo, se omite: {}", name, e.toString());
+        }
+    }
+
+    private Object map(Invoice invoice) {
+        InvoiceDTO dto = invoiceMapper.map(invoice, InvoiceDTO.class);
+        invoiceMapper.map(dto, Invoice.class);
+        for (InvoiceDetail item : invoice.getItems()) {
+            invoiceMapper.map(item, InvoiceDetailDTO.class);
+            defaultMapper.map(defaultMapper.map(item.getDish(), DishDTO.class), Dish.class);
+        }
+        return clientMapper.map(clientMapper.map(invoice.getClient(), ClientDTO.class), Client.class);
+    }
+
+    private Object serialize(Invoice invoice) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(invoiceMapper.map(invoice, InvoiceDTO.class));
+        return objectMapper.readValue(json, InvoiceDTO.class);
+    }
+
+    private Invoice sampleInvoice() {
+        Client client = new Client(new ObjectId().toHexString(), "Calentamiento", "Sintetico",
+                LocalDate.of(1990, 1, 1), null);
+        List<InvoiceDetail> items = new ArrayList<>(invoiceItems);
+        double total = 0;
+        for (int i = 0; i < invoiceItems; i++) {
+            Dish dish = new Dish(new ObjectId().toHexString(), "Plato " + (i + 1), 10.0 + i, true);
+            items.add(new InvoiceDetail(1 + i % 3, dish));
+            total += (1 + i % 3) * dish.getPrice();
+        }
+        return new Invoice(new ObjectId().toHexString(), "Mesa 1", LocalDateTime.now(), client, items, total);
+    }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(deadline - System.nanoTime(), MIN_WAIT.toNanos()));
+    }
+
+    private static final class Task {
+
+        private int count;
+        private long first;
+        private long last;
+        private boolean failed;
+
+        void record(long nanos) {
+            if (count++ == 0) {
+                first = nanos;
+            }
+            last = nanos;
+        }
+
+        String describe(String name) {
+            if (failed && count == 0) {
+                return String.format("  %-36s fallo", name);
+            }
+            return String.format(Locale.ROOT, "  %-36s %4dx  primera %9.1f ms  ultima %9.1f ms",
+                    name, count, first / 1e6, last / 1e6);
+        }
+    }
+}
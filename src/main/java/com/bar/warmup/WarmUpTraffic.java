@@ -0,0 +1,41 @@
+package com.bar.warmup;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Marca de las peticiones por loopback de WarmUpRunner, para que RateLimitFilter no las limite: en
+ * una ronda se piden varios listados seguidos y un 429 dejaria esa tarea como fallida. La cabecera
+ * lleva un valor aleatorio por proceso que solo vale mientras dura el calentamiento, asi que un
+ * cliente no la puede usar para saltarse el limite.
+ */
+@Component
+public class WarmUpTraffic {
+
+    public static final String HEADER = "X-Warm-Up";
+
+    private final String token;
+    private volatile boolean active = true;
+
+    public WarmUpTraffic() {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        this.token = HexFormat.of().formatHex(random);
+    }
+
+    public String token() {
+        return token;
+    }
+
+    //Despues del calentamiento la cabecera ya no exime a nadie
+    public void finish() {
+        active = false;
+    }
+
+    public boolean matches(ServerHttpRequest request) {
+        return active && token.equals(request.getHeaders().getFirst(HEADER));
+    }
+}
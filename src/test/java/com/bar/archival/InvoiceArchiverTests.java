@@ -0,0 +1,165 @@
+package com.bar.archival;
+
+import com.bar.model.Invoice;
+import com.bar.repo.convert.InvoiceConverters;
+import com.bar.support.InMemoryMongo;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceArchiverTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private InMemoryMongo mongo;
+    private ReactiveMongoTemplate template;
+    private InvoicePartitions partitions;
+    private InvoiceArchiver archiver;
+
+    private final LocalDateTime old = LocalDateTime.now().minusMonths(25).withDayOfMonth(10).withNano(0);
+    private final String oldPartition = InvoicePartitions.collection(old);
+
+    @BeforeEach
+    void start() {
+        mongo = new InMemoryMongo();
+        template = mongo.template();
+
+        partitions = partitions();
+        archiver = archiver(partitions);
+    }
+
+    @AfterEach
+    void stop() {
+        mongo.close();
+    }
+
+    @Test
+    void archivedInvoicesStayReachableByIdWhateverTheirIdType() {
+        ObjectId fromIssuedAt = new ObjectId(date(old));
+        ObjectId createdLater = new ObjectId();
+        ObjectId recent = new ObjectId();
+        insert(fromIssuedAt, old);
+        insert("factura-vieja", old);
+        insert(createdLater, old);
+        insert(recent, LocalDateTime.now());
+
+        assertThat(archiver.archive().block(WAIT)).isEqualTo(3);
+
+        assertThat(ids(InvoicePartitions.HOT)).containsExactly(recent);
+        assertThat(ids(oldPartition)).containsExactlyInAnyOrder(fromIssuedAt, "factura-vieja", createdLater);
+        //Solo las que el id no ubica quedan en el indice
+        assertThat(ids(InvoicePartitions.INDEX)).containsExactlyInAnyOrder("factura-vieja", createdLater);
+        //La marca para OrderFeed es solo de la coleccion caliente
+        assertThat(template.findAll(Document.class, oldPartition).collectList().block(WAIT))
+                .allSatisfy(document -> assertThat(document).doesNotContainKey(InvoiceArchiver.ARCHIVED));
+        assertThat(template.findAll(Document.class, InvoicePartitions.INDEX).collectList().block(WAIT))
+                .allSatisfy(entry -> assertThat(entry.getString("partition")).isEqualTo(oldPartition));
+
+        for (String id : List.of(fromIssuedAt.toHexString(), "factura-vieja", createdLater.toHexString())) {
+            Invoice found = partitions.findArchived(id).block(WAIT);
+            assertThat(found).as(id).isNotNull();
+            assertThat(found.getId()).isEqualTo(id);
+            assertThat(found.getIssuedAt()).isEqualTo(old);
+        }
+        assertThat(partitions.findArchived("no-existe").block(WAIT)).isNull();
+        assertThat(partitions.findArchived(new ObjectId().toHexString()).block(WAIT)).isNull();
+    }
+
+    @Test
+    void issuedDayQueriesReadThePartition() {
+        insert(new ObjectId(date(old)), old);
+        insert("factura-vieja", old);
+
+        archiver.archive().block(WAIT);
+
+        assertThat(partitions.findIssued(old.toLocalDate().atStartOfDay(), old.toLocalDate().plusDays(1).atStartOfDay())
+                .collectList().block(WAIT)).hasSize(2);
+    }
+
+    @Test
+    void partitionsArchivedByAnotherInstanceAreFound() {
+        //Arranco antes de que hubiera particiones
+        InvoicePartitions other = partitions();
+        other.refresh().block(WAIT);
+        ObjectId fromIssuedAt = new ObjectId(date(old));
+        insert(fromIssuedAt, old);
+        insert("factura-vieja", old);
+
+        archiver.archive().block(WAIT);
+
+        //El indice vale aunque no conozca la particion; las demas se ven al volver a listar
+        assertThat(other.findArchived("factura-vieja").block(WAIT)).isNotNull();
+        assertThat(other.findArchived(fromIssuedAt.toHexString()).block(WAIT)).isNull();
+        ReflectionTestUtils.setField(other, "refreshedAt", Instant.EPOCH);
+        assertThat(other.findArchived(fromIssuedAt.toHexString()).block(WAIT)).isNotNull();
+        assertThat(other.findIssued(old.toLocalDate().atStartOfDay(), old.toLocalDate().plusDays(1).atStartOfDay())
+                .collectList().block(WAIT)).hasSize(2);
+    }
+
+    @Test
+    void onlyTheInstanceWithTheLeaseArchives() {
+        InvoiceArchiver other = archiver(partitions());
+        insert(new ObjectId(date(old)), old);
+
+        assertThat(other.acquire().block(WAIT)).isTrue();
+        assertThat(archiver.archiveWithLease().block(WAIT)).isNull();
+        assertThat(ids(InvoicePartitions.HOT)).hasSize(1);
+
+        //Vencido el lease lo toma otra, y al terminar lo deja libre
+        template.updateFirst(new Query(), new Update().set("until", date(LocalDateTime.now().minusMinutes(1))),
+                InvoiceArchiver.LOCKS).block(WAIT);
+        assertThat(archiver.archiveWithLease().block(WAIT)).isEqualTo(1);
+        assertThat(ids(InvoicePartitions.HOT)).isEmpty();
+        assertThat(other.acquire().block(WAIT)).isTrue();
+    }
+
+    private InvoicePartitions partitions() {
+        InvoicePartitions partitions = new InvoicePartitions(template);
+        ReflectionTestUtils.setField(partitions, "months", 12);
+        ReflectionTestUtils.setField(partitions, "refreshInterval", Duration.ofMinutes(1));
+        return partitions;
+    }
+
+    private InvoiceArchiver archiver(InvoicePartitions partitions) {
+        InvoiceArchiver archiver = new InvoiceArchiver(template, partitions);
+        ReflectionTestUtils.setField(archiver, "enabled", true);
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+        ReflectionTestUtils.setField(archiver, "lease", Duration.ofHours(1));
+        return archiver;
+    }
+
+    private void insert(Object id, LocalDateTime issuedAt) {
+        template.insert(new Document("_id", id)
+                .append(InvoiceConverters.SCHEMA, InvoiceConverters.SCHEMA_VERSION)
+                .append("description", "Mesa")
+                .append("issuedAt", date(issuedAt))
+                .append("total", 10.0)
+                .append("items", List.of()), InvoicePartitions.HOT).block(WAIT);
+    }
+
+    private List<Object> ids(String collection) {
+        return template.find(new Query(), Document.class, collection)
+                .map(document -> document.get("_id"))
+                .collectList()
+                .block(WAIT);
+    }
+
+    private static Date date(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
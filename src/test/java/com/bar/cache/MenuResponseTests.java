@@ -0,0 +1,71 @@
+package com.bar.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MenuResponseTests {
+
+    private final DishMenuCache.Snapshot snapshot = new DishMenuCache.Snapshot(
+            "[]".getBytes(StandardCharsets.UTF_8), new byte[]{31, -117}, "\"abc-2\"");
+
+    @Test
+    void gzipNeedsAPositiveQuality() {
+        assertThat(MenuResponse.acceptsGzip(null)).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip"))).isTrue();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip, deflate, br"))).isTrue();
+        assertThat(MenuResponse.acceptsGzip(List.of("br", "GZIP;Q=0.8"))).isTrue();
+        assertThat(MenuResponse.acceptsGzip(List.of("x-gzip"))).isTrue();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip;q=0"))).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip; q=0.000"))).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip;q=abc"))).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("deflate, br"))).isFalse();
+    }
+
+    @Test
+    void wildcardCoversGzipUnlessNamed() {
+        assertThat(MenuResponse.acceptsGzip(List.of("*"))).isTrue();
+        assertThat(MenuResponse.acceptsGzip(List.of("*;q=0"))).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip;q=0, *"))).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip, *;q=0"))).isTrue();
+    }
+
+    @Test
+    void identityPreferredOverGzipIsServedAsIs() {
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip;q=0.5, identity"))).isFalse();
+        assertThat(MenuResponse.acceptsGzip(List.of("gzip;q=0.5, identity;q=0.1"))).isTrue();
+    }
+
+    @Test
+    void matchingETagIsNotModified() {
+        HttpHeaders request = new HttpHeaders();
+        request.setIfNoneMatch("\"abc-2\"");
+        request.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        MenuResponse response = MenuResponse.of(snapshot, request);
+
+        assertThat(response.status()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.body()).isNull();
+        assertThat(response.headers().getETag()).isEqualTo("\"abc-2\"");
+        assertThat(response.headers().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    void bodyFollowsAcceptEncoding() {
+        HttpHeaders request = new HttpHeaders();
+        request.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MenuResponse gzip = MenuResponse.of(snapshot, request);
+        MenuResponse plain = MenuResponse.of(snapshot, new HttpHeaders());
+
+        assertThat(gzip.status()).isEqualTo(HttpStatus.OK);
+        assertThat(gzip.headers().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzip.body()).isSameAs(snapshot.gzip());
+        assertThat(plain.headers().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(plain.body()).isSameAs(snapshot.json());
+    }
+}
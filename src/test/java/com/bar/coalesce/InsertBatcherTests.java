@@ -0,0 +1,148 @@
+package com.bar.coalesce;
+
+import com.bar.model.Dish;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InsertBatcherTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+    private static final MongoPersistentEntity<?> DISH = new MongoMappingContext().getRequiredPersistentEntity(Dish.class);
+
+    private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+    private final DistributionSummary sizes = new SimpleMeterRegistry().summary("write.batch.size");
+    private InsertBatcher<Dish> batcher;
+
+    @AfterEach
+    void dispose() {
+        if (batcher != null) {
+            batcher.dispose();
+        }
+    }
+
+    @Test
+    void concurrentInsertsGoOutInOneInsertAll() {
+        when(template.insertAll(anyCollection())).thenAnswer(call -> Flux.fromIterable(call.<Collection<?>>getArgument(0)));
+        batcher = batcher(sizes, 3);
+
+        List<Dish> saved = Flux.merge(insert("Sopa"), insert("Arroz"), insert("Cafe")).collectList().block(WAIT);
+
+        assertThat(saved).extracting(Dish::getName).containsExactlyInAnyOrder("Sopa", "Arroz", "Cafe");
+        assertThat(saved).allSatisfy(dish -> assertThat(ObjectId.isValid(dish.getId())).isTrue());
+        verify(template, times(1)).insertAll(anyCollection());
+        verify(template, never()).save(any());
+        assertThat(sizes.max()).isEqualTo(3);
+    }
+
+    @Test
+    void failedBatchIsSavedByTheIdsItWasSentWith() {
+        List<String> sentIds = new ArrayList<>();
+        when(template.insertAll(anyCollection())).thenAnswer(call -> {
+            for (Object dish : call.<Collection<?>>getArgument(0)) {
+                sentIds.add(((Dish) dish).getId());
+            }
+            //Como un insertMany que escribio el primero y fallo en el segundo
+            return Flux.error(new IllegalStateException("E11000 duplicate key"));
+        });
+        List<String> savedIds = new ArrayList<>();
+        when(template.save(any(Dish.class))).thenAnswer(call -> {
+            Dish dish = call.getArgument(0);
+            savedIds.add(dish.getId());
+            return Mono.just(dish);
+        });
+        batcher = batcher(sizes, 2);
+
+        List<Dish> saved = Flux.merge(insert("Sopa"), insert("Arroz")).collectList().block(WAIT);
+
+        assertThat(saved).hasSize(2);
+        assertThat(sentIds).hasSize(2).doesNotContainNull();
+        assertThat(savedIds).containsExactlyInAnyOrderElementsOf(sentIds);
+    }
+
+    @Test
+    void eachCallGetsItsOwnError() {
+        when(template.insertAll(anyCollection())).thenReturn(Flux.error(new IllegalStateException("lote")));
+        when(template.save(any(Dish.class))).thenAnswer(call -> {
+            Dish dish = call.getArgument(0);
+            return "Arroz".equals(dish.getName()) ? Mono.error(new IllegalArgumentException("invalido")) : Mono.just(dish);
+        });
+        batcher = batcher(sizes, 2);
+
+        Mono<Dish> sopa = insert("Sopa").cache();
+        Mono<Dish> arroz = insert("Arroz").cache();
+        sopa.subscribe(null, e -> {
+        });
+        arroz.subscribe(null, e -> {
+        });
+
+        assertThat(sopa.block(WAIT).getName()).isEqualTo("Sopa");
+        assertThatThrownBy(() -> arroz.block(WAIT)).hasMessage("invalido");
+    }
+
+    @Test
+    void callsFailInsteadOfHangingWhenThePipelineStops() {
+        DistributionSummary broken = mock(DistributionSummary.class);
+        doThrow(new IllegalStateException("roto")).when(broken).record(anyDouble());
+        batcher = batcher(broken, 2);
+
+        Mono<Dish> first = insert("Sopa").cache();
+        Mono<Dish> second = insert("Arroz").cache();
+        first.subscribe(null, e -> {
+        });
+        second.subscribe(null, e -> {
+        });
+
+        assertThatThrownBy(() -> first.block(WAIT)).hasMessageContaining("detenida").hasRootCauseMessage("roto");
+        assertThatThrownBy(() -> second.block(WAIT)).hasMessageContaining("detenida");
+        assertThatThrownBy(() -> insert("Cafe").block(WAIT)).hasMessageContaining("detenida");
+    }
+
+    @Test
+    void insertsAfterDisposeFail() {
+        batcher = batcher(sizes, 2);
+        batcher.dispose();
+
+        assertThatThrownBy(() -> insert("Sopa").block(WAIT)).hasMessageContaining("detenida");
+    }
+
+    @Test
+    void onlyNewDocumentsAreBatched() {
+        batcher = batcher(sizes, 2);
+
+        assertThat(batcher.accepts(new Dish(null, "Sopa", 5.0, true))).isTrue();
+        assertThat(batcher.accepts(new Dish(new ObjectId().toHexString(), "Sopa", 5.0, true))).isFalse();
+    }
+
+    private InsertBatcher<Dish> batcher(DistributionSummary summary, int maxSize) {
+        return new InsertBatcher<>(true, DISH, template, maxSize, Duration.ofSeconds(1), summary);
+    }
+
+    private Mono<Dish> insert(String name) {
+        return batcher.insert(new Dish(null, name, 5.0, true));
+    }
+}
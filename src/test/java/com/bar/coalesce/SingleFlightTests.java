@@ -0,0 +1,111 @@
+package com.bar.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Counter executed = meterRegistry.counter("executed");
+    private final Counter coalesced = meterRegistry.counter("coalesced");
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Sinks.One<String> result = Sinks.one();
+
+    @Test
+    void concurrentCallsWithTheSameKeyShareOneExecution() {
+        SingleFlight<String, String> flight = new SingleFlight<>(true, executed, coalesced);
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+
+        flight.execute("a", this::call).subscribe(first::set);
+        flight.execute("a", this::call).subscribe(second::set);
+        assertThat(flight.size()).isEqualTo(1);
+
+        String value = new String("plato");
+        result.tryEmitValue(value);
+
+        assertThat(calls).hasValue(1);
+        assertThat(first.get()).isSameAs(value);
+        assertThat(second.get()).isSameAs(value);
+        assertThat(executed.count()).isEqualTo(1);
+        assertThat(coalesced.count()).isEqualTo(1);
+        assertThat(flight.size()).isZero();
+    }
+
+    @Test
+    void isNotACache() {
+        SingleFlight<String, String> flight = new SingleFlight<>(true, executed, coalesced);
+
+        assertThat(flight.execute("a", () -> Mono.just("uno")).block()).isEqualTo("uno");
+        assertThat(flight.execute("a", () -> Mono.just("dos")).block()).isEqualTo("dos");
+        assertThat(executed.count()).isEqualTo(2);
+        assertThat(coalesced.count()).isZero();
+    }
+
+    @Test
+    void differentKeysRunSeparately() {
+        SingleFlight<String, String> flight = new SingleFlight<>(true, executed, coalesced);
+
+        flight.execute("a", this::call).subscribe();
+        flight.execute("b", this::call).subscribe();
+
+        assertThat(calls).hasValue(2);
+        assertThat(flight.size()).isEqualTo(2);
+    }
+
+    @Test
+    void errorsReachEveryCallerAndClearTheEntry() {
+        SingleFlight<String, String> flight = new SingleFlight<>(true, executed, coalesced);
+        AtomicReference<Throwable> first = new AtomicReference<>();
+        AtomicReference<Throwable> second = new AtomicReference<>();
+
+        flight.execute("a", this::call).subscribe(null, first::set);
+        flight.execute("a", this::call).subscribe(null, second::set);
+        result.tryEmitError(new IllegalStateException("sin conexion"));
+
+        assertThat(first.get()).hasMessage("sin conexion");
+        assertThat(second.get()).isSameAs(first.get());
+        assertThat(flight.size()).isZero();
+    }
+
+    @Test
+    void cancellingEveryCallerCancelsTheCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>(true, executed, coalesced);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        Disposable first = flight.execute("a", () -> call().doOnCancel(() -> cancelled.set(true))).subscribe();
+        Disposable second = flight.execute("a", this::call).subscribe();
+        first.dispose();
+        assertThat(cancelled).isFalse();
+
+        second.dispose();
+        assertThat(cancelled).isTrue();
+        assertThat(flight.size()).isZero();
+    }
+
+    @Test
+    void disabledRunsEveryCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>(false, executed, coalesced);
+
+        flight.execute("a", this::call).subscribe();
+        flight.execute("a", this::call).subscribe();
+
+        assertThat(calls).hasValue(2);
+        assertThat(flight.size()).isZero();
+    }
+
+    private Mono<String> call() {
+        calls.incrementAndGet();
+        return result.asMono();
+    }
+}
@@ -0,0 +1,112 @@
+package com.bar.config;
+
+import com.bar.dto.InvoiceDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodecConfigTests {
+
+    private static final ResolvableType INVOICE = ResolvableType.forClass(InvoiceDTO.class);
+
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    void invoiceListsRoundTripInEveryFormat() throws Exception {
+        List<InvoiceDTO> invoices = InvoicePayloads.invoices(200);
+
+        for (ObjectMapper mapper : List.of(Jackson2ObjectMapperBuilder.json().build(), cbor, smile)) {
+            byte[] payload = mapper.writeValueAsBytes(invoices);
+            assertThat(mapper.<List<InvoiceDTO>>readValue(payload, listType(mapper))).isEqualTo(invoices);
+        }
+    }
+
+    @Test
+    void listsAreEncodedAsOneArray() throws Exception {
+        List<InvoiceDTO> invoices = InvoicePayloads.invoices(20);
+
+        byte[] cborPayload = join(new CodecConfig.CborEncoder(cbor), Flux.fromIterable(invoices), MediaType.APPLICATION_CBOR);
+        byte[] smilePayload = join(new CodecConfig.SmileEncoder(smile), Flux.fromIterable(invoices), CodecConfig.SMILE);
+
+        assertThat(cbor.<List<InvoiceDTO>>readValue(cborPayload, listType(cbor))).isEqualTo(invoices);
+        assertThat(smile.<List<InvoiceDTO>>readValue(smilePayload, listType(smile))).isEqualTo(invoices);
+        //Arreglo CBOR de longitud indefinida: 0x9f ... 0xff
+        assertThat(cborPayload[0]).isEqualTo((byte) 0x9f);
+        assertThat(cborPayload[cborPayload.length - 1]).isEqualTo((byte) 0xff);
+        //Cabecera ":)\n" de Smile una sola vez, al principio
+        assertThat(new String(smilePayload, 0, 2)).isEqualTo(":)");
+    }
+
+    @Test
+    void elementsAreWrittenAsTheyArrive() throws Exception {
+        Sinks.Many<InvoiceDTO> source = Sinks.many().unicast().onBackpressureBuffer();
+        List<byte[]> written = new ArrayList<>();
+        List<InvoiceDTO> invoices = InvoicePayloads.invoices(2);
+
+        new CodecConfig.CborEncoder(cbor)
+                .encode(source.asFlux(), DefaultDataBufferFactory.sharedInstance, INVOICE, MediaType.APPLICATION_CBOR, Map.of())
+                .subscribe(buffer -> written.add(bytes(buffer)));
+
+        source.tryEmitNext(invoices.get(0));
+        //Inicio del arreglo y la primera factura antes de que termine el listado
+        assertThat(written).hasSize(2);
+        assertThat(cbor.readValue(written.get(1), InvoiceDTO.class)).isEqualTo(invoices.get(0));
+
+        source.tryEmitNext(invoices.get(1));
+        source.tryEmitComplete();
+        assertThat(written).hasSize(4);
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (byte[] chunk : written) {
+            all.write(chunk);
+        }
+        assertThat(cbor.<List<InvoiceDTO>>readValue(all.toByteArray(), listType(cbor))).isEqualTo(invoices);
+    }
+
+    @Test
+    void emptyListsAndSingleValues() throws Exception {
+        InvoiceDTO invoice = InvoicePayloads.invoices(1).get(0);
+
+        byte[] empty = join(new CodecConfig.CborEncoder(cbor), Flux.empty(), MediaType.APPLICATION_CBOR);
+        byte[] single = join(new CodecConfig.SmileEncoder(smile), Mono.just(invoice), CodecConfig.SMILE);
+
+        assertThat(cbor.<List<InvoiceDTO>>readValue(empty, listType(cbor))).isEmpty();
+        assertThat(smile.readValue(single, InvoiceDTO.class)).isEqualTo(invoice);
+    }
+
+    private static byte[] join(AbstractJackson2Encoder encoder, Publisher<?> input, MimeType mimeType) {
+        return DataBufferUtils.join(encoder.encode(input, DefaultDataBufferFactory.sharedInstance, INVOICE, mimeType, Map.of()))
+                .map(CodecConfigTests::bytes)
+                .block();
+    }
+
+    private static byte[] bytes(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private static JavaType listType(ObjectMapper mapper) {
+        return mapper.getTypeFactory().constructCollectionType(List.class, InvoiceDTO.class);
+    }
+}
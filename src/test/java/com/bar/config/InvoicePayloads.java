@@ -0,0 +1,35 @@
+package com.bar.config;
+
+import com.bar.dto.ClientDTO;
+import com.bar.dto.DishDTO;
+import com.bar.dto.InvoiceDTO;
+import com.bar.dto.InvoiceDetailDTO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+//Listado de facturas tipico: facturas con 5 lineas, clientes y platos repetidos
+final class InvoicePayloads {
+
+    private InvoicePayloads() {
+    }
+
+    static List<InvoiceDTO> invoices(int count) {
+        return IntStream.range(0, count).mapToObj(InvoicePayloads::invoice).toList();
+    }
+
+    private static InvoiceDTO invoice(int i) {
+        ClientDTO client = new ClientDTO(String.format("65a0c0ffee000000000c%04d", i % 50), "Cliente " + i % 50,
+                "Apellido " + i % 50, LocalDate.of(1990, 1, 1).plusDays(i), null);
+        List<InvoiceDetailDTO> items = IntStream.range(0, 5)
+                .mapToObj(j -> new InvoiceDetailDTO(1 + j % 3, new DishDTO(
+                        String.format("65a0c0ffee000000000d%04d", (i + j) % 40), "Plato " + (i + j) % 40, 10.5 + j, true)))
+                .toList();
+        double total = items.stream().mapToDouble(item -> item.getQuantity() * item.getDish().getPriceDish()).sum();
+
+        return new InvoiceDTO(String.format("65a0c0ffee000000000f%04d", i), "Mesa " + i % 12,
+                LocalDateTime.of(2024, 5, 1, 20, 30).plusMinutes(i), client, items, total, null);
+    }
+}
@@ -0,0 +1,62 @@
+package com.bar.config;
+
+import com.bar.dto.InvoiceDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tamaño y tiempo de escritura/lectura de un listado de facturas tipico (200 facturas con 5 lineas)
+ * en JSON, CBOR y Smile, con la misma configuracion de Jackson que usa CodecConfig (la ida y vuelta
+ * la comprueba CodecConfigTests).
+ * No corre con los tests normales: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class WireFormatBenchmarkTests {
+
+    private static final int WARMUP = 300;
+    private static final int MEASURED = 1_000;
+
+    @Test
+    void invoiceListPayloads() throws Exception {
+        List<InvoiceDTO> invoices = InvoicePayloads.invoices(200);
+
+        Map<String, ObjectMapper> mappers = Map.of(
+                "application/json", Jackson2ObjectMapperBuilder.json().build(),
+                "application/cbor", Jackson2ObjectMapperBuilder.cbor().build(),
+                "application/x-jackson-smile", Jackson2ObjectMapperBuilder.smile().build()
+        );
+
+        System.out.printf("%n%-30s %10s %14s %14s%n", "Formato", "bytes", "escritura us", "lectura us");
+        for (String format : List.of("application/json", "application/cbor", "application/x-jackson-smile")) {
+            ObjectMapper mapper = mappers.get(format);
+            JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, InvoiceDTO.class);
+
+            byte[] payload = mapper.writeValueAsBytes(invoices);
+
+            for (int i = 0; i < WARMUP; i++) {
+                mapper.readValue(mapper.writeValueAsBytes(invoices), type);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED; i++) {
+                mapper.writeValueAsBytes(invoices);
+            }
+            long write = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURED; i++) {
+                mapper.readValue(payload, type);
+            }
+            long read = System.nanoTime() - start;
+
+            System.out.printf("%-30s %10d %14.1f %14.1f%n", format, payload.length,
+                    write / 1_000.0 / MEASURED, read / 1_000.0 / MEASURED);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.bar.exception;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.boot.web.reactive.error.ErrorAttributes;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Costo de responder un error: el WebExceptionHandler anterior (getErrorAttributes, HashMap, codec
+ * JSON, estado parseado de un String) contra el actual, con un 404 de ruta inexistente como lo crea
+ * Spring, la NotFoundException constante de NotFoundHandlerMapping y una ValidationException nueva
+ * por peticion. Tiempo y bytes asignados por error; la primera fila es lo que cuesta solo el exchange
+ * simulado. Que las respuestas sean las mismas lo comprueba WebExceptionHandlerTests.
+ * No corre con los tests normales: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class ErrorPathBenchmarkTests {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+    private static final NotFoundException NOT_FOUND = new NotFoundException("No existe el recurso");
+
+    @Test
+    void legacyAndTypedErrorPaths() {
+        ApplicationContext context = new StaticApplicationContext();
+        ServerCodecConfigurer codecs = ServerCodecConfigurer.create();
+        WebExceptionHandler legacy = new LegacyHandler(new DefaultErrorAttributes(), context, codecs);
+        WebExceptionHandler typed = new com.bar.exception.WebExceptionHandler(new DefaultErrorAttributes(),
+                new WebProperties.Resources(), context, codecs, new SimpleMeterRegistry());
+
+        System.out.printf("%n%-44s %10s %12s%n", "Camino", "ns/error", "bytes/error");
+        run("solo el exchange simulado", (exchange, e) -> Mono.empty(), () -> NOT_FOUND);
+        run("anterior: ResponseStatusException 404", legacy,
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        run("anterior: ResponseStatusException 400", legacy,
+                () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Campo desconocido: precio"));
+        run("actual: ResponseStatusException 404", typed,
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        run("actual: NotFoundException constante", typed, () -> NOT_FOUND);
+        run("actual: ValidationException", typed,
+                () -> new ValidationException("Campo desconocido: precio"));
+    }
+
+    private static void run(String name, WebExceptionHandler handler, Supplier<Throwable> error) {
+        for (int i = 0; i < WARMUP; i++) {
+            handle(handler, error.get());
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            handle(handler, error.get());
+        }
+        long nanos = (System.nanoTime() - start) / ITERATIONS;
+        long bytes = (threads.getCurrentThreadAllocatedBytes() - allocated) / ITERATIONS;
+        System.out.printf("%-44s %10d %12d%n", name, nanos, bytes);
+    }
+
+    private static void handle(WebExceptionHandler handler, Throwable error) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/wp-login.php"));
+        handler.handle(exchange, error).block();
+    }
+
+    //WebExceptionHandler tal como estaba antes de ErrorType (479489d), sin cambios en renderErrorResponse
+    private static final class LegacyHandler extends AbstractErrorWebExceptionHandler {
+
+        LegacyHandler(ErrorAttributes errorAttributes, ApplicationContext context, ServerCodecConfigurer configurer) {
+            super(errorAttributes, new WebProperties.Resources(), context);
+            setMessageWriters(configurer.getWriters());
+        }
+
+        @Override
+        protected RouterFunction<ServerResponse> getRoutingFunction(ErrorAttributes errorAttributes) {
+            return RouterFunctions.route(RequestPredicates.all(), this::renderErrorResponse);
+        }
+
+        private Mono<ServerResponse> renderErrorResponse(ServerRequest req) {
+            Map<String, Object> generalError = getErrorAttributes(req, ErrorAttributeOptions.defaults());
+            Map<String, Object> customError = new HashMap<>();
+
+            HttpStatus httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+            int statusCode = Integer.parseInt(String.valueOf(generalError.get("status")));
+            Throwable error = getError(req);
+
+            switch (statusCode){
+                case 400, 422 -> {
+                    customError.put("message", error.getMessage());
+                    customError.put("status", 400);
+                    httpStatus = HttpStatus.BAD_REQUEST;
+                }
+                case 404 -> {
+                    customError.put("message", error.getMessage());
+                    customError.put("status", 404);
+                    httpStatus = HttpStatus.NOT_FOUND;
+                }
+                case 401, 403 -> {
+                    customError.put("message", error.getMessage());
+                    customError.put("status", 401);
+                    httpStatus = HttpStatus.UNAUTHORIZED;
+                }
+                case 500 -> {
+                    customError.put("message", error.getMessage());
+                    customError.put("status", 500);
+                    //httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+                }
+                default -> {
+                    customError.put("message", error.getMessage());
+                    customError.put("status", 418);
+                    httpStatus = HttpStatus.I_AM_A_TEAPOT;
+                }
+            }
+
+            return ServerResponse.status(httpStatus)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromValue(customError));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.bar.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorTypeTests {
+
+    @Test
+    void statusesMapLikeTheOldHandler() {
+        assertThat(ErrorType.of(400)).isEqualTo(ErrorType.VALIDATION);
+        assertThat(ErrorType.of(422)).isEqualTo(ErrorType.VALIDATION);
+        assertThat(ErrorType.of(401)).isEqualTo(ErrorType.UNAUTHORIZED);
+        assertThat(ErrorType.of(403)).isEqualTo(ErrorType.UNAUTHORIZED);
+        assertThat(ErrorType.of(404)).isEqualTo(ErrorType.NOT_FOUND);
+        assertThat(ErrorType.of(409)).isEqualTo(ErrorType.CONFLICT);
+        assertThat(ErrorType.of(500)).isEqualTo(ErrorType.INTERNAL);
+        //Lo que no tiene tipo propio sigue respondiendo 418
+        assertThat(ErrorType.of(405)).isEqualTo(ErrorType.OTHER);
+        assertThat(ErrorType.of(503)).isEqualTo(ErrorType.OTHER);
+        assertThat(ErrorType.OTHER.status()).isEqualTo(HttpStatus.I_AM_A_TEAPOT);
+    }
+
+    @Test
+    void bodyEscapesTheMessage() {
+        assertThat(body(ErrorType.VALIDATION, "Campo \"precio\" invalido\n"))
+                .isEqualTo("{\"message\":\"Campo \\\"precio\\\" invalido\\n\",\"status\":400}");
+        assertThat(body(ErrorType.NOT_FOUND, "No existe la cañería")).isEqualTo("{\"message\":\"No existe la cañería\",\"status\":404}");
+        assertThat(body(ErrorType.CONFLICT, null)).isEqualTo("{\"message\":null,\"status\":409}");
+    }
+
+    @Test
+    void domainExceptionsBuildTheirBodyOnce() {
+        NotFoundException notFound = new NotFoundException("No existe el recurso");
+
+        assertThat(notFound.body()).isSameAs(notFound.body());
+        assertThat(new String(notFound.body(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"message\":\"No existe el recurso\",\"status\":404}");
+        assertThat(notFound.getStackTrace()).isEmpty();
+    }
+
+    private static String body(ErrorType type, String message) {
+        return new String(type.body(message), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.bar.exception;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebExceptionHandlerTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebExceptionHandler handler = new WebExceptionHandler(new DefaultErrorAttributes(),
+            new WebProperties.Resources(), new StaticApplicationContext(), ServerCodecConfigurer.create(), meterRegistry);
+
+    @Test
+    void domainExceptionsAnswerWithTheirType() {
+        assertResponse(new ValidationException("Campo desconocido: precio"), HttpStatus.BAD_REQUEST,
+                "{\"message\":\"Campo desconocido: precio\",\"status\":400}");
+        assertResponse(new NotFoundException("No existe la factura"), HttpStatus.NOT_FOUND,
+                "{\"message\":\"No existe la factura\",\"status\":404}");
+        assertResponse(new ConflictException("La factura cambio"), HttpStatus.CONFLICT,
+                "{\"message\":\"La factura cambio\",\"status\":409}");
+        assertThat(meterRegistry.counter("http.server.errors", "type", "not_found").count()).isEqualTo(1);
+    }
+
+    @Test
+    void springExceptionsKeepTheOldStatuses() {
+        ResponseStatusException notFound = new ResponseStatusException(HttpStatus.NOT_FOUND);
+        assertResponse(notFound, HttpStatus.NOT_FOUND, "{\"message\":\"" + notFound.getMessage() + "\",\"status\":404}");
+        assertResponse(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "precio"), HttpStatus.BAD_REQUEST,
+                "{\"message\":\"422 UNPROCESSABLE_ENTITY \\\"precio\\\"\",\"status\":400}");
+        assertResponse(new Forbidden(), HttpStatus.UNAUTHORIZED, "{\"message\":\"Sin permiso\",\"status\":401}");
+        ResponseStatusException unavailable = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+        assertResponse(unavailable, HttpStatus.I_AM_A_TEAPOT,
+                "{\"message\":\"" + unavailable.getMessage() + "\",\"status\":418}");
+        assertThat(meterRegistry.counter("http.server.errors", "type", "other").count()).isEqualTo(1);
+    }
+
+    @Test
+    void unexpectedErrorsAreInternal() {
+        assertResponse(new IllegalStateException("Mongo no responde"), HttpStatus.INTERNAL_SERVER_ERROR,
+                "{\"message\":\"Mongo no responde\",\"status\":500}");
+        assertThat(meterRegistry.counter("http.server.errors", "type", "internal").count()).isEqualTo(1);
+    }
+
+    private void assertResponse(Throwable error, HttpStatus status, String body) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/invoices/1"));
+
+        handler.handle(exchange, error).block(WAIT);
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(status);
+        assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(exchange.getResponse().getBodyAsString().block(WAIT)).isEqualTo(body);
+    }
+
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    private static final class Forbidden extends RuntimeException {
+
+        Forbidden() {
+            super("Sin permiso");
+        }
+    }
+}
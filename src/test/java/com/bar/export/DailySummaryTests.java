@@ -0,0 +1,30 @@
+package com.bar.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DailySummaryTests {
+
+    @Test
+    void addsLinesInCentsAndPrintsTwoDecimals() {
+        DailySummary summary = new DailySummary(LocalDate.of(2024, 5, 3));
+        //0.10 sumado mil veces en double da 99.9999999999986
+        for (int i = 0; i < 1_000; i++) {
+            summary.add(new InvoiceLine("f" + (i % 3), "Mesa", "Ana", "Cafe", 1, 10, 10));
+        }
+        summary.add(new InvoiceLine("f3", "Mesa", "Ana", "Banquete", 2, 500_000_000, 1_000_000_000));
+
+        String csv = new String(summary.toCsv(), StandardCharsets.UTF_8);
+
+        assertThat(csv).isEqualTo("\uFEFFdish,units,total\r\n"
+                + "Banquete,2,10000000.00\r\n"
+                + "Cafe,1000,100.00\r\n"
+                + "TOTAL,1002,10000100.00\r\n"
+                + "INVOICES,4,\r\n");
+        assertThat(summary.getInvoiceIds()).containsExactly("f0", "f1", "f2", "f3");
+    }
+}
@@ -0,0 +1,36 @@
+package com.bar.export;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceCsvWriterTests {
+
+    @Test
+    void writesAmountsWithTwoDecimals() {
+        Flux<InvoiceLine> lines = Flux.just(
+                new InvoiceLine("f1", "Mesa 1", "Ana Diaz", "Cafe", 3, 10, 30),
+                new InvoiceLine("f1", "Mesa 1", "Ana Diaz", "Banquete", 1, 1_000_000_000, 1_000_000_000),
+                new InvoiceLine("f2", "Mesa 2, terraza", null, "Sopa \"del dia\"", 2, 705, 1410));
+
+        String csv = DataBufferUtils.join(new InvoiceCsvWriter().write(lines, DefaultDataBufferFactory.sharedInstance))
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .block();
+
+        assertThat(csv).isEqualTo("\uFEFFinvoice_id,description,client,dish,quantity,price,total\r\n"
+                + "f1,Mesa 1,Ana Diaz,Cafe,3,0.10,0.30\r\n"
+                + "f1,Mesa 1,Ana Diaz,Banquete,1,10000000.00,10000000.00\r\n"
+                + "f2,\"Mesa 2, terraza\",,\"Sopa \"\"del dia\"\"\",2,7.05,14.10\r\n");
+    }
+
+    @Test
+    void negativeAmountsKeepTheSign() {
+        assertThat(InvoiceCsvWriter.appendMoney(new StringBuilder(), -5).toString()).isEqualTo("-0.05");
+        assertThat(InvoiceCsvWriter.appendMoney(new StringBuilder(), -1234).toString()).isEqualTo("-12.34");
+    }
+}
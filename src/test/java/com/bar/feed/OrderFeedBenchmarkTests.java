@@ -0,0 +1,65 @@
+package com.bar.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OrderFeed con un change stream sintetico: 50 pantallas que leen a tiempo (la mitad filtra por
+ * categoria) y una que deja de leer. Mide la latencia desde el cambio hasta cada pantalla; lo que
+ * cada una recibe lo comprueba OrderFeedTests.
+ * No corre con los tests normales: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class OrderFeedBenchmarkTests {
+
+    private static final int DISPLAYS = 50;
+    private static final int EVENTS = 2_000;
+    private static final int REPLAY_SIZE = 512;
+
+    @Test
+    void fanOutWithASlowDisplay() {
+        SyntheticChanges changes = new SyntheticChanges();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("order-feed.replay-size", Integer.toString(REPLAY_SIZE))
+                .withProperty("order-feed.subscriber-buffer", "64")
+                .withProperty("order-feed.grace-period", "0s");
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+
+        Map<String, Long> emittedAt = new ConcurrentHashMap<>();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < DISPLAYS; i++) {
+            feed.subscribe(i % 2 == 0 ? "cocina" : null, null, null)
+                    .filter(event -> event.id() != null)
+                    .subscribe(event -> latencies.add(System.nanoTime() - emittedAt.get(event.id())));
+        }
+        SlowDisplay slow = new SlowDisplay();
+        feed.subscribe(null, null, null).subscribe(slow);
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= EVENTS; i++) {
+            emittedAt.put(SyntheticChanges.token(i), System.nanoTime());
+            changes.emit(i);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Collections.sort(latencies);
+        System.out.printf("%n%-10s %-10s %12s %10s %10s %10s %10s%n",
+                "Pantallas", "Eventos", "eventos/s", "p50 us", "p99 us", "max us", "lenta");
+        System.out.printf("%-10d %-10d %12.0f %10.1f %10.1f %10.1f %10s%n", DISPLAYS + 1, EVENTS, EVENTS / seconds,
+                percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                latencies.get(latencies.size() - 1) / 1e3, slow.completed.get() ? "desconectada" : "conectada");
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        return sorted.get((int) Math.ceil(p * sorted.size()) - 1);
+    }
+}
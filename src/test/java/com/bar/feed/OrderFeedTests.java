@@ -0,0 +1,193 @@
+package com.bar.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderFeedTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final SyntheticChanges changes = new SyntheticChanges();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("order-feed.replay-size", "16")
+            .withProperty("order-feed.subscriber-buffer", "8")
+            .withProperty("order-feed.grace-period", "0s");
+
+    @Test
+    void oneChangeStreamServesEveryDisplayAndASlowOneIsDropped() {
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+        List<List<String>> received = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<String> ids = new CopyOnWriteArrayList<>();
+            received.add(ids);
+            feed.subscribe(i % 2 == 0 ? "cocina" : null, null, null)
+                    .filter(event -> event.id() != null)
+                    .subscribe(event -> ids.add(event.id()));
+        }
+        SlowDisplay slow = new SlowDisplay();
+        feed.subscribe(null, null, null).subscribe(slow);
+
+        for (int i = 1; i <= 40; i++) {
+            changes.emit(i);
+        }
+
+        assertThat(changes.subscriptions.get()).isEqualTo(1);
+        assertThat(slow.completed).isTrue();
+        assertThat(meterRegistry.counter("orderfeed.dropped").count()).isEqualTo(1);
+        for (int i = 0; i < 4; i++) {
+            //Los pares son de cocina: uno de cada dos pedidos
+            assertThat(received.get(i)).hasSize(i % 2 == 0 ? 20 : 40);
+        }
+    }
+
+    @Test
+    void reconnectsGetExactlyWhatTheyMissed() {
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+        feed.subscribe(null, null, null).subscribe();
+        for (int i = 1; i <= 40; i++) {
+            changes.emit(i);
+        }
+
+        //Desde memoria: el id esta entre los ultimos 16
+        assertThat(ids(feed.subscribe(null, null, SyntheticChanges.token(30)), 10))
+                .isEqualTo(SyntheticChanges.tokens(31, 40));
+
+        //Fuera de memoria: change stream propio desde el token hasta alcanzar al compartido
+        List<String> resumed = new CopyOnWriteArrayList<>();
+        feed.subscribe(null, null, SyntheticChanges.token(5))
+                .filter(event -> event.id() != null)
+                .subscribe(event -> resumed.add(event.id()));
+        assertThat(resumed).isEqualTo(SyntheticChanges.tokens(6, 40));
+        assertThat(changes.active.get()).isEqualTo(1);
+
+        for (int i = 41; i <= 45; i++) {
+            changes.emit(i);
+        }
+        assertThat(resumed).isEqualTo(SyntheticChanges.tokens(6, 45));
+        assertThat(meterRegistry.counter("orderfeed.reconnects", "from", "memory").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("orderfeed.reconnects", "from", "change-stream").count()).isEqualTo(1);
+    }
+
+    @Test
+    void afterARestartEveryDisplayMovesToTheSharedStream() {
+        //Los cambios de antes del reinicio: ninguno esta en memoria
+        for (int i = 1; i <= 10; i++) {
+            changes.emit(i);
+        }
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+        List<List<String>> received = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<String> ids = new CopyOnWriteArrayList<>();
+            received.add(ids);
+            feed.subscribe(null, null, SyntheticChanges.token(5))
+                    .filter(event -> event.id() != null)
+                    .subscribe(event -> ids.add(event.id()));
+        }
+        assertThat(received).allSatisfy(ids -> assertThat(ids).isEqualTo(SyntheticChanges.tokens(6, 10)));
+
+        for (int i = 11; i <= 15; i++) {
+            changes.emit(i);
+        }
+
+        assertThat(received).allSatisfy(ids -> assertThat(ids).isEqualTo(SyntheticChanges.tokens(6, 15)));
+        //Con el primer cambio nuevo cada una pasa al compartido y cierra el suyo
+        assertThat(changes.active.get()).isEqualTo(1);
+        assertThat(changes.subscriptions.get()).isEqualTo(4);
+        assertThat(meterRegistry.counter("orderfeed.reconnects", "from", "change-stream").count()).isEqualTo(3);
+    }
+
+    @Test
+    void displaysOverTheLimitOnlyGetARetry() {
+        environment.withProperty("order-feed.max-subscribers", "2")
+                .withProperty("order-feed.busy-retry", "45s");
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+        Disposable first = feed.subscribe(null, null, null).subscribe();
+        feed.subscribe(null, null, null).subscribe();
+
+        List<ServerSentEvent<String>> busy = feed.subscribe(null, null, null).collectList().block(WAIT);
+
+        assertThat(busy).singleElement().satisfies(event -> {
+            assertThat(event.comment()).isEqualTo("ocupado");
+            assertThat(event.retry()).isEqualTo(Duration.ofSeconds(45));
+        });
+        assertThat(meterRegistry.counter("orderfeed.rejected").count()).isEqualTo(1);
+
+        first.dispose();
+        assertThat(feed.subscribe(null, null, null).blockFirst(WAIT).comment()).isEqualTo("conectado");
+        assertThat(meterRegistry.counter("orderfeed.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void catchUpsOverTheLimitAreReset() {
+        environment.withProperty("order-feed.max-catch-ups", "1");
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+        feed.subscribe(null, null, null).subscribe();
+        for (int i = 1; i <= 40; i++) {
+            changes.emit(i);
+        }
+        changes.stallResumes = true;
+
+        Disposable first = feed.subscribe(null, null, SyntheticChanges.token(5)).subscribe();
+        List<String> second = types(feed.subscribe(null, null, SyntheticChanges.token(6)), 1);
+
+        assertThat(second).containsExactly(OrderFeed.RESET);
+        assertThat(changes.active.get()).isEqualTo(2);
+        assertThat(meterRegistry.counter("orderfeed.reconnects", "from", "reset").count()).isEqualTo(1);
+
+        //Al cerrarse el primero queda lugar para otro
+        first.dispose();
+        feed.subscribe(null, null, SyntheticChanges.token(7)).subscribe();
+        assertThat(changes.active.get()).isEqualTo(2);
+        assertThat(meterRegistry.counter("orderfeed.reconnects", "from", "change-stream").count()).isEqualTo(2);
+    }
+
+    @Test
+    void theArchiversDeletesAreNotAnnounced() {
+        OrderFeed feed = changes.feed(environment, meterRegistry);
+        List<String> received = new CopyOnWriteArrayList<>();
+        feed.subscribe(null, null, null)
+                .filter(event -> event.id() != null)
+                .subscribe(event -> received.add(event.event()));
+
+        changes.emit(1, OrderFeed.ARCHIVED, "factura-vieja");
+        changes.emit(2, OrderFeed.DELETED, "factura-vieja");
+        changes.emit(3, OrderFeed.DELETED, "factura-anulada");
+        changes.emit(4);
+
+        assertThat(received).containsExactly(OrderFeed.DELETED, OrderFeed.CREATED);
+        //Tambien al retomar con un change stream propio
+        for (int i = 5; i <= 40; i++) {
+            changes.emit(i);
+        }
+        assertThat(types(feed.subscribe(null, null, SyntheticChanges.token(0)), 3))
+                .containsExactly(OrderFeed.DELETED, OrderFeed.CREATED, OrderFeed.CREATED);
+    }
+
+    private static List<String> ids(Flux<ServerSentEvent<String>> events, int count) {
+        return events.filter(event -> event.id() != null)
+                .map(ServerSentEvent::id)
+                .take(count)
+                .collectList()
+                .block(WAIT);
+    }
+
+    private static List<String> types(Flux<ServerSentEvent<String>> events, int count) {
+        return events.filter(event -> event.event() != null)
+                .map(ServerSentEvent::event)
+                .take(count)
+                .collectList()
+                .block(WAIT);
+    }
+}
@@ -0,0 +1,27 @@
+package com.bar.feed;
+
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Pantalla que lee un evento y no pide mas
+final class SlowDisplay extends BaseSubscriber<ServerSentEvent<String>> {
+
+    final AtomicBoolean completed = new AtomicBoolean();
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        subscription.request(1);
+    }
+
+    @Override
+    protected void hookOnNext(ServerSentEvent<String> value) {
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        completed.set(true);
+    }
+}
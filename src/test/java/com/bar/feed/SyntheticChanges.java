@@ -0,0 +1,108 @@
+package com.bar.feed;
+
+import com.bar.config.MapperConfig;
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Historial completo mas los cambios nuevos, como un change stream que retoma en resumeAfter
+final class SyntheticChanges implements OrderFeed.ChangeSource {
+
+    final AtomicInteger subscriptions = new AtomicInteger();
+    final AtomicInteger active = new AtomicInteger();
+    //Los change streams que retoman no envian nada hasta que se cancelan
+    volatile boolean stallResumes;
+
+    private final List<OrderFeed.Change> history = new CopyOnWriteArrayList<>();
+    private final Sinks.Many<OrderFeed.Change> live = Sinks.many().multicast().directBestEffort();
+
+    OrderFeed feed(MockEnvironment environment, MeterRegistry meterRegistry) {
+        //Como en la aplicacion: "0s" a Duration
+        environment.setConversionService((ConfigurableConversionService) ApplicationConversionService.getSharedInstance());
+        return new OrderFeed(this, new MapperConfig().invoiceMapper(),
+                JsonMapper.builder().findAndAddModules().build(), environment, meterRegistry);
+    }
+
+    @Override
+    public Flux<OrderFeed.Change> changes(BsonValue resumeAfter) {
+        Flux<OrderFeed.Change> changes = resumeAfter == null
+                ? live.asFlux()
+                : stallResumes
+                ? Flux.never()
+                : Flux.fromIterable(after(resumeAfter.asDocument().getString("_data").getValue()))
+                .concatWith(live.asFlux());
+        return changes
+                .doOnSubscribe(s -> {
+                    subscriptions.incrementAndGet();
+                    active.incrementAndGet();
+                })
+                .doFinally(signal -> active.decrementAndGet());
+    }
+
+    void emit(int i) {
+        emit(i, OrderFeed.CREATED, new ObjectId().toHexString());
+    }
+
+    void emit(int i, String type, String invoiceId) {
+        Invoice invoice = OrderFeed.CREATED.equals(type) || OrderFeed.UPDATED.equals(type) ? invoice(i) : null;
+        OrderFeed.Change change = new OrderFeed.Change(new BsonDocument("_data", new BsonString(token(i))),
+                type, invoiceId, invoice);
+        history.add(change);
+        //Sin change streams abiertos el cambio queda solo en el historial
+        live.tryEmitNext(change);
+    }
+
+    //Los _data reales son hex que crecen con el tiempo del cluster
+    static String token(int i) {
+        return String.format("82%014X", i);
+    }
+
+    static List<String> tokens(int from, int to) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+
+    private List<OrderFeed.Change> after(String token) {
+        List<OrderFeed.Change> after = new ArrayList<>();
+        for (OrderFeed.Change change : history) {
+            if (change.token().asDocument().getString("_data").getValue().compareTo(token) > 0) {
+                after.add(change);
+            }
+        }
+        return after;
+    }
+
+    //Los pares son de cocina y los impares de barra
+    private static Invoice invoice(int i) {
+        String category = i % 2 == 0 ? "cocina" : "barra";
+        List<InvoiceDetail> items = new ArrayList<>();
+        for (int line = 0; line < 4; line++) {
+            items.add(new InvoiceDetail(1 + line,
+                    new Dish(new ObjectId().toHexString(), "Plato " + line, 10.0 + line, null, category)));
+        }
+        Client client = new Client(new ObjectId().toHexString(), "Mesa", "Doce", LocalDate.of(1990, 1, 1), null);
+        return new Invoice(new ObjectId().toHexString(), "Mesa " + i, LocalDateTime.now(), client, items, 46.0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bar.handler;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Peticiones por segundo y bytes asignados por peticion de los controladores anotados frente a las
+ * rutas funcionales (RouterConfig); que respondan lo mismo lo comprueba RoutesTests.
+ * No corre con los tests normales: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class RouteBenchmarkTests {
+
+    private static final int WARMUP = 3_000;
+    private static final int MEASURED = 20_000;
+
+    @Test
+    void annotatedAndFunctionalRoutes() {
+        RouteFixture routes = new RouteFixture();
+
+        System.out.printf("%n%-55s %14s %14s %12s %12s%n", "GET", "anotado req/s", "funcional req/s", "anotado B", "funcional B");
+        for (String uri : RouteFixture.URIS) {
+            Result a = measure(routes.annotated, uri);
+            Result f = measure(routes.functional, uri);
+            System.out.printf("%-55s %14.0f %14.0f %12d %12d%n", uri, a.perSecond(), f.perSecond(), a.bytesPerRequest(), f.bytesPerRequest());
+        }
+    }
+
+    private static void exchange(WebTestClient client, String uri) {
+        client.get().uri(uri).exchange().expectBody().returnResult();
+    }
+
+    private static Result measure(WebTestClient client, String uri) {
+        for (int i = 0; i < WARMUP; i++) {
+            exchange(client, uri);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED; i++) {
+            exchange(client, uri);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(MEASURED * 1e9 / elapsed, (allocatedBytes() - allocated) / MEASURED);
+    }
+
+    //Todos los hilos: el cliente de prueba puede atender la peticion fuera del hilo del test
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(ids)) {
+            total += Math.max(bytes, 0);
+        }
+        return total;
+    }
+
+    private record Result(double perSecond, long bytesPerRequest) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.bar.handler;
+
+import com.bar.cache.DishMenuCache;
+import com.bar.config.MapperConfig;
+import com.bar.config.RouterConfig;
+import com.bar.controller.DishController;
+import com.bar.controller.InvoiceController;
+import com.bar.export.InvoiceCsvWriter;
+import com.bar.exception.WebExceptionHandler;
+import com.bar.export.InvoiceXlsxWriter;
+import com.bar.feed.OrderFeed;
+import com.bar.hateoas.LinkTemplates;
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
+import com.bar.search.DishNameIndex;
+import com.bar.service.IDishService;
+import com.bar.service.IInvoiceService;
+import com.bar.service.IInvoiceSummaryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.test.web.reactive.server.MockServerConfigurer;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//Los controladores anotados y las rutas funcionales (RouterConfig) sobre los mismos servicios simulados
+final class RouteFixture {
+
+    static final String DISH_ID = "65a0c0ffee0000000000d001";
+    static final String INVOICE_ID = "65a0c0ffee0000000000f001";
+    static final String MISSING_ID = "65a0c0ffee0000000000beef";
+    static final String MENU_ETAG = "\"menu-1\"";
+
+    static final List<String> URIS = List.of(
+            "/dishes",
+            "/dishes?sort=-priceDish&fields=id,nameDish",
+            "/dishes/" + DISH_ID,
+            "/dishes/" + DISH_ID + "?fields=nameDish",
+            "/dishes/" + MISSING_ID,
+            "/invoices/" + INVOICE_ID,
+            "/invoices/" + INVOICE_ID + "?fields=unknown"
+    );
+
+    final byte[] menuJson = "[{\"id\":\"1\",\"nameDish\":\"Lomo\"}]".getBytes(StandardCharsets.UTF_8);
+    final byte[] menuGzip = "gzip".getBytes(StandardCharsets.UTF_8);
+    final WebTestClient annotated;
+    final WebTestClient functional;
+
+    RouteFixture() {
+        MapperConfig mappers = new MapperConfig();
+        ModelMapper defaultMapper = mappers.modelMapper();
+        ModelMapper invoiceMapper = mappers.invoiceMapper();
+
+        List<Dish> menu = IntStream.range(0, 40)
+                .mapToObj(i -> new Dish(String.format("65a0c0ffee000000000%05d", i), "Plato " + i, 10.0 + i, true))
+                .toList();
+        Dish dish = new Dish(DISH_ID, "Lomo saltado", 32.5, true);
+        Invoice invoice = new Invoice(INVOICE_ID, "Mesa 4", LocalDateTime.of(2024, 5, 1, 20, 30),
+                new Client("65a0c0ffee0000000000c001", "Jose", "Perez", null, null),
+                List.of(new InvoiceDetail(2, dish), new InvoiceDetail(1, menu.get(3))), 78.0);
+
+        IDishService dishService = mock(IDishService.class);
+        when(dishService.findById(anyString(), any(FieldSelection.class))).thenReturn(Mono.empty());
+        when(dishService.findById(eq(DISH_ID), any(FieldSelection.class))).thenReturn(Mono.just(dish));
+        when(dishService.query(any(QueryFilter.class), any(FieldSelection.class))).thenReturn(Flux.fromIterable(menu));
+
+        DishMenuCache menuCache = mock(DishMenuCache.class);
+        when(menuCache.get()).thenReturn(Mono.just(new DishMenuCache.Snapshot(menuJson, menuGzip, MENU_ETAG)));
+
+        IInvoiceService invoiceService = mock(IInvoiceService.class);
+        when(invoiceService.findById(anyString(), any(FieldSelection.class))).thenReturn(Mono.empty());
+        when(invoiceService.findById(eq(INVOICE_ID), any(FieldSelection.class))).thenReturn(Mono.just(invoice));
+
+        //Los errores como en la aplicacion: si no, las dos rutas responden el 500 por defecto
+        MockServerConfigurer errors = new MockServerConfigurer() {
+            @Override
+            public void beforeServerCreated(WebHttpHandlerBuilder builder) {
+                builder.exceptionHandler(new WebExceptionHandler(new DefaultErrorAttributes(), new WebProperties.Resources(),
+                        new StaticApplicationContext(), ServerCodecConfigurer.create(), new SimpleMeterRegistry()));
+            }
+        };
+
+        annotated = WebTestClient.bindToController(
+                new DishController(dishService, defaultMapper, menuCache, mock(DishNameIndex.class), new LinkTemplates()),
+                new InvoiceController(invoiceService, mock(IInvoiceSummaryService.class), invoiceMapper,
+                        new InvoiceCsvWriter(), mock(InvoiceXlsxWriter.class), new LinkTemplates(), mock(OrderFeed.class))
+        ).apply(errors).build();
+        functional = WebTestClient.bindToRouterFunction(new RouterConfig().hotRoutes(
+                new DishHandler(dishService, defaultMapper, menuCache),
+                new InvoiceHandler(invoiceService, invoiceMapper)
+        )).apply(errors).build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.bar.handler;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutesTests {
+
+    private final RouteFixture routes = new RouteFixture();
+
+    @Test
+    void functionalRoutesAnswerLikeTheControllers() {
+        for (String uri : RouteFixture.URIS) {
+            EntityExchangeResult<byte[]> expected = get(routes.annotated, uri, new HttpHeaders());
+            EntityExchangeResult<byte[]> actual = get(routes.functional, uri, new HttpHeaders());
+            assertSame(uri, expected, actual);
+        }
+    }
+
+    @Test
+    void unknownFieldsAreTheSameBadRequestOnBothRoutes() {
+        String uri = "/invoices/" + RouteFixture.INVOICE_ID + "?fields=unknown";
+        EntityExchangeResult<byte[]> expected = get(routes.annotated, uri, new HttpHeaders());
+        EntityExchangeResult<byte[]> actual = get(routes.functional, uri, new HttpHeaders());
+
+        assertThat(expected.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(new String(expected.getResponseBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"message\":\"Campo desconocido en fields: unknown\",\"status\":400}");
+        assertSame(uri, expected, actual);
+    }
+
+    @Test
+    void menuHonoursETagAndAcceptEncodingOnBothRoutes() {
+        for (WebTestClient client : List.of(routes.annotated, routes.functional)) {
+            EntityExchangeResult<byte[]> notModified = get(client, "/dishes", headers(HttpHeaders.IF_NONE_MATCH, RouteFixture.MENU_ETAG));
+            assertThat(notModified.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(notModified.getResponseHeaders().getETag()).isEqualTo(RouteFixture.MENU_ETAG);
+
+            EntityExchangeResult<byte[]> gzip = get(client, "/dishes", headers(HttpHeaders.ACCEPT_ENCODING, "br, gzip"));
+            assertThat(gzip.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+            assertThat(gzip.getResponseBody()).isEqualTo(routes.menuGzip);
+
+            //gzip;q=0 es rechazarlo aunque el texto diga gzip
+            EntityExchangeResult<byte[]> refused = get(client, "/dishes", headers(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"));
+            assertThat(refused.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+            assertThat(refused.getResponseBody()).isEqualTo(routes.menuJson);
+        }
+    }
+
+    private static void assertSame(String uri, EntityExchangeResult<byte[]> expected, EntityExchangeResult<byte[]> actual) {
+        assertThat(actual.getStatus()).as(uri).isEqualTo(expected.getStatus());
+        assertThat(actual.getResponseHeaders().getContentType()).as(uri).isEqualTo(expected.getResponseHeaders().getContentType());
+        assertThat(actual.getResponseHeaders().getETag()).as(uri).isEqualTo(expected.getResponseHeaders().getETag());
+        assertThat(actual.getResponseBody()).as(uri).isEqualTo(expected.getResponseBody());
+    }
+
+    private static EntityExchangeResult<byte[]> get(WebTestClient client, String uri, HttpHeaders headers) {
+        return client.get().uri(uri).headers(h -> h.addAll(headers)).exchange().expectBody().returnResult();
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(name, value);
+        return headers;
+    }
+}
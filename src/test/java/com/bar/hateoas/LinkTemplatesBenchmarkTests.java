@@ -0,0 +1,77 @@
+package com.bar.hateoas;
+
+import com.bar.controller.ClientController;
+import com.bar.pagination.PageSupport;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
+
+/**
+ * Compara linkTo(methodOn(...)) con LinkTemplates en microsegundos y bytes asignados por link; que
+ * generen el mismo link lo comprueba LinkTemplatesTests. No corre con los tests normales: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class LinkTemplatesBenchmarkTests {
+
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 100_000;
+
+    private static final String ID = "65a0c0ffee0000000000c001";
+    private static final LinkRelation CLIENT_INFO = LinkRelation.of("client-info");
+
+    @Test
+    void linkToAndTemplates() {
+        LinkTemplates links = new LinkTemplates();
+
+        Supplier<Link> methodOn = () -> linkTo(methodOn(ClientController.class).findById(ID, null))
+                .withRel("client-info").toMono().block();
+        Supplier<Link> template = () -> links.link("clients.findById",
+                () -> linkTo(methodOn(ClientController.class).findById(LinkTemplates.ID, null)), ID, CLIENT_INFO).block();
+
+        MockServerHttpRequest request = MockServerHttpRequest.get("/clients/pageable?page=3&size=10&sort=-surname").build();
+        Supplier<PageSupport<String>> page = () -> links.withPageLinks("clients.getPage",
+                () -> linkTo(methodOn(ClientController.class).getPage(LinkTemplates.PAGE, LinkTemplates.SIZE, null, null, null, null)),
+                new PageSupport<>(List.<String>of(), 3, 10, 95), request).block();
+
+        System.out.printf("%n%-40s %12s %12s%n", "Link", "us/link", "B/link");
+        print("linkTo(methodOn) findById", measure(methodOn));
+        print("LinkTemplates findById", measure(template));
+        print("LinkTemplates pagina (5 links)", measure(page));
+    }
+
+    private static void print(String name, Result result) {
+        System.out.printf("%-40s %12.2f %12d%n", name, result.micros(), result.bytes());
+    }
+
+    private static Result measure(Supplier<?> work) {
+        for (int i = 0; i < WARMUP; i++) {
+            work.get();
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED; i++) {
+            work.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(elapsed / 1_000.0 / MEASURED, (allocatedBytes() - allocated) / MEASURED);
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private record Result(double micros, long bytes) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.bar.hateoas;
+
+import com.bar.controller.ClientController;
+import com.bar.pagination.PageSupport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
+
+class LinkTemplatesTests {
+
+    private static final String ID = "65a0c0ffee0000000000c001";
+    private static final LinkRelation CLIENT_INFO = LinkRelation.of("client-info");
+
+    private final LinkTemplates links = new LinkTemplates();
+    private final AtomicInteger built = new AtomicInteger();
+
+    @Test
+    void idLinksMatchLinkTo() throws Exception {
+        Link expected = linkTo(methodOn(ClientController.class).findById(ID, null)).withRel("client-info").toMono().block();
+
+        //linkTo agrega affordances, que no se serializan: se compara lo que recibe el cliente
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(mapper.writeValueAsString(clientLink(ID).block())).isEqualTo(mapper.writeValueAsString(expected));
+        assertThat(clientLink("a b/c").block().getHref()).isEqualTo("/clients/a%20b%2Fc{?fields}");
+        //La plantilla se arma una sola vez
+        assertThat(built).hasValue(1);
+    }
+
+    @Test
+    void pageLinksKeepTheQueryOfTheRequest() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/clients/pageable?page=3&size=10&sort=-surname").build();
+
+        assertThat(pageLinks(new PageSupport<>(List.of(), 3, 10, 95), request)).containsExactly(
+                "/clients/pageable?page=3&size=10&sort=-surname",
+                "/clients/pageable?page=0&size=10&sort=-surname",
+                "/clients/pageable?page=2&size=10&sort=-surname",
+                "/clients/pageable?page=4&size=10&sort=-surname",
+                "/clients/pageable?page=9&size=10&sort=-surname");
+    }
+
+    @Test
+    void firstAndLastPagesHaveNoPrevOrNext() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/clients/pageable?fields=id,name").build();
+
+        assertThat(pageLinks(new PageSupport<>(List.of(), 0, 2, 3), request)).containsExactly(
+                "/clients/pageable?page=0&size=2&fields=id,name",
+                "/clients/pageable?page=0&size=2&fields=id,name",
+                "/clients/pageable?page=1&size=2&fields=id,name",
+                "/clients/pageable?page=1&size=2&fields=id,name");
+        assertThat(pageLinks(new PageSupport<>(List.of(), 0, 2, 0), request)).containsExactly(
+                "/clients/pageable?page=0&size=2&fields=id,name",
+                "/clients/pageable?page=0&size=2&fields=id,name",
+                "/clients/pageable?page=0&size=2&fields=id,name");
+    }
+
+    @Test
+    void templatesAreKeptPerBaseUri() {
+        assertThat(clientLink(ID, "http://bar.local/clients").block().getHref()).isEqualTo("http://bar.local/clients/" + ID + "{?fields}");
+        assertThat(clientLink(ID, "https://api.bar.com/clients").block().getHref()).isEqualTo("https://api.bar.com/clients/" + ID + "{?fields}");
+        assertThat(clientLink(ID, "http://bar.local/clients").block().getHref()).isEqualTo("http://bar.local/clients/" + ID + "{?fields}");
+        assertThat(built).hasValue(2);
+    }
+
+    private Mono<Link> clientLink(String id) {
+        return links.link("clients.findById", () -> {
+            built.incrementAndGet();
+            return linkTo(methodOn(ClientController.class).findById(LinkTemplates.ID, null));
+        }, id, CLIENT_INFO);
+    }
+
+    private Mono<Link> clientLink(String id, String requestUri) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(requestUri));
+        return clientLink(id).contextWrite(ctx -> ctx.put(ServerWebExchangeContextFilter.EXCHANGE_CONTEXT_ATTRIBUTE, exchange));
+    }
+
+    private List<String> pageLinks(PageSupport<String> page, MockServerHttpRequest request) {
+        return links.withPageLinks("clients.getPage",
+                        () -> linkTo(methodOn(ClientController.class).getPage(LinkTemplates.PAGE, LinkTemplates.SIZE, null, null, null, null)),
+                        page, request)
+                .block()
+                .getLinks().stream().map(Link::getHref).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.bar.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias por ruta (histograma en microsegundos, hasta 60 s) y codigos de respuesta. Las peticiones
+ * que fallan sin respuesta (timeout, conexion) cuentan con estado 0.
+ */
+final class LoadReport {
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    void record(String route, int status, long nanos) {
+        routes.computeIfAbsent(route, r -> new Route()).record(status, nanos);
+    }
+
+    Map<String, Object> summary(long durationNanos, Map<String, Object> settings) {
+        double seconds = durationNanos / 1e9;
+        Histogram all = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+        long errors = 0;
+
+        Map<String, Object> byRoute = new TreeMap<>();
+        for (Map.Entry<String, Route> entry : routes.entrySet()) {
+            Route route = entry.getValue();
+            all.add(route.latency);
+            errors += route.errors();
+            byRoute.put(entry.getKey(), route.summary(seconds));
+        }
+
+        Map<String, Object> total = stats(all, errors, seconds);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("finishedAt", Instant.now().toString());
+        summary.put("durationSeconds", Math.round(seconds * 10) / 10.0);
+        summary.put("settings", settings);
+        summary.put("total", total);
+        summary.put("routes", byRoute);
+        return summary;
+    }
+
+    static void write(Map<String, Object> summary, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), summary);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void print(Map<String, Object> summary) {
+        System.out.printf("%n%-22s %8s %7s %9s %9s %9s %9s %9s%n",
+                "Ruta", "total", "errores", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        Map<String, Object> routes = (Map<String, Object>) summary.get("routes");
+        routes.forEach((name, stats) -> printRow(name, (Map<String, Object>) stats));
+        printRow("TOTAL", (Map<String, Object>) summary.get("total"));
+    }
+
+    private static void printRow(String name, Map<String, Object> stats) {
+        System.out.printf("%-22s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name,
+                stats.get("requests"), stats.get("errors"), stats.get("throughput"),
+                stats.get("p50"), stats.get("p95"), stats.get("p99"), stats.get("max"));
+    }
+
+    private static Map<String, Object> stats(Histogram latency, long errors, double seconds) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", latency.getTotalCount());
+        stats.put("errors", errors);
+        stats.put("throughput", Math.round(latency.getTotalCount() / seconds * 10) / 10.0);
+        stats.put("p50", millis(latency.getValueAtPercentile(50)));
+        stats.put("p95", millis(latency.getValueAtPercentile(95)));
+        stats.put("p99", millis(latency.getValueAtPercentile(99)));
+        stats.put("max", millis(latency.getMaxValue()));
+        return stats;
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    private static final class Route {
+
+        private final Histogram latency = new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(60), 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(int status, long nanos) {
+            latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), latency.getHighestTrackableValue()));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        long errors() {
+            long errors = 0;
+            for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+                if (entry.getKey() == 0 || entry.getKey() >= 400) {
+                    errors += entry.getValue().sum();
+                }
+            }
+            return errors;
+        }
+
+        Map<String, Object> summary(double seconds) {
+            Map<String, Object> summary = stats(latency, errors(), seconds);
+            Map<String, Long> byStatus = new TreeMap<>();
+            statuses.forEach((status, count) -> byStatus.put(Integer.toString(status), count.sum()));
+            summary.put("statuses", byStatus);
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.bar.loadtest;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Datos de la prueba de carga: clientes, platos y facturas de los ultimos 90 dias con 1 a 6 lineas.
+ * Con la misma semilla se generan exactamente los mismos documentos.
+ */
+final class LoadSeeder {
+
+    private static final int BATCH = 1000;
+
+    private static final String[] DISHES = {
+            "Lomo saltado", "Aji de gallina", "Ceviche", "Causa limena", "Anticuchos", "Rocoto relleno",
+            "Arroz con pato", "Seco de res", "Tacu tacu", "Papa a la huancaina", "Chupe de camarones",
+            "Pollo a la brasa", "Tallarin verde", "Carapulcra", "Juane", "Tamal criollo", "Chicha morada",
+            "Pisco sour", "Suspiro limeno", "Picarones", "Mazamorra morada", "Arroz chaufa", "Sudado de pescado",
+            "Cau cau", "Olluquito", "Adobo arequipeno", "Chicharron", "Jalea mixta", "Leche de tigre", "Inca Kola"
+    };
+    private static final String[] FIRST_NAMES = {
+            "Jose", "Maria", "Luis", "Carmen", "Jorge", "Rosa", "Carlos", "Ana", "Miguel", "Lucia",
+            "Pedro", "Sofia", "Diego", "Valeria", "Andres", "Camila", "Ricardo", "Elena", "Hugo", "Paula"
+    };
+    private static final String[] LAST_NAMES = {
+            "Perez", "Garcia", "Rodriguez", "Quispe", "Flores", "Sanchez", "Ramirez", "Torres", "Mamani",
+            "Vargas", "Castillo", "Rojas", "Mendoza", "Huaman", "Chavez", "Diaz", "Gutierrez", "Romero"
+    };
+
+    private final ReactiveMongoTemplate template;
+    private final SplittableRandom random;
+
+    LoadSeeder(ReactiveMongoTemplate template, long seed) {
+        this.template = template;
+        this.random = new SplittableRandom(seed);
+    }
+
+    Seed seed(int clientCount, int dishCount, int invoiceCount) {
+        List<Client> clients = new ArrayList<>(clientCount);
+        for (int i = 0; i < clientCount; i++) {
+            clients.add(new Client(new ObjectId().toHexString(),
+                    pick(FIRST_NAMES), pick(LAST_NAMES),
+                    LocalDate.of(1960, 1, 1).plusDays(random.nextInt(15_000)),
+                    null));
+        }
+
+        //DishDTO acepta nombres de 2 a 20 caracteres
+        List<Dish> dishes = new ArrayList<>(dishCount);
+        for (int i = 0; i < dishCount; i++) {
+            String name = DISHES[i % DISHES.length];
+            if (i >= DISHES.length) {
+                name = name.substring(0, Math.min(name.length(), 15)) + " " + (i / DISHES.length + 1);
+            }
+            dishes.add(new Dish(new ObjectId().toHexString(), name,
+                    Math.round((5 + random.nextDouble() * 60) * 10) / 10.0, random.nextInt(10) > 0));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Invoice> invoices = new ArrayList<>(invoiceCount);
+        for (int i = 0; i < invoiceCount; i++) {
+            //Platos distintos en cada factura, como los arma el mesero
+            Map<String, InvoiceDetail> items = new LinkedHashMap<>();
+            int lines = 1 + random.nextInt(6);
+            while (items.size() < Math.min(lines, dishes.size())) {
+                Dish dish = dishes.get(random.nextInt(dishes.size()));
+                items.putIfAbsent(dish.getId(), new InvoiceDetail(1 + random.nextInt(4), dish));
+            }
+
+            double total = 0;
+            for (InvoiceDetail item : items.values()) {
+                total += item.getQuantity() * item.getDish().getPrice();
+            }
+            invoices.add(new Invoice(new ObjectId().toHexString(), "Mesa " + (1 + random.nextInt(30)),
+                    now.minusMinutes(random.nextInt(90 * 24 * 60)),
+                    clients.get(random.nextInt(clients.size())),
+                    new ArrayList<>(items.values()), total));
+        }
+
+        insert(clients, Client.class);
+        insert(dishes, Dish.class);
+        insert(invoices, Invoice.class);
+
+        return new Seed(clients.stream().map(Client::getId).toList(), dishes,
+                invoices.stream().map(Invoice::getId).toList());
+    }
+
+    private <T> void insert(List<T> documents, Class<T> type) {
+        Flux.fromIterable(documents)
+                .buffer(BATCH)
+                .concatMap(batch -> template.insert(batch, type))
+                .then()
+                .block();
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    record Seed(List<String> clientIds, List<Dish> dishes, List<String> invoiceIds) {
+    }
+}
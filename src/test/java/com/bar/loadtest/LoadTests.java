@@ -0,0 +1,306 @@
+package com.bar.loadtest;
+
+import com.bar.cache.DishMenuCache;
+import com.bar.model.Dish;
+import com.bar.search.DishNameIndex;
+import com.bar.service.IInvoiceSummaryService;
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba de carga de punta a punta sin red: la aplicacion completa en un puerto aleatorio, MongoDB en
+ * memoria (mongo-java-server) y Cloudinary reemplazado por PhotoStoreStandIn. Siembra los datos,
+ * calienta y repite una mezcla ponderada de los endpoints con N peticiones en curso durante un tiempo fijo.
+ * Deja las metricas por ruta (req/s, p50, p95, p99, max en ms y codigos de respuesta) en
+ * target/loadtest/report.json.
+ * <pre>
+ * mvn test -Ploadtest -Dloadtest.clients=2000 -Dloadtest.dishes=150 -Dloadtest.invoices=20000 \
+ *     -Dloadtest.concurrency=32 -Dloadtest.warmup=10s -Dloadtest.duration=60s
+ * </pre>
+ * MongoDB en memoria no es el servidor real: sirve para comparar versiones de la aplicacion entre si,
+ * no para dimensionar produccion.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "rate-limit.enabled=false",
+        "migration.invoices.auto-start=false",
+        "archival.invoices.enabled=false",
+        "server-timing.slow-threshold=0",
+        "logging.level.de.bwaldvogel=WARN"
+})
+class LoadTests {
+
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 2000);
+    private static final int DISHES = Integer.getInteger("loadtest.dishes", 150);
+    private static final int INVOICES = Integer.getInteger("loadtest.invoices", 20_000);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("loadtest.warmup", "10s"));
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("loadtest.duration", "30s"));
+    private static final long SEED = Long.getLong("loadtest.seed", 42);
+    private static final Path REPORT = Path.of(System.getProperty("loadtest.report", "target/loadtest/report.json"));
+
+    private static final MongoServer MONGO = new MongoServer(new MemoryBackend());
+    private static final InetSocketAddress MONGO_ADDRESS = MONGO.bind();
+    private static final PhotoStoreStandIn PHOTOS = photoStore();
+
+    //Foto de ~20 KB para los uploads
+    private static final byte[] PHOTO = new byte[20 * 1024];
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveMongoTemplate template;
+
+    @Autowired
+    private IInvoiceSummaryService summaryService;
+
+    @Autowired
+    private DishNameIndex dishNameIndex;
+
+    @Autowired
+    private DishMenuCache dishMenuCache;
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri",
+                () -> "mongodb://127.0.0.1:" + MONGO_ADDRESS.getPort() + "/loadtest");
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        PHOTOS.close();
+        MONGO.shutdownNow();
+    }
+
+    @Test
+    void weightedMix() throws IOException {
+        long seeding = System.nanoTime();
+        LoadSeeder.Seed seed = new LoadSeeder(template, SEED).seed(CLIENTS, DISHES, INVOICES);
+        //Los datos entran por detras de la aplicacion: se recargan los derivados
+        summaryService.rebuild().block();
+        dishNameIndex.load();
+        dishMenuCache.refresh();
+        System.out.printf("%nDatos: %d clientes, %d platos, %d facturas en %d ms%n", CLIENTS, DISHES, INVOICES,
+                (System.nanoTime() - seeding) / 1_000_000);
+
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(CONCURRENCY)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+
+        try {
+            List<Operation> mix = mix(seed);
+            run(client, mix, WARMUP, new LoadReport());
+
+            LoadReport report = new LoadReport();
+            long start = System.nanoTime();
+            run(client, mix, DURATION, report);
+
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("clients", CLIENTS);
+            settings.put("dishes", DISHES);
+            settings.put("invoices", INVOICES);
+            settings.put("concurrency", CONCURRENCY);
+            settings.put("warmupSeconds", WARMUP.toSeconds());
+            settings.put("seed", SEED);
+            settings.put("photoUploads", PHOTOS.uploads());
+
+            Map<String, Object> summary = report.summary(System.nanoTime() - start, settings);
+            LoadReport.write(summary, REPORT);
+            LoadReport.print(summary);
+            System.out.println("Reporte: " + REPORT.toAbsolutePath());
+
+            assertThat(summary.get("routes")).asInstanceOf(InstanceOfAssertFactories.MAP)
+                    .hasSize(mix.size());
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    //Lazo cerrado: CONCURRENCY peticiones en curso, cada una elige la siguiente operacion al terminar
+    private static void run(WebClient client, List<Operation> mix, Duration duration, LoadReport report) {
+        int totalWeight = mix.stream().mapToInt(Operation::weight).sum();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        Flux.range(0, CONCURRENCY)
+                .flatMap(worker -> Flux.<Operation>generate(sink -> {
+                            if (System.nanoTime() >= deadline) {
+                                sink.complete();
+                            } else {
+                                sink.next(pick(mix, totalWeight));
+                            }
+                        })
+                        .concatMap(operation -> call(client, operation, report)), CONCURRENCY)
+                .then()
+                .block();
+    }
+
+    private static Mono<Integer> call(WebClient client, Operation operation, LoadReport report) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return operation.request().apply(client)
+                    .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                    .timeout(Duration.ofSeconds(30))
+                    .onErrorReturn(0)
+                    .doOnNext(status -> report.record(operation.route(), status, System.nanoTime() - start));
+        });
+    }
+
+    private static Operation pick(List<Operation> mix, int totalWeight) {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : mix) {
+            value -= operation.weight();
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    //Pesos aproximados de un turno: sobre todo lecturas del menu y de facturas, algunos reportes y pocas fotos
+    private static List<Operation> mix(LoadSeeder.Seed seed) {
+        List<Operation> mix = new ArrayList<>();
+        mix.add(new Operation("GET /dishes", 15, c -> c.get().uri("/dishes")));
+        mix.add(new Operation("GET /dishes/{id}", 10, c -> c.get().uri("/dishes/{id}", dish(seed).getId())));
+        mix.add(new Operation("GET /dishes/autocomplete", 10, c -> c.get()
+                .uri("/dishes/autocomplete?q={q}", prefix(dish(seed).getName()))));
+        mix.add(new Operation("GET /clients/{id}", 8, c -> c.get().uri("/clients/{id}", any(seed.clientIds()))));
+        mix.add(new Operation("GET /invoices/{id}", 12, c -> c.get().uri("/invoices/{id}", any(seed.invoiceIds()))));
+        mix.add(new Operation("GET /invoices/hateoas", 5, c -> c.get()
+                .uri("/invoices/hateoas/{id}", any(seed.invoiceIds()))));
+        mix.add(new Operation("GET /invoices/pageable", 8, c -> c.get()
+                .uri("/invoices/pageable?page={page}&size=20", ThreadLocalRandom.current().nextInt(20))));
+        mix.add(new Operation("POST /invoices", 8, c -> c.post().uri("/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newInvoice(seed))));
+        mix.add(new Operation("POST /invoices/{id}/items", 8, c -> c.post()
+                .uri("/invoices/{id}/items", any(seed.invoiceIds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("quantity", 1, "dish", Map.of("id", dish(seed).getId())))));
+        mix.add(new Operation("PUT /clients/{id}", 4, c -> c.put().uri("/clients/{id}", any(seed.clientIds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "Cliente", "surname", "De carga",
+                        "birthDateClient", LocalDate.of(1990, 1, 1).toString()))));
+        mix.add(new Operation("GET report html", 4, c -> c.get()
+                .uri("/invoices/generateReport/{id}?format=html", any(seed.invoiceIds()))));
+        mix.add(new Operation("GET report text", 3, c -> c.get()
+                .uri("/invoices/generateReport/{id}?format=text", any(seed.invoiceIds()))));
+        mix.add(new Operation("GET report pdf", 3, c -> c.get()
+                .uri("/invoices/generateReport/{id}?format=pdf", any(seed.invoiceIds()))));
+        mix.add(new Operation("POST /clients/upload", 2, c -> c.post()
+                .uri("/clients/v3/upload/{id}", any(seed.clientIds()))
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(photo()))));
+        return mix;
+    }
+
+    private static Map<String, Object> newInvoice(LoadSeeder.Seed seed) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        int lines = 1 + ThreadLocalRandom.current().nextInt(4);
+        for (int i = 0; i < lines; i++) {
+            items.add(Map.of("quantity", 1 + ThreadLocalRandom.current().nextInt(3),
+                    "dish", Map.of("id", dish(seed).getId())));
+        }
+        return Map.of("description", "Mesa " + (1 + ThreadLocalRandom.current().nextInt(30)),
+                "client", Map.of("id", any(seed.clientIds())),
+                "items", items);
+    }
+
+    private static MultiValueMap<String, HttpEntity<?>> photo() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", new ByteArrayResource(PHOTO) {
+            @Override
+            public String getFilename() {
+                return "foto.jpg";
+            }
+        }).contentType(MediaType.IMAGE_JPEG);
+        return builder.build();
+    }
+
+    private static Dish dish(LoadSeeder.Seed seed) {
+        return seed.dishes().get(ThreadLocalRandom.current().nextInt(seed.dishes().size()));
+    }
+
+    private static String any(List<String> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    //Lo que escribe el mesero antes de elegir: de 2 a 4 letras del nombre
+    private static String prefix(String name) {
+        return name.substring(0, Math.min(name.length(), 2 + ThreadLocalRandom.current().nextInt(3)));
+    }
+
+    private static PhotoStoreStandIn photoStore() {
+        try {
+            return new PhotoStoreStandIn();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Operation(String route, int weight, Function<WebClient, WebClient.RequestHeadersSpec<?>> request) {
+    }
+
+    @TestConfiguration
+    static class StandIns {
+
+        //upload_prefix manda las subidas de ClientController al reemplazo local en lugar de Cloudinary
+        @Bean
+        @Primary
+        Cloudinary photoStore() {
+            return new Cloudinary(ObjectUtils.asMap(
+                    "cloud_name", "loadtest",
+                    "api_key", "loadtest",
+                    "api_secret", "loadtest",
+                    "upload_prefix", PHOTOS.url()
+            ));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.bar.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reemplazo local de Cloudinary: responde POST /v1_1/{cloud}/{tipo}/upload con el JSON que espera
+ * el uploader (url, secure_url, public_id) sin guardar nada. Se usa como upload_prefix del bean.
+ */
+final class PhotoStoreStandIn implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    PhotoStoreStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long uploads() {
+        return uploads.get();
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!"POST".equals(exchange.getRequestMethod()) || !path.startsWith("/v1_1/") || !path.endsWith("/upload")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            long received;
+            try (InputStream in = exchange.getRequestBody()) {
+                received = in.transferTo(OutputStream.nullOutputStream());
+            }
+            bytes.addAndGet(received);
+
+            long n = uploads.incrementAndGet();
+            String url = url() + "/photos/loadtest-" + n + ".jpg";
+            byte[] body = ("{\"public_id\":\"loadtest-" + n + "\",\"resource_type\":\"image\",\"bytes\":" + received
+                    + ",\"url\":\"" + url + "\",\"secure_url\":\"" + url + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
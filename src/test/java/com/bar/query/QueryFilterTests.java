@@ -0,0 +1,92 @@
+package com.bar.query;
+
+import com.bar.exception.ValidationException;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryFilterTests {
+
+    @Test
+    void compilesClausesWithPropertyNamesAndTypedValues() {
+        QueryFilter filter = QueryFilter.parse("statusDish:eq:true;priceDish:lt:50", null, ResourceFields.DISH);
+
+        Document query = filter.toQuery().getQueryObject();
+
+        assertThat(query.getList("$and", Document.class)).containsExactly(
+                new Document("status", true),
+                new Document("price", new Document("$lt", 50.0)));
+    }
+
+    @Test
+    void singleClauseIsNotWrappedInAnd() {
+        QueryFilter filter = QueryFilter.parse("birthDateClient:lte:2000-01-31", null, ResourceFields.CLIENT);
+
+        assertThat(filter.toQuery().getQueryObject())
+                .isEqualTo(new Document("birthDate", new Document("$lte", LocalDate.of(2000, 1, 31))));
+    }
+
+    @Test
+    void inSplitsValuesOnComma() {
+        QueryFilter filter = QueryFilter.parse("nameDish:in:Sopa,Arroz", null, ResourceFields.DISH);
+
+        assertThat(filter.toQuery().getQueryObject())
+                .isEqualTo(new Document("name", new Document("$in", List.of("Sopa", "Arroz"))));
+    }
+
+    @Test
+    void sortKeepsOrderAndDirection() {
+        QueryFilter filter = QueryFilter.parse(null, "-priceDish, nameDish", ResourceFields.DISH);
+
+        assertThat(filter.getSort()).isEqualTo(Sort.by(Sort.Order.desc("price"), Sort.Order.asc("name")));
+        assertThat(filter.isEmpty()).isFalse();
+    }
+
+    @Test
+    void blankParametersAreEmpty() {
+        QueryFilter filter = QueryFilter.parse(" ", "", ResourceFields.DISH);
+
+        assertThat(filter.isEmpty()).isTrue();
+        assertThat(filter.toQuery().getQueryObject()).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownAndUnindexedFields() {
+        assertThatThrownBy(() -> QueryFilter.parse("precio:eq:1", null, ResourceFields.DISH))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Campo desconocido: precio");
+        assertThatThrownBy(() -> QueryFilter.parse(null, "name", ResourceFields.CLIENT))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("El campo name no tiene indice y no se puede filtrar ni ordenar");
+    }
+
+    @Test
+    void rejectsMalformedClausesOperatorsAndValues() {
+        assertThatThrownBy(() -> QueryFilter.parse("priceDish:lt", null, ResourceFields.DISH))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Condicion invalida en filter: priceDish:lt");
+        assertThatThrownBy(() -> QueryFilter.parse("priceDish:like:5", null, ResourceFields.DISH))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Operador desconocido en filter: like");
+        assertThatThrownBy(() -> QueryFilter.parse("priceDish:lt:barato", null, ResourceFields.DISH))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Valor invalido en filter: priceDish:lt:barato");
+        assertThatThrownBy(() -> QueryFilter.parse("statusDish:eq:si", null, ResourceFields.DISH))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Valor booleano invalido en filter: statusDish:eq:si");
+    }
+
+    @Test
+    void nestedInvoiceFieldsMapToDocumentPaths() {
+        QueryFilter filter = QueryFilter.parse("client.id:eq:abc", "-issuedAt", ResourceFields.INVOICE);
+
+        assertThat(filter.toQuery().getQueryObject()).isEqualTo(new Document("client.id", "abc"));
+        assertThat(filter.getSort()).isEqualTo(Sort.by(Sort.Order.desc("issuedAt")));
+    }
+}
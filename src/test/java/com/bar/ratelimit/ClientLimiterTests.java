@@ -0,0 +1,58 @@
+package com.bar.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientLimiterTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void burstThenOneRequestPerInterval() {
+        ClientLimiter limiter = new ClientLimiter(2, 3, 100);
+
+        assertThat(limiter.acquire("a", 0)).isZero();
+        assertThat(limiter.acquire("a", 0)).isZero();
+        assertThat(limiter.acquire("a", 0)).isZero();
+        assertThat(limiter.acquire("a", 0)).isEqualTo(SECOND / 2);
+        //Otro cliente tiene su propio bucket
+        assertThat(limiter.acquire("b", 0)).isZero();
+
+        assertThat(limiter.acquire("a", SECOND / 2)).isZero();
+        assertThat(limiter.acquire("a", SECOND / 2)).isPositive();
+    }
+
+    @Test
+    void newClientsBeyondTheLimitAreSpreadOverSeveralBuckets() {
+        ClientLimiter limiter = new ClientLimiter(1, 1, 1);
+        assertThat(limiter.acquire("conocido", 0)).isZero();
+
+        String noisy = "10.0.0.1";
+        String other = IntStream.range(2, 1_000).mapToObj(i -> "10.0.0." + i)
+                .filter(ip -> shard(ip) != shard(noisy))
+                .findFirst().orElseThrow();
+
+        assertThat(limiter.acquire(noisy, 0)).isZero();
+        assertThat(limiter.acquire(noisy, 0)).isPositive();
+        //Un cliente ruidoso sin bucket propio no deja sin peticiones a todos los clientes nuevos
+        assertThat(limiter.acquire(other, 0)).isZero();
+        assertThat(limiter.size()).isEqualTo(3);
+    }
+
+    @Test
+    void idleBucketsAreEvicted() {
+        ClientLimiter limiter = new ClientLimiter(1, 1, 100);
+        limiter.acquire("a", 0);
+        limiter.acquire("b", 10 * SECOND);
+
+        assertThat(limiter.evictIdle(12 * SECOND, 5 * SECOND)).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    private static int shard(String client) {
+        return Math.floorMod(client.hashCode(), ClientLimiter.OVERFLOW_BUCKETS);
+    }
+}
@@ -0,0 +1,111 @@
+package com.bar.ratelimit;
+
+import com.bar.warmup.WarmUpTraffic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Una tablet en bucle contra GET /invoices y otra que consulta cada 10 ms, con un "pool de Mongo"
+ * de 4 conexiones: latencia de la tablet normal con y sin RateLimitFilter (los 429 y 503 los comprueba
+ * RateLimitFilterTests).
+ * No corre con los tests normales: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class RateLimitBenchmarkTests {
+
+    private static final int NOISY_THREADS = 32;
+    private static final int POLITE_REQUESTS = 200;
+
+    @Test
+    void noisyClientAndPoliteClient() throws Exception {
+        System.out.printf("%n%-16s %10s %10s %10s %14s%n", "Filtro", "p50 ms", "p99 ms", "max ms", "ruidosa 429");
+        run(false);
+        run(true);
+    }
+
+    private Result run(boolean limit) throws Exception {
+        Semaphore pool = new Semaphore(4, true);
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                .GET("/invoices", request -> Mono.fromCallable(() -> {
+                            pool.acquire();
+                            try {
+                                Thread.sleep(2);
+                            } finally {
+                                pool.release();
+                            }
+                            return "[]";
+                        })
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(body -> ServerResponse.ok().bodyValue(body)))
+                .build();
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("rate-limit.enabled", Boolean.toString(limit))
+                .withProperty("rate-limit.api-keys", "ruidosa,normal")
+                .withProperty("rate-limit.routes.read.per-second", "100")
+                .withProperty("rate-limit.routes.read.burst", "20");
+        WebTestClient client = WebTestClient.bindToRouterFunction(routes)
+                .webFilter(new RateLimitFilter(environment, new SimpleMeterRegistry(), new WarmUpTraffic()))
+                .build();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService noisy = Executors.newFixedThreadPool(NOISY_THREADS);
+        for (int i = 0; i < NOISY_THREADS; i++) {
+            noisy.submit(() -> {
+                while (running.get()) {
+                    int status = client.get().uri("/invoices").header("X-API-Key", "ruidosa")
+                            .exchange().returnResult(String.class).getStatus().value();
+                    if (status == 429) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        Thread.sleep(500);
+        List<Double> latencies = new ArrayList<>();
+        for (int i = 0; i < POLITE_REQUESTS; i++) {
+            long start = System.nanoTime();
+            client.get().uri("/invoices").header("X-API-Key", "normal").exchange().expectStatus().isOk();
+            latencies.add((System.nanoTime() - start) / 1_000_000.0);
+            Thread.sleep(10);
+        }
+
+        running.set(false);
+        noisy.shutdown();
+        noisy.awaitTermination(10, TimeUnit.SECONDS);
+
+        Collections.sort(latencies);
+        Result result = new Result(percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.get(latencies.size() - 1), rejected.get());
+        System.out.printf("%-16s %10.1f %10.1f %10.1f %14d%n", limit ? "RateLimitFilter" : "sin limite",
+                result.p50(), result.p99(), result.max(), result.rejected());
+        return result;
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        return sorted.get((int) Math.ceil(p * sorted.size()) - 1);
+    }
+
+    private record Result(double p50, double p99, double max, int rejected) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.bar.ratelimit;
+
+import com.bar.warmup.WarmUpTraffic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("rate-limit.api-keys", "ruidosa,normal")
+            .withProperty("rate-limit.routes.read.per-second", "0.01")
+            .withProperty("rate-limit.routes.read.burst", "2");
+    private final WarmUpTraffic warmUp = new WarmUpTraffic();
+
+    @Test
+    void eachClientHasItsOwnBucket() {
+        RateLimitFilter filter = filter();
+
+        assertThat(get(filter, request().header("X-API-Key", "ruidosa"))).isEqualTo(HttpStatus.OK);
+        assertThat(get(filter, request().header("X-API-Key", "ruidosa"))).isEqualTo(HttpStatus.OK);
+        MockServerWebExchange limited = exchange(request().header("X-API-Key", "ruidosa"));
+        filter.filter(limited, ok()).block();
+        assertThat(limited.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limited.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("100");
+
+        assertThat(get(filter, request().header("X-API-Key", "normal"))).isEqualTo(HttpStatus.OK);
+        //Una clave que no esta en rate-limit.api-keys cuenta por la IP
+        assertThat(get(filter, request().header("X-API-Key", "inventada"))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void requestsShedWith503DoNotSpendTheClientBucket() {
+        environment.setProperty("rate-limit.max-concurrent", "1");
+        RateLimitFilter filter = filter();
+        Sinks.Empty<Void> slow = Sinks.empty();
+        filter.filter(exchange(request().header("X-API-Key", "normal")), exchange -> slow.asMono()).subscribe();
+
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        slow.tryEmitEmpty();
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.OK);
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void feedSubscribersAreNotInFlightRequests() {
+        environment.setProperty("rate-limit.max-concurrent", "1");
+        RateLimitFilter filter = filter();
+        Sinks.Empty<Void> feed = Sinks.empty();
+        filter.filter(exchange(MockServerHttpRequest.get("/invoices/feed").remoteAddress(address("10.0.0.9"))),
+                exchange -> feed.asMono()).subscribe();
+
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void behindAProxyTheClientComesFromTheConfiguredHeader() {
+        environment.setProperty("rate-limit.client-ip-header", "X-Forwarded-For");
+        RateLimitFilter filter = filter();
+
+        //La primera IP la puede inventar el cliente; la ultima la agrega el proxy
+        assertThat(get(filter, request().header("X-Forwarded-For", "1.1.1.1, 203.0.113.7"))).isEqualTo(HttpStatus.OK);
+        assertThat(get(filter, request().header("X-Forwarded-For", "2.2.2.2, 203.0.113.7"))).isEqualTo(HttpStatus.OK);
+        assertThat(get(filter, request().header("X-Forwarded-For", "3.3.3.3, 203.0.113.7"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        //Mismo proxy (misma IP de conexion), otro cliente
+        assertThat(get(filter, request().header("X-Forwarded-For", "203.0.113.8"))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void warmUpRequestsAreNotLimitedWhileWarmingUp() {
+        RateLimitFilter filter = filter();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(get(filter, request().header(WarmUpTraffic.HEADER, warmUp.token()))).isEqualTo(HttpStatus.OK);
+        }
+        assertThat(get(filter, request())).isEqualTo(HttpStatus.OK);
+        assertThat(get(filter, request().header(WarmUpTraffic.HEADER, "otro"))).isEqualTo(HttpStatus.OK);
+        assertThat(get(filter, request().header(WarmUpTraffic.HEADER, "otro"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        warmUp.finish();
+        assertThat(get(filter, request().header(WarmUpTraffic.HEADER, warmUp.token()))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void disabledLetsEverythingThrough() {
+        environment.setProperty("rate-limit.enabled", "false");
+        RateLimitFilter filter = filter();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(get(filter, request())).isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    private RateLimitFilter filter() {
+        return new RateLimitFilter(environment, new SimpleMeterRegistry(), warmUp);
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> request() {
+        return MockServerHttpRequest.get("/invoices").remoteAddress(address("10.0.0.1"));
+    }
+
+    private static HttpStatus get(RateLimitFilter filter, MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = exchange(request);
+        filter.filter(exchange, ok()).block();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+
+    private static WebFilterChain ok() {
+        return exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        };
+    }
+
+    private static InetSocketAddress address(String ip) {
+        return new InetSocketAddress(ip, 40_000);
+    }
+}
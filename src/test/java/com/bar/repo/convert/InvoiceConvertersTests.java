@@ -0,0 +1,134 @@
+package com.bar.repo.convert;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceConvertersTests {
+
+    private final InvoiceConverters.InvoiceWriter writer = new InvoiceConverters.InvoiceWriter();
+    private final InvoiceConverters.InvoiceReader reader = new InvoiceConverters.InvoiceReader();
+
+    private final ObjectId invoiceId = new ObjectId();
+    private final ObjectId clientId = new ObjectId();
+    private final ObjectId dishId = new ObjectId();
+    private final LocalDateTime issuedAt = LocalDateTime.of(2024, 5, 3, 21, 15, 30);
+
+    @Test
+    void writesTheCompactSchema() {
+        Document document = writer.convert(invoice());
+
+        assertThat(document).isEqualTo(new Document("_id", invoiceId)
+                .append("schema", InvoiceConverters.SCHEMA_VERSION)
+                .append("description", "Mesa 4")
+                .append("issuedAt", Date.from(issuedAt.atZone(ZoneId.systemDefault()).toInstant()))
+                .append("total", 25.5)
+                .append("client", new Document("_id", clientId).append("firstName", "Ana").append("lastName", "Diaz"))
+                .append("items", List.of(new Document("dishId", dishId)
+                        .append("name", "Sopa")
+                        .append("price", 8.5)
+                        .append("category", "cocina")
+                        .append("quantity", 3))));
+    }
+
+    @Test
+    void compactRoundTripKeepsWhatAnInvoiceShows() {
+        Invoice read = reader.convert(writer.convert(invoice()));
+
+        assertThat(read.getId()).isEqualTo(invoiceId.toHexString());
+        assertThat(read.getDescription()).isEqualTo("Mesa 4");
+        assertThat(read.getIssuedAt()).isEqualTo(issuedAt);
+        assertThat(read.getTotal()).isEqualTo(25.5);
+        assertThat(read.getClient().getId()).isEqualTo(clientId.toHexString());
+        assertThat(read.getClient().getFirstName()).isEqualTo("Ana");
+        assertThat(read.getClient().getLastName()).isEqualTo("Diaz");
+        assertThat(read.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getQuantity()).isEqualTo(3);
+            assertThat(item.getDish().getId()).isEqualTo(dishId.toHexString());
+            assertThat(item.getDish().getName()).isEqualTo("Sopa");
+            assertThat(item.getDish().getPrice()).isEqualTo(8.5);
+            assertThat(item.getDish().getCategory()).isEqualTo("cocina");
+        });
+    }
+
+    @Test
+    void readsTheLegacySchemaWithEmbeddedClientAndDish() {
+        Document legacy = new Document("_id", invoiceId)
+                .append("description", "Mesa 4")
+                .append("client", new Document("_id", clientId)
+                        .append("firstName", "Ana")
+                        .append("lastName", "Diaz")
+                        .append("birthDate", new Date())
+                        .append("urlPhoto", "http://fotos/ana.png"))
+                .append("items", List.of(new Document("quantity", 3)
+                        .append("dish", new Document("_id", dishId)
+                                .append("name", "Sopa")
+                                .append("price", 8.5)
+                                .append("status", true))));
+
+        Invoice read = reader.convert(legacy);
+
+        //Sin issuedAt: el instante de creacion del ObjectId
+        assertThat(read.getIssuedAt())
+                .isEqualTo(LocalDateTime.ofInstant(invoiceId.getDate().toInstant(), ZoneId.systemDefault()));
+        assertThat(read.getTotal()).isNull();
+        assertThat(read.getClient().getFirstName()).isEqualTo("Ana");
+        assertThat(read.getClient().getUrlPhoto()).isNull();
+        assertThat(read.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getQuantity()).isEqualTo(3);
+            assertThat(item.getDish().getId()).isEqualTo(dishId.toHexString());
+            assertThat(item.getDish().getName()).isEqualTo("Sopa");
+            assertThat(item.getDish().getPrice()).isEqualTo(8.5);
+        });
+
+        //Al volver a escribirla queda en el formato compacto
+        Document rewritten = writer.convert(read);
+        assertThat(rewritten.getInteger("schema")).isEqualTo(InvoiceConverters.SCHEMA_VERSION);
+        assertThat(rewritten.getList("items", Document.class).get(0))
+                .isEqualTo(new Document("dishId", dishId).append("name", "Sopa").append("price", 8.5).append("quantity", 3));
+    }
+
+    @Test
+    void idsThatAreNotObjectIdsStayStrings() {
+        Invoice invoice = invoice();
+        invoice.setId("factura-1");
+        invoice.getItems().get(0).getDish().setId("sopa");
+
+        Document document = writer.convert(invoice);
+        Invoice read = reader.convert(document);
+
+        assertThat(document.get("_id")).isEqualTo("factura-1");
+        assertThat(read.getId()).isEqualTo("factura-1");
+        assertThat(read.getItems().get(0).getDish().getId()).isEqualTo("sopa");
+        //Sin issuedAt ni ObjectId no hay fecha de emision
+        document.remove("issuedAt");
+        assertThat(reader.convert(document).getIssuedAt()).isNull();
+    }
+
+    @Test
+    void totalIsRoundedToCents() {
+        Document document = writer.convert(invoice()).append("total", 0.1 + 0.2);
+
+        assertThat(reader.convert(document).getTotal()).isEqualTo(0.3);
+    }
+
+    private Invoice invoice() {
+        Client client = new Client(clientId.toHexString(), "Ana", "Diaz", LocalDate.of(1990, 1, 1), "http://fotos/ana.png");
+        Dish dish = new Dish(dishId.toHexString(), "Sopa", 8.5, true, "cocina");
+        return new Invoice(invoiceId.toHexString(), "Mesa 4", issuedAt, client,
+                new ArrayList<>(List.of(new InvoiceDetail(3, dish))), 25.5);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bar.report;
+
+import com.bar.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportFormatTests {
+
+    @Test
+    void formatParameterWinsOverAccept() {
+        assertThat(ReportFormat.resolve(" escpos ", MediaType.parseMediaTypes("text/html"))).isEqualTo(ReportFormat.ESCPOS);
+        assertThat(ReportFormat.resolve("Text", List.of())).isEqualTo(ReportFormat.TEXT);
+        assertThatThrownBy(() -> ReportFormat.resolve("docx", List.of()))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Formato de reporte desconocido: docx");
+    }
+
+    @Test
+    void acceptPicksTheMostSpecificKnownType() {
+        assertThat(ReportFormat.resolve(null, MediaType.parseMediaTypes("text/html"))).isEqualTo(ReportFormat.HTML);
+        assertThat(ReportFormat.resolve("", MediaType.parseMediaTypes("text/plain"))).isEqualTo(ReportFormat.TEXT);
+        assertThat(ReportFormat.resolve(null, MediaType.parseMediaTypes("image/png, application/vnd.escpos")))
+                .isEqualTo(ReportFormat.ESCPOS);
+        assertThat(ReportFormat.resolve(null, MediaType.parseMediaTypes("*/*, text/plain"))).isEqualTo(ReportFormat.TEXT);
+    }
+
+    @Test
+    void withoutAUsableTypeThePdfIsGenerated() {
+        assertThat(ReportFormat.resolve(null, List.of())).isEqualTo(ReportFormat.PDF);
+        assertThat(ReportFormat.resolve(null, MediaType.parseMediaTypes("*/*"))).isEqualTo(ReportFormat.PDF);
+        assertThat(ReportFormat.resolve(null, MediaType.parseMediaTypes("image/png"))).isEqualTo(ReportFormat.PDF);
+    }
+}
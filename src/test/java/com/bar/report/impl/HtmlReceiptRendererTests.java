@@ -0,0 +1,65 @@
+package com.bar.report.impl;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlReceiptRendererTests {
+
+    private final HtmlReceiptRenderer renderer = new HtmlReceiptRenderer();
+
+    @Test
+    void namesAreEscaped() throws Exception {
+        Invoice invoice = new Invoice("f1", "Mesa <4> & \"terraza\"", LocalDateTime.now(),
+                new Client("c1", "Ana", "O'Brien<script>", null, null),
+                List.of(new InvoiceDetail(2, new Dish("d1", "Pan & mantequilla <b>", 3.5, true))), 7.0);
+
+        String html = render(invoice);
+
+        assertThat(html).contains("<h3>Mesa &lt;4&gt; &amp; &quot;terraza&quot;</h3>")
+                .contains("Cliente: Ana O&#39;Brien&lt;script&gt;<br>")
+                .contains("<td>Pan &amp; mantequilla &lt;b&gt;</td>")
+                .doesNotContain("<script>")
+                .doesNotContain("<b>");
+    }
+
+    @Test
+    void linesRepeatWithTheirTotalsAndTheInvoiceTotalClosesTheTable() throws Exception {
+        Invoice invoice = new Invoice("f2", "Mesa 1", LocalDateTime.now(), null, List.of(
+                new InvoiceDetail(3, new Dish("d1", "Ají de gallina", 12.4, true)),
+                new InvoiceDetail(1, new Dish("d2", "Chicha", 0.05, true))), 37.25);
+
+        String html = render(invoice);
+
+        assertThat(html).contains("<title>Recibo f2</title>")
+                .contains("Cliente: <br>")
+                .contains("<tr><td class=\"n\">3</td><td>Ají de gallina</td><td class=\"n\">12.40</td><td class=\"n\">37.20</td></tr>")
+                .contains("<tr><td class=\"n\">1</td><td>Chicha</td><td class=\"n\">0.05</td><td class=\"n\">0.05</td></tr>")
+                .contains("<td colspan=\"3\">TOTAL</td><td class=\"n\">37.25</td>");
+    }
+
+    @Test
+    void theBufferOfTheThreadIsReused() throws Exception {
+        Invoice big = new Invoice("f3", "Mesa <grande>", LocalDateTime.now(), null, List.of(), 0.0);
+        Invoice small = new Invoice("f4", "Mesa 2", LocalDateTime.now(), null, List.of(), 0.0);
+
+        render(big);
+
+        assertThat(render(small)).doesNotContain("grande").contains("<h3>Mesa 2</h3>");
+    }
+
+    private String render(Invoice invoice) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(invoice, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,73 @@
+package com.bar.report.impl;
+
+import com.bar.model.Client;
+import com.bar.model.Dish;
+import com.bar.model.Invoice;
+import com.bar.model.InvoiceDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextReceiptRendererTests {
+
+    private final Invoice invoice = new Invoice("f1", "Mesa 4", LocalDateTime.now(),
+            new Client("c1", "Maria Jose", "Fernandez de la Torre Castañeda", null, null),
+            List.of(new InvoiceDetail(2, new Dish("d1", "Lomo saltado", 32.5, true)),
+                    new InvoiceDetail(12, new Dish("d2", "Tallarines verdes con bistec apanado", 1234.0, true))),
+            14873.0);
+
+    @Test
+    void columnsFitInFortyEightCharacters() throws Exception {
+        String text = new String(render(new TextReceiptRenderer(), invoice), StandardCharsets.UTF_8);
+
+        assertThat(text.split("\n")).allSatisfy(line -> assertThat(line.length()).isLessThanOrEqualTo(48));
+        assertThat(text).isEqualTo(""
+                + "                     Mesa 4\n"
+                + "Cliente: Maria Jose Fernandez de la Torre Castañ\n"
+                + "Factura: f1\n"
+                + "------------------------------------------------\n"
+                + "Cant Plato                      P.Unit     Total\n"
+                + "   2 Lomo saltado                32.50     65.00\n"
+                + "  12 Tallarines verdes con b   1234.00  14808.00\n"
+                + "------------------------------------------------\n"
+                + "TOTAL                                   14873.00\n"
+                + "\n");
+    }
+
+    @Test
+    void escPosWrapsTheReceiptInPrinterCommands() throws Exception {
+        byte[] bytes = render(new EscPosReceiptRenderer(), invoice);
+
+        //ESC @, ESC t 2 (PC850), ESC E 1 (negrita)
+        assertThat(Arrays.copyOfRange(bytes, 0, 8)).containsExactly(0x1B, '@', 0x1B, 't', 2, 0x1B, 'E', 1);
+        //ESC d 4 y GS V 66 0 (corte parcial)
+        assertThat(Arrays.copyOfRange(bytes, bytes.length - 7, bytes.length)).containsExactly(0x1B, 'd', 4, 0x1D, 'V', 66, 0);
+        String text = new String(bytes, Charset.forName("IBM850"));
+        assertThat(text).contains("Mesa 4\n\u001BE\u0000Cliente:").contains("\u001BE\u0001TOTAL");
+    }
+
+    @Test
+    void escPosEncodesAccentsInPc850() throws Exception {
+        Invoice accents = new Invoice("f2", "Ñandú", LocalDateTime.now(), null,
+                List.of(new InvoiceDetail(1, new Dish("d1", "Piña 🍍", 1.0, true))), 1.0);
+
+        byte[] bytes = render(new EscPosReceiptRenderer(), accents);
+
+        //Ñ es 0xA5 y ñ 0xA4 en PC850; lo que no existe ahi sale como '?'
+        assertThat(bytes).containsSequence((byte) 0xA5, (byte) 'a', (byte) 'n', (byte) 'd', (byte) 0xA3);
+        assertThat(new String(bytes, Charset.forName("IBM850"))).contains("Piña ?");
+    }
+
+    private static byte[] render(TextReceiptRenderer renderer, Invoice invoice) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(invoice, out);
+        return out.toByteArray();
+    }
+}
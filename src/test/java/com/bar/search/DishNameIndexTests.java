@@ -0,0 +1,83 @@
+package com.bar.search;
+
+import com.bar.config.MapperConfig;
+import com.bar.dto.DishDTO;
+import com.bar.event.DishChangedEvent;
+import com.bar.model.Dish;
+import com.bar.repo.IDishRepo;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DishNameIndexTests {
+
+    private final IDishRepo repo = mock(IDishRepo.class);
+    private final DishNameIndex index = new DishNameIndex(repo, new MapperConfig().modelMapper());
+
+    @Test
+    void tokensIgnoreCaseAccentsAndSeparators() {
+        assertThat(DishNameIndex.tokenize("  Ají de GALLINA, (picante) ")).containsExactly("aji", "de", "gallina", "picante");
+        assertThat(DishNameIndex.tokenize("Café-con-leche")).containsExactly("cafe", "con", "leche");
+        assertThat(DishNameIndex.tokenize(" ,;- ")).isEmpty();
+        assertThat(DishNameIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void everyWordMustMatchAPrefixAndActiveShortNamesComeFirst() {
+        index.put(new Dish("1", "Arroz chaufa de pollo", 20.0, true));
+        index.put(new Dish("2", "Pollo a la brasa", 30.0, true));
+        index.put(new Dish("3", "Pollo", 15.0, false));
+        index.put(new Dish("4", "Sopa de pollo", 12.0, true));
+
+        assertThat(names(index.search("POLL", 10)))
+                .containsExactly("Pollo a la brasa", "Sopa de pollo", "Arroz chaufa de pollo", "Pollo");
+        assertThat(names(index.search("pollo arr", 10))).containsExactly("Arroz chaufa de pollo");
+        assertThat(names(index.search("pollo", 2))).containsExactly("Pollo a la brasa", "Sopa de pollo");
+        assertThat(index.search("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void changesUpdateTheIndex() {
+        index.onDishChanged(DishChangedEvent.saved(new Dish("1", "Lomo saltado", 32.0, true)));
+        index.onDishChanged(DishChangedEvent.saved(new Dish("2", "Lomo a lo pobre", 35.0, true)));
+        assertThat(names(index.search("lomo", 10))).containsExactly("Lomo saltado", "Lomo a lo pobre");
+
+        index.onDishChanged(DishChangedEvent.saved(new Dish("1", "Tallarin saltado", 28.0, true)));
+        assertThat(names(index.search("lomo", 10))).containsExactly("Lomo a lo pobre");
+        assertThat(names(index.search("salt", 10))).containsExactly("Tallarin saltado");
+
+        index.onDishChanged(DishChangedEvent.deleted("2"));
+        assertThat(index.search("lomo", 10)).isEmpty();
+    }
+
+    @Test
+    void changesDuringTheLoadAreNotOverwritten() {
+        Sinks.Many<Dish> stored = Sinks.many().unicast().onBackpressureBuffer();
+        when(repo.findAll()).thenReturn(stored.asFlux());
+        index.loadAll().subscribe();
+
+        //La consulta leyo los platos antes de estos cambios
+        index.onDishChanged(DishChangedEvent.saved(new Dish("1", "Ceviche mixto", 30.0, true)));
+        index.onDishChanged(DishChangedEvent.deleted("2"));
+        stored.tryEmitNext(new Dish("1", "Ceviche", 25.0, true));
+        stored.tryEmitNext(new Dish("2", "Ceviche de conchas", 40.0, true));
+        stored.tryEmitNext(new Dish("3", "Causa", 18.0, true));
+        stored.tryEmitComplete();
+
+        assertThat(names(index.search("ce", 10))).containsExactly("Ceviche mixto");
+        assertThat(names(index.search("causa", 10))).containsExactly("Causa");
+
+        //Terminada la carga los eventos se aplican como siempre
+        index.onDishChanged(DishChangedEvent.saved(new Dish("3", "Causa limena", 18.0, true)));
+        assertThat(names(index.search("causa", 10))).containsExactly("Causa limena");
+    }
+
+    private static List<String> names(List<DishDTO> dishes) {
+        return dishes.stream().map(DishDTO::getNameDish).toList();
+    }
+}
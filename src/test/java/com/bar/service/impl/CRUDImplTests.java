@@ -0,0 +1,53 @@
+package com.bar.service.impl;
+
+import com.bar.query.FieldSelection;
+import com.bar.query.QueryFilter;
+import com.bar.query.ResourceFields;
+import com.bar.repo.IClientRepo;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CRUDImplTests {
+
+    private final IClientRepo repo = mock(IClientRepo.class);
+    private final ClientServiceImpl service = new ClientServiceImpl(repo);
+
+    @Test
+    void pagesAreAlwaysSortedByIdLast() {
+        assertThat(pageSort(null)).isEqualTo(new Document("id", 1));
+        assertThat(pageSort("surname")).isEqualTo(new Document("lastName", 1).append("id", 1));
+        assertThat(pageSort("-birthDateClient,surname"))
+                .isEqualTo(new Document("birthDate", -1).append("lastName", 1).append("id", 1));
+    }
+
+    @Test
+    void anExplicitIdOrderIsKept() {
+        assertThat(pageSort("-id")).isEqualTo(new Document("id", -1));
+        assertThat(pageSort("-id,surname")).isEqualTo(new Document("id", -1).append("lastName", 1));
+    }
+
+    private Document pageSort(String sort) {
+        when(repo.findAll(any(Query.class))).thenReturn(Flux.empty());
+        when(repo.count(any(Query.class))).thenReturn(Mono.just(0L));
+
+        service.getPage(PageRequest.of(1, 10), QueryFilter.parse(null, sort, ResourceFields.CLIENT), FieldSelection.ALL)
+                .block();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(repo).findAll(query.capture());
+        clearInvocations(repo);
+        return query.getValue().getSortObject();
+    }
+}
@@ -0,0 +1,167 @@
+package com.bar.service.impl;
+
+import com.bar.archival.InvoicePartitions;
+import com.bar.exception.ConflictException;
+import com.bar.exception.ValidationException;
+import com.bar.migration.InvoiceCompactionMigration;
+import com.bar.model.Dish;
+import com.bar.model.InvoiceDetail;
+import com.bar.model.InvoiceSummary;
+import com.bar.repo.IClientRepo;
+import com.bar.repo.IDishRepo;
+import com.bar.repo.IInvoiceRepo;
+import com.bar.repo.IInvoiceSummaryRepo;
+import com.bar.repo.convert.InvoiceConverters;
+import com.bar.report.ReportArchive;
+import com.bar.service.IInvoiceSummaryService;
+import com.bar.support.InMemoryMongo;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InvoiceItemsTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final ObjectId invoiceId = new ObjectId();
+    private final ObjectId soupId = new ObjectId();
+    private final ObjectId riceId = new ObjectId();
+
+    private final IDishRepo dishRepo = mock(IDishRepo.class);
+    private final IInvoiceSummaryService summaries = mock(IInvoiceSummaryService.class);
+    private InMemoryMongo mongo;
+    private ReactiveMongoTemplate template;
+
+    @BeforeEach
+    void start() {
+        mongo = new InMemoryMongo();
+        template = mongo.template();
+        when(dishRepo.findById(soupId.toHexString())).thenReturn(Mono.just(new Dish(soupId.toHexString(), "Sopa", 5.0, true, "cocina")));
+        when(dishRepo.findById(riceId.toHexString())).thenReturn(Mono.just(new Dish(riceId.toHexString(), "Arroz", 7.5, true, "cocina")));
+        when(summaries.save(any())).thenAnswer(call -> Mono.just(call.<InvoiceSummary>getArgument(0)));
+    }
+
+    @AfterEach
+    void stop() {
+        mongo.close();
+    }
+
+    @Test
+    void addingADishTheLegacyInvoiceHasIncrementsItsLine() {
+        insertLegacy(2);
+        InvoiceServiceImpl service = service(new InvoiceCompactionMigration(template, summaries));
+
+        InvoiceDetail line = service.addItem(invoiceId.toHexString(), item(soupId, 1)).block(WAIT);
+
+        assertThat(line.getQuantity()).isEqualTo(3);
+        Document stored = stored();
+        assertThat(stored.getInteger(InvoiceConverters.SCHEMA)).isEqualTo(InvoiceConverters.SCHEMA_VERSION);
+        assertThat(stored.getList("items", Document.class)).singleElement()
+                .satisfies(item -> assertThat(item.getInteger("quantity")).isEqualTo(3));
+        //La migracion completa el total que faltaba y el $inc suma sobre el
+        assertThat(stored.getDouble("total")).isEqualTo(15.0);
+    }
+
+    @Test
+    void addingANewDishPushesALine() {
+        insertLegacy(2);
+        InvoiceServiceImpl service = service(new InvoiceCompactionMigration(template, summaries));
+
+        InvoiceDetail line = service.addItem(invoiceId.toHexString(), item(riceId, 2)).block(WAIT);
+
+        assertThat(line.getQuantity()).isEqualTo(2);
+        assertThat(stored().getList("items", Document.class)).hasSize(2);
+        assertThat(stored().getDouble("total")).isEqualTo(25.0);
+    }
+
+    @Test
+    void changingAndRemovingLinesWorkOnLegacyInvoices() {
+        insertLegacy(2);
+        InvoiceServiceImpl service = service(new InvoiceCompactionMigration(template, summaries));
+
+        assertThat(service.changeItemQuantity(invoiceId.toHexString(), soupId.toHexString(), 2).block(WAIT).getQuantity())
+                .isEqualTo(4);
+        assertThat(stored().getDouble("total")).isEqualTo(20.0);
+        assertThatThrownBy(() -> service.changeItemQuantity(invoiceId.toHexString(), soupId.toHexString(), -4).block(WAIT))
+                .isInstanceOf(ValidationException.class);
+
+        assertThat(service.removeItem(invoiceId.toHexString(), soupId.toHexString()).block(WAIT)).isTrue();
+        assertThat(stored().getList("items", Document.class)).isEmpty();
+        assertThat(stored().getDouble("total")).isEqualTo(0.0);
+    }
+
+    @Test
+    void linesWithoutQuantityCountAsZero() {
+        insertLegacy(null);
+        InvoiceServiceImpl service = service(new InvoiceCompactionMigration(template, summaries));
+
+        assertThat(service.changeItemQuantity(invoiceId.toHexString(), soupId.toHexString(), 1).block(WAIT).getQuantity())
+                .isEqualTo(1);
+        assertThat(stored().getDouble("total")).isEqualTo(5.0);
+    }
+
+    @Test
+    void invoicesStillLegacyAreNotTouched() {
+        insertLegacy(2);
+        InvoiceCompactionMigration migration = mock(InvoiceCompactionMigration.class);
+        when(migration.migrate(invoiceId.toHexString())).thenReturn(Mono.empty());
+        InvoiceServiceImpl service = service(migration);
+
+        assertThatThrownBy(() -> service.addItem(invoiceId.toHexString(), item(soupId, 1)).block(WAIT))
+                .isInstanceOf(ConflictException.class);
+        assertThat(stored().getList("items", Document.class)).singleElement()
+                .satisfies(item -> assertThat(item.getInteger("quantity")).isEqualTo(2));
+        assertThat(stored().containsKey("total")).isFalse();
+    }
+
+    @Test
+    void missingInvoicesAreEmpty() {
+        InvoiceServiceImpl service = service(new InvoiceCompactionMigration(template, summaries));
+
+        assertThat(service.changeItemQuantity(new ObjectId().toHexString(), soupId.toHexString(), 1).block(WAIT)).isNull();
+        assertThat(service.removeItem(new ObjectId().toHexString(), soupId.toHexString()).block(WAIT)).isFalse();
+    }
+
+    private InvoiceServiceImpl service(InvoiceCompactionMigration migration) {
+        ReportArchive archive = mock(ReportArchive.class);
+        when(archive.evictInvoice(any())).thenReturn(Mono.empty());
+        return new InvoiceServiceImpl(mock(IInvoiceRepo.class), mock(IClientRepo.class), dishRepo,
+                mock(IInvoiceSummaryRepo.class), List.of(), archive, Schedulers.immediate(),
+                new InvoicePartitions(template), template, migration);
+    }
+
+    //Formato anterior: el plato embebido en items.dish y sin total ni schema
+    private void insertLegacy(Integer quantity) {
+        Document line = new Document("dish", new Document("_id", soupId).append("name", "Sopa").append("price", 5.0));
+        if (quantity != null) {
+            line.append("quantity", quantity);
+        }
+        template.insert(new Document("_id", invoiceId)
+                .append("description", "Mesa 2")
+                .append("items", List.of(line)), InvoicePartitions.HOT).block(WAIT);
+    }
+
+    private Document stored() {
+        return template.findOne(Query.query(Criteria.where("_id").is(invoiceId)), Document.class, InvoicePartitions.HOT).block(WAIT);
+    }
+
+    private static InvoiceDetail item(ObjectId dishId, int quantity) {
+        return new InvoiceDetail(quantity, new Dish(dishId.toHexString(), null, null, null));
+    }
+}
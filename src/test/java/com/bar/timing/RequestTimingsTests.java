@@ -0,0 +1,46 @@
+package com.bar.timing;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTimingsTests {
+
+    @Test
+    void stagesAreRecordedInTheTimingsOfTheContext() throws Exception {
+        RequestTimings timings = new RequestTimings();
+
+        Mono.just("factura")
+                .transform(RequestTimings.stage("mongo-invoice"))
+                .contextWrite(Context.of(RequestTimings.class, timings))
+                .block();
+        RequestTimings.bind(timings, () -> RequestTimings.time("jasper-fill", () -> "ok"));
+
+        assertThat(timings.toHeader()).matches("mongo-invoice;dur=\\d+\\.\\d, jasper-fill;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d");
+    }
+
+    @Test
+    void sharedStagesAreCopiedToEveryCaller() {
+        RequestTimings shared = new RequestTimings();
+        shared.record("mongo-invoice", 2_000_000);
+        shared.record("render", 5_000_000);
+        RequestTimings first = new RequestTimings();
+        RequestTimings joined = new RequestTimings();
+        joined.record("render", 1_000_000);
+
+        first.recordAll(shared);
+        joined.recordAll(shared);
+
+        assertThat(first.toHeader()).startsWith("mongo-invoice;dur=2.0, render;dur=5.0, total;dur=");
+        //Las etapas que ya tenia se suman
+        assertThat(joined.toHeader()).startsWith("render;dur=6.0, mongo-invoice;dur=2.0, total;dur=");
+    }
+
+    @Test
+    void withoutTimingsStagesOnlyRun() throws Exception {
+        assertThat(Mono.just(1).transform(RequestTimings.stage("find")).block()).isEqualTo(1);
+        assertThat(RequestTimings.time("pdf-export", () -> 2)).isEqualTo(2);
+    }
+}